@@ -0,0 +1,113 @@
+package club.ppmc.workflow.aop;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import club.ppmc.workflow.exception.DelegateThrottledException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.jobexecutor.JobExecutorContext;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author cc
+ * @description 【新增】按委托 Bean 限制作业执行器中的并发数。
+ * 在作业执行器线程中调用 JavaDelegate 时，按 app.job-executor.delegate-limits 中配置的 Bean 名称获取许可，
+ * 慢的外部系统 (例如 ERP) 最多只占用配置数量的并发作业。
+ * 【修改】等待发生在作业事务内、占用着数据库连接，因此默认不等待：没有许可时立即抛出 {@link DelegateThrottledException}，
+ * 由 ThrottledJobRescheduler 把作业延后重新执行，不消耗重试次数。
+ * 同时记录作业从到期到实际执行委托的延迟 (camunda.job.due.lag)。在请求线程中同步执行的委托不受限制。
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DelegateConcurrencyAspect {
+
+    private final ApplicationContext applicationContext;
+    private final MeterRegistry meterRegistry;
+
+    // 委托 Bean 名称 -> 最大并发数，例如 {archiveProcessDelegate:4,taskEmailNotificationDelegate:8}
+    @Value("#{${app.job-executor.delegate-limits:{:}}}")
+    private Map<String, Integer> delegateLimits;
+
+    @Value("${app.job-executor.delegate-wait-timeout-ms:0}")
+    private long waitTimeoutMs;
+
+    private record DelegateLimit(String beanName, Semaphore permits, Timer waitTimer) {
+    }
+
+    private final Map<Class<?>, DelegateLimit> limitsByClass = new HashMap<>();
+    private Timer dueLagTimer;
+
+    @PostConstruct
+    void init() {
+        delegateLimits.forEach((beanName, limit) -> {
+            Class<?> type = applicationContext.getType(beanName);
+            if (type == null) {
+                log.warn("配置了并发限制的委托 Bean '{}' 不存在，已忽略。", beanName);
+                return;
+            }
+            Semaphore permits = new Semaphore(limit);
+            Timer waitTimer = Timer.builder("camunda.delegate.wait")
+                    .description("作业等待委托并发许可的时间")
+                    .tag("delegate", beanName)
+                    .register(meterRegistry);
+            Gauge.builder("camunda.delegate.active", permits, p -> limit - p.availablePermits())
+                    .description("正在执行委托的作业数")
+                    .tag("delegate", beanName)
+                    .register(meterRegistry);
+            limitsByClass.put(ClassUtils.getUserClass(type), new DelegateLimit(beanName, permits, waitTimer));
+        });
+        this.dueLagTimer = Timer.builder("camunda.job.due.lag")
+                .description("作业从到期到开始执行委托的延迟")
+                .register(meterRegistry);
+    }
+
+    @Around("execution(* org.camunda.bpm.engine.delegate.JavaDelegate.execute(..))")
+    public Object limitConcurrency(ProceedingJoinPoint joinPoint) throws Throwable {
+        JobExecutorContext jobContext = Context.getJobExecutorContext();
+        if (jobContext == null) {
+            return joinPoint.proceed();
+        }
+        recordDueLag(jobContext.getCurrentJob());
+
+        DelegateLimit limit = limitsByClass.get(AopUtils.getTargetClass(joinPoint.getTarget()));
+        if (limit == null) {
+            return joinPoint.proceed();
+        }
+        long waitStart = System.nanoTime();
+        boolean acquired = limit.permits().tryAcquire(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        limit.waitTimer().record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            throw new DelegateThrottledException("委托 " + limit.beanName() + " 的并发数已达上限，作业将稍后重新执行");
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            limit.permits().release();
+        }
+    }
+
+    private void recordDueLag(JobEntity job) {
+        if (job != null && job.getDuedate() != null) {
+            long lagMillis = System.currentTimeMillis() - job.getDuedate().getTime();
+            dueLagTimer.record(Math.max(0, lagMillis), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package club.ppmc.workflow.aop;
 
 import club.ppmc.workflow.domain.User;
+import club.ppmc.workflow.domain.UserPrincipal;
 import club.ppmc.workflow.service.LoggingService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -63,7 +64,10 @@ public class OperationLogAspect {
             Object principal = authentication.getPrincipal();
             String operatorId = "system";
             String operatorName = "系统";
-            if (principal instanceof User) {
+            if (principal instanceof UserPrincipal userPrincipal) {
+                operatorId = userPrincipal.getId();
+                operatorName = userPrincipal.getName();
+            } else if (principal instanceof User) {
                 User user = (User) principal;
                 operatorId = user.getId();
                 operatorName = user.getName();
@@ -0,0 +1,97 @@
+package club.ppmc.workflow.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author cc
+ * @description 【新增】Camunda 作业执行器的线程配置。
+ * 覆盖 Camunda Spring Boot Starter 默认的 camundaTaskExecutor (平台线程池)，
+ * 通过 app.job-executor.backend 选择在虚拟线程 (virtual，默认) 或平台线程池 (platform) 上执行作业。
+ * 两种实现都记录作业从提交到开始执行的等待时间 (camunda.job.acquisition.lag) 和执行耗时 (camunda.job.execution)，
+ * 用于观察阻塞的委托是否拖慢了定时器等其他作业。
+ * 【修改】每批作业在事务中占用一个数据库连接，虚拟线程模式下同时执行的批次数不超过连接池大小减去预留给请求线程的连接数，
+ * 否则作业会因获取连接超时而失败，而不是缓解连接池压力。
+ */
+@Configuration
+@Slf4j
+public class JobExecutorConfiguration {
+
+    public static final String BACKEND_VIRTUAL = "virtual";
+
+    @Bean(name = "camundaTaskExecutor")
+    public TaskExecutor camundaTaskExecutor(
+            @Value("${app.job-executor.backend:virtual}") String backend,
+            @Value("${app.job-executor.max-concurrent-jobs:6}") int maxConcurrentJobs,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+            @Value("${app.job-executor.reserved-connections:4}") int reservedConnections,
+            @Value("${camunda.bpm.job-execution.core-pool-size:3}") int corePoolSize,
+            @Value("${camunda.bpm.job-execution.max-pool-size:10}") int maxPoolSize,
+            @Value("${camunda.bpm.job-execution.queue-capacity:3}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        TaskDecorator metricsDecorator = jobMetricsDecorator(meterRegistry);
+
+        int connectionLimit = Math.max(1, connectionPoolSize - reservedConnections);
+        if (BACKEND_VIRTUAL.equals(backend)) {
+            if (maxConcurrentJobs > connectionLimit) {
+                log.warn("app.job-executor.max-concurrent-jobs={} 超过了可用的数据库连接数 {} (连接池 {}，预留 {})，已按 {} 执行。",
+                        maxConcurrentJobs, connectionLimit, connectionPoolSize, reservedConnections, connectionLimit);
+                maxConcurrentJobs = connectionLimit;
+            }
+            VirtualThreadJobExecutor executor = new VirtualThreadJobExecutor(maxConcurrentJobs, metricsDecorator);
+            Gauge.builder("camunda.job.active", executor, VirtualThreadJobExecutor::getActiveCount)
+                    .description("正在执行的作业批次数")
+                    .register(meterRegistry);
+            log.info("Camunda 作业执行器使用虚拟线程，最多同时执行 {} 批作业。", maxConcurrentJobs);
+            return executor;
+        }
+
+        if (maxPoolSize > connectionLimit) {
+            log.warn("camunda.bpm.job-execution.max-pool-size={} 超过了可用的数据库连接数 {}，作业可能因获取连接超时而失败。",
+                    maxPoolSize, connectionLimit);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("camunda-job-");
+        executor.setTaskDecorator(metricsDecorator);
+        executor.initialize();
+        Gauge.builder("camunda.job.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("正在执行的作业批次数")
+                .register(meterRegistry);
+        log.info("Camunda 作业执行器使用平台线程池 (core={}, max={}, queue={})。", corePoolSize, maxPoolSize, queueCapacity);
+        return executor;
+    }
+
+    private static TaskDecorator jobMetricsDecorator(MeterRegistry meterRegistry) {
+        Timer acquisitionLag = Timer.builder("camunda.job.acquisition.lag")
+                .description("作业批次从获取后提交到开始执行的等待时间")
+                .register(meterRegistry);
+        Timer execution = Timer.builder("camunda.job.execution")
+                .description("作业批次的执行耗时")
+                .register(meterRegistry);
+        return runnable -> {
+            long submittedAt = System.nanoTime();
+            return () -> {
+                long startedAt = System.nanoTime();
+                acquisitionLag.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    runnable.run();
+                } finally {
+                    execution.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            };
+        };
+    }
+}
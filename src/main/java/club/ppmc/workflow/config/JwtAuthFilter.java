@@ -1,6 +1,11 @@
 package club.ppmc.workflow.config;
 
+import club.ppmc.workflow.domain.UserPrincipal;
 import club.ppmc.workflow.service.JwtService;
+import club.ppmc.workflow.service.SecurityEpochRegistry;
+import club.ppmc.workflow.service.StreamTicketService;
+import club.ppmc.workflow.service.UserPrincipalCache;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -9,9 +14,8 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -22,8 +26,12 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    private static final String STREAM_PATH = "/api/notifications/stream";
+
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final SecurityEpochRegistry securityEpochRegistry;
+    private final StreamTicketService streamTicketService;
 
     @Override
     protected void doFilterInternal(
@@ -33,17 +41,25 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
+        final Claims claims;
         final String userId;
 
-        // 如果请求头不存在或格式不正确，则直接跳过此过滤器
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            jwt = authHeader.substring(7); // "Bearer " 后面是 token
+        } else if (STREAM_PATH.equals(request.getRequestURI().substring(request.getContextPath().length())) && request.getParameter("ticket") != null) {
+            // 【修改】EventSource 无法设置请求头，推送订阅接口只接受一次性的订阅凭证，不再允许通过参数传递 Token
+            authenticateWithStreamTicket(request, response, filterChain);
+            return;
+        } else {
+            // 如果请求头不存在或格式不正确，则直接跳过此过滤器
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7); // "Bearer " 后面是 token
         try {
-            userId = jwtService.extractUsername(jwt);
+            // 【优化】只解析并校验一次 Token，后续直接复用 Claims
+            claims = jwtService.parseVerifiedClaims(jwt);
+            userId = claims.getSubject();
         } catch (ExpiredJwtException e) {
             // 如果 token 过期，直接放行，后续的 Spring Security 链会处理未认证状态
             filterChain.doFilter(request, response);
@@ -57,9 +73,31 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         // 如果用户已存在且当前安全上下文中没有认证信息
         if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userId);
+            UserPrincipal userDetails = null;
+            // 【新增】Token 中嵌入了授权信息时，校验安全纪元后直接使用，无需访问用户表
+            Long tokenEpoch = jwtService.extractSecurityEpoch(claims);
+            Long currentEpoch = tokenEpoch != null ? securityEpochRegistry.getCurrentEpoch(userId) : null;
+            if (currentEpoch != null && tokenEpoch > currentEpoch) {
+                // 【修改】Token 比内存表更新 (由其他节点在用户变更后签发)，立即同步该用户的纪元，而不是拒绝合法的新 Token
+                currentEpoch = securityEpochRegistry.refreshEpoch(userId);
+            }
+            if (currentEpoch != null) {
+                if (tokenEpoch < currentEpoch) {
+                    // 用户的角色、用户组或状态已被修改，旧 Token 作废
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    response.getWriter().write("JWT Token has been revoked");
+                    return;
+                }
+                if (tokenEpoch.equals(currentEpoch)) {
+                    userDetails = jwtService.buildPrincipal(claims);
+                }
+            }
+            if (userDetails == null) {
+                // 【优化】从快照缓存获取用户，命中时不访问数据库
+                userDetails = this.userPrincipalCache.get(userId);
+            }
             // 验证 token 是否有效
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (jwtService.isTokenValid(claims, userDetails)) {
                 // 创建认证令牌
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
@@ -73,4 +111,28 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private void authenticateWithStreamTicket(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String userId = streamTicketService.redeem(request.getParameter("ticket"));
+        UserPrincipal userDetails = null;
+        if (userId != null) {
+            try {
+                // 凭证只证明签发时的身份，账号状态以当前的用户快照为准
+                userDetails = userPrincipalCache.get(userId);
+            } catch (AuthenticationException e) {
+                // 签发后账号被删除、禁用或锁定
+            }
+        }
+        if (userDetails == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().write("Invalid stream ticket");
+            return;
+        }
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+        filterChain.doFilter(request, response);
+    }
+}
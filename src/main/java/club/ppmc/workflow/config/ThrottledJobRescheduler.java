@@ -0,0 +1,62 @@
+package club.ppmc.workflow.config;
+
+import club.ppmc.workflow.exception.DelegateThrottledException;
+import lombok.extern.slf4j.Slf4j;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.jobexecutor.DefaultFailedJobCommandFactory;
+import org.camunda.bpm.engine.impl.jobexecutor.FailedJobCommandFactory;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author cc
+ * @description 【新增】被委托并发限制拦下的作业不计为失败。
+ * Camunda 默认的失败处理会把每次失败都扣减一次重试次数，重试用完后作业变成事故 (incident)。
+ * 此插件包装默认的 FailedJobCommandFactory：失败原因是 {@link DelegateThrottledException} 时，
+ * 只解锁作业并把到期时间延后 (带随机抖动)，保留重试次数；其他失败仍按默认策略处理。
+ */
+@Component
+@Slf4j
+public class ThrottledJobRescheduler extends AbstractProcessEnginePlugin {
+
+    @Value("${app.job-executor.throttle-retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl configuration) {
+        FailedJobCommandFactory fallback = configuration.getFailedJobCommandFactory() != null
+                ? configuration.getFailedJobCommandFactory()
+                : new DefaultFailedJobCommandFactory();
+        configuration.setFailedJobCommandFactory((jobId, exception) ->
+                isThrottled(exception) ? reschedule(jobId) : fallback.getCommand(jobId, exception));
+    }
+
+    private Command<Object> reschedule(String jobId) {
+        return commandContext -> {
+            JobEntity job = commandContext.getJobManager().findJobById(jobId);
+            if (job != null) {
+                long delay = retryDelayMs + ThreadLocalRandom.current().nextLong(retryDelayMs / 5 + 1);
+                job.setLockOwner(null);
+                job.setLockExpirationTime(null);
+                job.setDuedate(new Date(System.currentTimeMillis() + delay));
+                log.debug("作业 {} 的委托并发数已达上限，{} 毫秒后重新执行。", jobId, delay);
+            }
+            return null;
+        };
+    }
+
+    private static boolean isThrottled(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DelegateThrottledException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
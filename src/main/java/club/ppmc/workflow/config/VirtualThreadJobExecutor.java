@@ -0,0 +1,55 @@
+package club.ppmc.workflow.config;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author cc
+ * @description 【新增】在虚拟线程上执行 Camunda 作业的 TaskExecutor。
+ * 每批作业在一个新的虚拟线程中执行，委托中的阻塞 I/O (ERP 调用、发送邮件) 只会挂起虚拟线程，不占用平台线程；
+ * 同时执行的批次数由信号量限制，达到上限时拒绝执行，由 Camunda 的拒绝处理器把作业留给下一轮获取。
+ */
+public class VirtualThreadJobExecutor implements TaskExecutor {
+
+    private final Semaphore permits;
+    private final int maxConcurrentJobs;
+    private final TaskDecorator taskDecorator;
+    private final ThreadFactory threadFactory = Thread.ofVirtual().name("camunda-job-", 1).factory();
+
+    public VirtualThreadJobExecutor(int maxConcurrentJobs, TaskDecorator taskDecorator) {
+        this.permits = new Semaphore(maxConcurrentJobs);
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.taskDecorator = taskDecorator;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!permits.tryAcquire()) {
+            throw new TaskRejectedException("正在执行的作业数已达上限 " + maxConcurrentJobs);
+        }
+        Runnable decorated = taskDecorator.decorate(task);
+        try {
+            threadFactory.newThread(() -> {
+                try {
+                    decorated.run();
+                } finally {
+                    permits.release();
+                }
+            }).start();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw new TaskRejectedException("无法启动作业线程", e);
+        }
+    }
+
+    /**
+     * 当前正在执行的作业批次数
+     */
+    public int getActiveCount() {
+        return maxConcurrentJobs - permits.availablePermits();
+    }
+}
@@ -55,6 +55,23 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getProcessInstances(state, processDefinitionKey, businessKey, startUser, pageable));
     }
 
+    /**
+     * 【新增】游标分页获取流程实例列表 (按开始时间倒序)
+     * 首次请求不带 cursor，之后将响应中的 nextCursor 原样传回；withTotal=true 时在第一页返回总数
+     */
+    @GetMapping("/instances/cursor")
+    public ResponseEntity<CursorPage<ProcessInstanceDto>> getProcessInstancesByCursor(
+            @RequestParam(required = false) String state,
+            @RequestParam(required = false) String processDefinitionKey,
+            @RequestParam(required = false) String businessKey,
+            @RequestParam(required = false) String startUser,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal
+    ) {
+        return ResponseEntity.ok(adminService.getProcessInstancesByCursor(state, processDefinitionKey, businessKey, startUser, cursor, size, withTotal));
+    }
+
     @DeleteMapping("/instances/{processInstanceId}")
     public ResponseEntity<Void> terminateProcessInstance(@PathVariable String processInstanceId, @RequestParam String reason) {
         adminService.terminateProcessInstance(processInstanceId, reason);
@@ -83,6 +100,14 @@ public class AdminController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * 【新增】从 Camunda 数据重建任务收件箱投影
+     */
+    @PostMapping("/task-projection/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildTaskProjection() {
+        return ResponseEntity.ok(Map.of("rebuiltTasks", adminService.rebuildTaskProjection()));
+    }
+
     // --- 【核心新增】流程变量管理 API ---
     @GetMapping("/instances/{processInstanceId}/variables")
     public ResponseEntity<List<ProcessVariableDto>> getProcessInstanceVariables(@PathVariable String processInstanceId) {
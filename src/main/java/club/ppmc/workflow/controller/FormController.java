@@ -5,17 +5,20 @@ import club.ppmc.workflow.dto.*;
 import club.ppmc.workflow.exception.ResourceNotFoundException;
 import club.ppmc.workflow.repository.FormSubmissionRepository;
 import club.ppmc.workflow.service.FormService;
+import club.ppmc.workflow.service.SubmissionImportService;
 import club.ppmc.workflow.service.WordImportService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +36,7 @@ public class FormController {
     private final FormService formService;
     private final FormSubmissionRepository formSubmissionRepository;
     private final WordImportService wordImportService;
+    private final SubmissionImportService submissionImportService;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -90,15 +94,24 @@ public class FormController {
     }
 
 
+    /**
+     * API: 提交申请并启动工作流
+     * 【新增】Idempotency-Key 请求头使重试安全；async=true 时申请保存后立即返回 202，工作流由后台启动，
+     * 可通过申请的 submissionStatus (QUEUED / PROCESSING / START_FAILED) 查询进度。
+     */
     @PostMapping("/{formId}/submissions")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<FormSubmissionResponse> createFormSubmission(
             @PathVariable Long formId,
             @RequestBody CreateFormSubmissionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestParam(required = false) Boolean async,
             Principal principal) {
         String submitterId = principal.getName();
-        FormSubmissionResponse response = formService.createFormSubmission(formId, request, submitterId);
-        return new ResponseEntity<>(response, HttpStatus.CREATED);
+        FormSubmissionResponse response = formService.createFormSubmission(formId, request, submitterId, idempotencyKey, async);
+        HttpStatus status = FormSubmission.SubmissionStatus.QUEUED.name().equals(response.getSubmissionStatus())
+                ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+        return new ResponseEntity<>(response, status);
     }
 
     /**
@@ -144,13 +157,41 @@ public class FormController {
     public ResponseEntity<FormSubmissionResponse> submitDraft(
             @PathVariable Long submissionId,
             @RequestBody CreateFormSubmissionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestParam(required = false) Boolean async,
             Principal principal) {
         String submitterId = principal.getName();
-        FormSubmissionResponse response = formService.submitDraft(submissionId, request, submitterId);
-        return ResponseEntity.ok(response);
+        FormSubmissionResponse response = formService.submitDraft(submissionId, request, submitterId, idempotencyKey, async);
+        HttpStatus status = FormSubmission.SubmissionStatus.QUEUED.name().equals(response.getSubmissionStatus())
+                ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return new ResponseEntity<>(response, status);
     }
 
 
+    /**
+     * 【新增】API: 批量导入申请并启动工作流
+     * 请求体为 NDJSON (每行一个 JSON 对象) 或带表头的 CSV (表头为字段ID或标签)，可选的 _submitterId 列指定提交人。
+     * 文件接收后立即返回 202 和导入任务，进度与逐行错误通过 GET /api/forms/import-jobs/{jobId} 查询。
+     */
+    @PostMapping(value = "/{formId}/submissions/import", consumes = {"application/x-ndjson", "text/csv"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SubmissionImportJobDto> importSubmissions(
+            @PathVariable Long formId,
+            @RequestHeader("Content-Type") MediaType contentType,
+            InputStream body,
+            Principal principal) throws IOException {
+        String format = "csv".equals(contentType.getSubtype())
+                ? SubmissionImportService.FORMAT_CSV : SubmissionImportService.FORMAT_NDJSON;
+        SubmissionImportJobDto job = submissionImportService.createImportJob(formId, format, body, principal.getName());
+        return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/import-jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SubmissionImportJobDto> getImportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(submissionImportService.getImportJob(jobId));
+    }
+
     @GetMapping("/{formId}/submissions")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Page<FormSubmissionResponse>> getSubmissionsByFormId(
@@ -168,9 +209,7 @@ public class FormController {
      * 只有申请人、历史或当前处理人、或管理员才能查看。
      */
     @GetMapping("/submissions/{submissionId}")
-    @PreAuthorize("@workflowService.isSubmissionOwner(#submissionId, principal.username) " +
-            "or @workflowService.isTaskAssigneeForSubmission(#submissionId, principal.username) " +
-            "or hasRole('ADMIN')")
+    @PreAuthorize("hasRole('ADMIN') or @workflowService.canAccessSubmission(#submissionId, principal.username)")
     public ResponseEntity<FormSubmissionResponse> getSubmissionById(@PathVariable Long submissionId) {
         FormSubmission submission = formSubmissionRepository.findById(submissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("未找到提交记录 ID: " + submissionId));
@@ -6,10 +6,12 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.Principal;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author cc
@@ -24,14 +26,19 @@ public class MenuController {
 
     /**
      * API: 获取当前登录用户的可访问菜单树
-     * @param principal Spring Security 自动注入的当前用户信息
+     * @param authentication Spring Security 自动注入的当前认证信息
      * @return 菜单树结构的 DTO 列表
      */
     @GetMapping("/menus/my-menus")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<MenuDto>> getMyMenus(Principal principal) {
-        String userId = principal.getName();
-        List<MenuDto> menuTree = menuService.getMenuTreeForUser(userId);
+    public ResponseEntity<List<MenuDto>> getMyMenus(Authentication authentication) {
+        // 角色已包含在认证信息中 (来自 Token 或用户快照)，无需再查询用户表
+        List<String> roleNames = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(authority -> authority.startsWith("ROLE_"))
+                .map(authority -> authority.substring("ROLE_".length()))
+                .collect(Collectors.toList());
+        List<MenuDto> menuTree = menuService.getMenuTreeForRoles(roleNames);
         return ResponseEntity.ok(menuTree);
     }
 
@@ -2,12 +2,16 @@ package club.ppmc.workflow.controller;
 
 import club.ppmc.workflow.dto.NotificationDto;
 import club.ppmc.workflow.service.NotificationService;
+import club.ppmc.workflow.service.PushNotificationHub;
+import club.ppmc.workflow.service.StreamTicketService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.security.Principal;
 import java.util.List;
@@ -24,6 +28,27 @@ import java.util.Map;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final PushNotificationHub pushNotificationHub;
+    private final StreamTicketService streamTicketService;
+
+    /**
+     * 【新增】API: 申请一张实时推送的订阅凭证 (短时有效，只能使用一次)
+     */
+    @PostMapping("/stream-ticket")
+    public ResponseEntity<Map<String, Object>> issueStreamTicket(Principal principal) {
+        String ticket = streamTicketService.issue(principal.getName());
+        return ResponseEntity.ok(Map.of("ticket", ticket, "expiresInSeconds", streamTicketService.getTtlSeconds()));
+    }
+
+    /**
+     * 【新增】API: 订阅待办和通知的实时推送 (Server-Sent Events)。
+     * 事件: task-added、task-removed、unread-count；浏览器 EventSource 无法设置请求头，
+     * 先通过 POST /stream-ticket 换取订阅凭证，再以 ticket 参数订阅。
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Principal principal) {
+        return pushNotificationHub.subscribe(principal.getName());
+    }
 
     /**
      * API: 获取当前用户的通知列表 (分页)
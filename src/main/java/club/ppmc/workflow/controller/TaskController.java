@@ -1,8 +1,12 @@
 package club.ppmc.workflow.controller;
 
+import club.ppmc.workflow.dto.BatchCompleteTaskRequest;
+import club.ppmc.workflow.dto.BatchCompleteTaskResponse;
 import club.ppmc.workflow.dto.CompleteTaskRequest;
 import club.ppmc.workflow.dto.CompletedTaskDto;
+import club.ppmc.workflow.dto.CursorPage;
 import club.ppmc.workflow.dto.TaskDto;
+import club.ppmc.workflow.service.BatchTaskCompletionService;
 import club.ppmc.workflow.service.WorkflowService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -24,9 +28,12 @@ import java.security.Principal;
 public class TaskController {
 
     private final WorkflowService workflowService;
+    private final BatchTaskCompletionService batchTaskCompletionService;
 
     /**
      * API: 获取当前登录用户的待办任务列表，支持分页和搜索
+     * keyword 匹配表单名称、提交人、步骤名称和可筛选的表单字段，多个词须同时命中：
+     * 中文按字和相邻二字匹配，可命中文本中的片段；英文和数字只按单词前缀匹配 ("lap" 能命中 "laptop"，"top" 不能)
      * 权限: 已认证用户
      */
     @GetMapping("/pending")
@@ -40,7 +47,8 @@ public class TaskController {
     }
 
     /**
-     * 【新增】API: 获取当前登录用户的已办任务列表
+     * 【新增】API: 获取当前登录用户的已办任务列表 (按完成时间倒序)
+     * keyword 的匹配规则与待办列表相同 (英文和数字只按单词前缀匹配)
      * 权限: 已认证用户
      */
     @GetMapping("/completed")
@@ -55,6 +63,39 @@ public class TaskController {
     }
 
 
+    /**
+     * 【新增】API: 游标分页获取当前登录用户的待办任务
+     * 首次请求不带 cursor，之后将响应中的 nextCursor 原样传回；withTotal=true 时在第一页返回总数
+     * keyword 的匹配规则与待办列表相同 (英文和数字只按单词前缀匹配)
+     * 权限: 已认证用户
+     */
+    @GetMapping("/pending/cursor")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<CursorPage<TaskDto>> getPendingTasksByCursor(
+            Principal principal,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(workflowService.getPendingTasksByCursor(principal.getName(), keyword, cursor, size, withTotal));
+    }
+
+    /**
+     * 【新增】API: 游标分页获取当前登录用户的已办任务
+     * keyword 的匹配规则与待办列表相同 (英文和数字只按单词前缀匹配)
+     * 权限: 已认证用户
+     */
+    @GetMapping("/completed/cursor")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<CursorPage<CompletedTaskDto>> getCompletedTasksByCursor(
+            Principal principal,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(workflowService.getCompletedTasksByCursor(principal.getName(), keyword, cursor, size, withTotal));
+    }
+
     /**
      * API: 获取单个任务的详情
      * 权限: 仅限任务办理人或管理员
@@ -78,4 +119,14 @@ public class TaskController {
         workflowService.completeUserTask(camundaTaskId, request);
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    /**
+     * 【新增】API: 以同一个决策批量完成多个任务
+     * 权限: 已认证用户，服务内逐个校验是否为任务办理人，无权办理的任务在结果中标记为失败
+     */
+    @PostMapping("/batch-complete")
+    public ResponseEntity<BatchCompleteTaskResponse> batchCompleteTasks(Principal principal,
+                                                                        @RequestBody BatchCompleteTaskRequest request) {
+        return ResponseEntity.ok(batchTaskCompletionService.completeTasks(principal.getName(), request));
+    }
+}
@@ -114,9 +114,7 @@ public class WorkflowController {
     }
 
     @GetMapping("/history/{submissionId}")
-    @PreAuthorize("@workflowService.isSubmissionOwner(#submissionId, principal.username) " +
-            "or @workflowService.isTaskAssigneeForSubmission(#submissionId, principal.username) " +
-            "or hasRole('ADMIN')")
+    @PreAuthorize("hasRole('ADMIN') or @workflowService.canAccessSubmission(#submissionId, principal.username)")
     public ResponseEntity<List<HistoryActivityDto>> getWorkflowHistory(@PathVariable Long submissionId) {
         List<HistoryActivityDto> history = workflowService.getWorkflowHistoryBySubmissionId(submissionId);
         return ResponseEntity.ok(history);
@@ -131,9 +129,7 @@ public class WorkflowController {
      * @return 包含BPMN XML的DTO
      */
     @GetMapping("/submission/{submissionId}/diagram")
-    @PreAuthorize("@workflowService.isSubmissionOwner(#submissionId, principal.username) " +
-            "or @workflowService.isTaskAssigneeForSubmission(#submissionId, principal.username) " +
-            "or hasRole('ADMIN')")
+    @PreAuthorize("hasRole('ADMIN') or @workflowService.canAccessSubmission(#submissionId, principal.username)")
     public ResponseEntity<BpmnXmlDto> getWorkflowDiagram(@PathVariable Long submissionId) {
         return ResponseEntity.ok(workflowService.getWorkflowDiagram(submissionId));
     }
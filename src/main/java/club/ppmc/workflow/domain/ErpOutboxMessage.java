@@ -0,0 +1,100 @@
+package club.ppmc.workflow.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author cc
+ * @description 【新增】待发送给 ERP 的操作 (事务发件箱)。
+ * 流程委托在引擎事务中只写入此表，由 ErpOutboxService 在事务提交后异步调用 ERP，
+ * 失败时按退避策略重试；幂等键随请求发送给 ERP，重复投递不会重复扣减。
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "erp_outbox",
+        uniqueConstraints = @UniqueConstraint(name = "uk_erp_outbox_idempotency", columnNames = "idempotency_key"),
+        indexes = @Index(name = "idx_erp_outbox_status_next", columnList = "status, next_attempt_at"))
+public class ErpOutboxMessage {
+
+    public enum Operation {
+        /**
+         * 库存扣减，负载为 InventoryDeductionRequest
+         */
+        INVENTORY_DEDUCTION
+    }
+
+    public enum Status {
+        /**
+         * 等待发送 (包括等待重试)
+         */
+        PENDING,
+        /**
+         * 已被发送线程认领，正在调用 ERP
+         */
+        SENDING,
+        /**
+         * 已成功发送
+         */
+        SENT,
+        /**
+         * 超过最大重试次数，需要人工处理
+         */
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "idempotency_key", nullable = false, length = 128)
+    private String idempotencyKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Operation operation;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payloadJson;
+
+    /**
+     * 产生此操作的流程实例ID，便于排查
+     */
+    @Column(length = 64)
+    private String processInstanceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * 最近一次被认领发送的时间，用于回收发送线程异常中断后遗留的 SENDING 记录
+     */
+    private LocalDateTime claimedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+}
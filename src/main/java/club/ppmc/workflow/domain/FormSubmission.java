@@ -10,7 +10,12 @@ import java.util.List;
 @Entity
 @Getter
 @Setter
-@Table(name = "form_submission")
+@Table(name = "form_submission",
+        uniqueConstraints = @UniqueConstraint(name = "uk_submission_idempotency", columnNames = {"submitter_id", "idempotency_key"}),
+        indexes = {
+                @Index(name = "idx_submission_status", columnList = "status"),
+                @Index(name = "idx_submission_import_job", columnList = "import_job_id")
+        })
 public class FormSubmission {
 
     // --- 【核心新增】定义申请的业务状态枚举 ---
@@ -19,6 +24,14 @@ public class FormSubmission {
          * 草稿：仅保存，未启动工作流
          */
         DRAFT,
+        /**
+         * 【新增】已受理：申请已保存，等待后台线程启动工作流 (异步提交)
+         */
+        QUEUED,
+        /**
+         * 【新增】启动失败：后台启动工作流失败，可修改后重新提交
+         */
+        START_FAILED,
         /**
          * 处理中：已启动工作流
          */
@@ -55,9 +68,24 @@ public class FormSubmission {
     @OneToOne(mappedBy = "formSubmission", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private WorkflowInstance workflowInstance;
 
-    @Column
+    @Column(name = "submitter_id")
     private String submitterId;
 
+    // --- 【新增】客户端提供的幂等键，同一提交人的同一幂等键只会创建/提交一次 ---
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
+
+    // --- 【新增】异步提交时，后台启动工作流所用的初始动作，以及启动失败的原因 ---
+    @Column(length = 32)
+    private String initialAction;
+
+    @Column(columnDefinition = "TEXT")
+    private String startError;
+
+    // --- 【新增】批量导入创建的申请所属的导入任务ID ---
+    @Column(name = "import_job_id", length = 36)
+    private String importJobId;
+
     // --- 【核心新增】增加业务状态字段 ---
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 @Entity
 @Getter
 @Setter
-@Table(name = "login_log")
+@Table(name = "login_log", indexes = @Index(name = "idx_login_log_time", columnList = "login_time"))
 public class LoginLog {
 
     @Id
@@ -13,7 +13,10 @@ import java.time.LocalDateTime;
 @Entity
 @Getter
 @Setter
-@Table(name = "app_notification")
+@Table(name = "app_notification", indexes = {
+        @Index(name = "idx_notification_user_created", columnList = "user_id, created_at"),
+        @Index(name = "idx_notification_created", columnList = "created_at")
+})
 public class Notification {
 
     @Id
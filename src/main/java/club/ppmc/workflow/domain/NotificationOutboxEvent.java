@@ -0,0 +1,101 @@
+package club.ppmc.workflow.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author cc
+ * @description 【新增】待投递的通知 (通知发件箱)。
+ * 业务代码在自己的事务中写入此表，事务提交后由 NotificationDispatcher 批量投递：
+ * 应用内通知批量插入 app_notification，邮件在同一个 SMTP 连接上批量发送。投递成功后删除记录。
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "notification_outbox",
+        indexes = @Index(name = "idx_notification_outbox_status_next", columnList = "status, next_attempt_at"))
+public class NotificationOutboxEvent {
+
+    public enum Channel {
+        /**
+         * 应用内通知，recipient 为用户ID
+         */
+        IN_APP,
+        /**
+         * 邮件，recipient 为邮箱地址
+         */
+        EMAIL
+    }
+
+    public enum Status {
+        /**
+         * 等待投递 (包括等待重试)
+         */
+        PENDING,
+        /**
+         * 超过最大重试次数，保留以便排查
+         */
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Channel channel;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    /**
+     * 通知标题或邮件主题
+     */
+    @Column(nullable = false)
+    private String title;
+
+    /**
+     * 通知内容或邮件正文
+     */
+    @Lob
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    /**
+     * 应用内通知的类型
+     */
+    private String type;
+
+    /**
+     * 应用内通知的跳转链接
+     */
+    private String link;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+}
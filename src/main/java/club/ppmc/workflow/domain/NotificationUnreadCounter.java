@@ -0,0 +1,28 @@
+package club.ppmc.workflow.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * @author cc
+ * @description 【新增】用户未读通知数 (反范式计数)。
+ * 写入通知、标记已读时在同一事务中增减，查询未读数只需按主键读取一行，与通知历史的数据量无关；
+ * 由 NotificationUnreadCounterReconciler 定期按通知表重新计算，纠正可能的偏差。
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "notification_unread_counter")
+public class NotificationUnreadCounter {
+
+    @Id
+    @Column(name = "user_id", length = 64)
+    private String userId;
+
+    @Column(name = "unread_count", nullable = false)
+    private long unreadCount;
+}
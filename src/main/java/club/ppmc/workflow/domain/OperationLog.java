@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 @Entity
 @Getter
 @Setter
-@Table(name = "operation_log")
+@Table(name = "operation_log", indexes = @Index(name = "idx_operation_log_time", columnList = "operation_time"))
 public class OperationLog {
 
     @Id
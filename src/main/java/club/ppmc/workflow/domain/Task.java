@@ -4,32 +4,73 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
 
+/**
+ * @author cc
+ * @description 【核心修改】任务收件箱投影 (read model)。
+ * 由 TaskProjectionService 监听 Camunda 的任务事件 (create/assignment/update/complete/delete) 维护，
+ * 冗余保存表单名称、提交人等信息，使“我的待办”和任务权限校验只需查询本表，无需访问 Camunda 的 TaskQuery。
+ */
 @Entity
 @Getter
 @Setter
-@Table(name = "task")
+@Table(name = "task", indexes = {
+        @Index(name = "idx_task_assignee_status", columnList = "assignee_id, status, created_at"),
+        @Index(name = "idx_task_assignee_completed", columnList = "assignee_id, status, completed_at"),
+        @Index(name = "idx_task_status_created", columnList = "status, created_at"),
+        @Index(name = "idx_task_process_instance", columnList = "process_instance_id"),
+        @Index(name = "idx_task_submission", columnList = "submission_id")
+})
 public class Task {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "instance_id", nullable = false)
-    private WorkflowInstance workflowInstance;
+    @Column(nullable = false, unique = true)
+    private String camundaTaskId;
 
-    @ManyToOne
-    @JoinColumn(name = "assignee_id", nullable = false)
-    private User assignee;
+    @Column(name = "process_instance_id", nullable = false)
+    private String processInstanceId;
+
+    private String processDefinitionId;
+
+    private String taskDefinitionKey;
 
-    @Column(nullable = false)
     private String stepName;
 
-    @Column(unique = true)
-    private String camundaTaskId;
+    // 办理人ID；候选任务 (尚未认领) 为空
+    @Column(name = "assignee_id")
+    private String assigneeId;
+
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "task_candidate_group", joinColumns = @JoinColumn(name = "task_id"),
+            indexes = @Index(name = "idx_task_candidate_group", columnList = "group_name"))
+    @Column(name = "group_name", nullable = false)
+    private Set<String> candidateGroups = new HashSet<>();
+
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "task_candidate_user", joinColumns = @JoinColumn(name = "task_id"),
+            indexes = @Index(name = "idx_task_candidate_user", columnList = "user_id"))
+    @Column(name = "user_id", nullable = false)
+    private Set<String> candidateUsers = new HashSet<>();
+
+    // --- 冗余的业务信息 (来自流程变量) ---
+    @Column(name = "submission_id")
+    private Long submissionId;
+
+    private Long formDefinitionId;
+
+    private String formName;
+
+    private String submitterName;
+
+    private boolean suspended;
 
     @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
     private Status status;
 
     @Enumerated(EnumType.STRING)
@@ -38,17 +79,12 @@ public class Task {
     @Column(columnDefinition = "TEXT")
     private String comment;
 
-    @Column(updatable = false)
+    // Camunda 任务的创建时间
+    @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
     private LocalDateTime completedAt;
 
-    public enum Status { PENDING, COMPLETED }
-    public enum Decision { APPROVED, REJECTED }
-
-    @PrePersist
-    protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        status = Status.PENDING;
-    }
-}
\ No newline at end of file
+    public enum Status { PENDING, COMPLETED, CANCELED }
+    public enum Decision { APPROVED, REJECTED, RETURN_TO_INITIATOR, RETURN_TO_PREVIOUS }
+}
@@ -0,0 +1,44 @@
+package club.ppmc.workflow.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * @author cc
+ * @description 【新增】任务搜索倒排索引的一行：某个任务投影包含某个 token。
+ * 主键 (token, task_id) 即按 token 查找任务的索引；token 由 SearchTokenizer 生成。
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(TaskSearchToken.Key.class)
+@Table(name = "task_search_token", indexes = {
+        @Index(name = "idx_task_search_token_task", columnList = "task_id")
+})
+public class TaskSearchToken {
+
+    @Id
+    @Column(length = 32)
+    private String token;
+
+    // 任务投影 (Task) 的ID
+    @Id
+    @Column(name = "task_id")
+    private Long taskId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String token;
+        private Long taskId;
+    }
+}
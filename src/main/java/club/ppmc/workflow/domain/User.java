@@ -45,6 +45,12 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private boolean passwordChangeRequired = false;
 
+    /**
+     * 【新增】安全纪元。角色、用户组或状态变更时递增，使已签发的 JWT 失效。
+     */
+    @Column(nullable = false)
+    private long securityEpoch = 0L;
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
             name = "user_roles",
@@ -0,0 +1,77 @@
+package club.ppmc.workflow.domain;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * @author cc
+ * @description 【新增】已认证用户的不可变快照，作为 JWT 请求期间的 Principal 使用。
+ * 与 User 实体不同，它不持有密码和任何懒加载关联，可以安全地在线程间共享和缓存。
+ */
+@Getter
+public final class UserPrincipal implements UserDetails {
+
+    private final String id;
+    private final String name;
+    private final UserStatus status;
+    private final List<GrantedAuthority> authorities;
+    private final Set<String> groupNames;
+    private final Long departmentId;
+
+    public UserPrincipal(String id, String name, UserStatus status,
+                         Collection<? extends GrantedAuthority> authorities, Collection<String> groupNames,
+                         Long departmentId) {
+        this.id = id;
+        this.name = name;
+        this.status = status;
+        this.authorities = List.copyOf(authorities);
+        this.groupNames = Set.copyOf(groupNames);
+        this.departmentId = departmentId;
+    }
+
+    /**
+     * 从已加载 roles 和 userGroups 的 User 实体构建快照
+     */
+    public static UserPrincipal from(User user) {
+        Set<String> groupNames = user.getUserGroups().stream()
+                .map(UserGroup::getName)
+                .collect(Collectors.toSet());
+        Long departmentId = user.getDepartment() != null ? user.getDepartment().getId() : null;
+        return new UserPrincipal(user.getId(), user.getName(), user.getStatus(), user.getAuthorities(), groupNames, departmentId);
+    }
+
+    /**
+     * 判断当前用户是否拥有指定角色 (不含 "ROLE_" 前缀)
+     */
+    public boolean hasRole(String roleName) {
+        String authority = "ROLE_" + roleName;
+        return authorities.stream().anyMatch(a -> authority.equals(a.getAuthority()));
+    }
+
+    @Override
+    public String getUsername() {
+        return this.id;
+    }
+
+    @Override
+    public String getPassword() {
+        // 快照不保存密码，凭证校验只在登录时通过 User 实体完成
+        return null;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return this.status != UserStatus.LOCKED;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return this.status == UserStatus.ACTIVE;
+    }
+}
@@ -0,0 +1,16 @@
+package club.ppmc.workflow.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @author cc
+ * @description 【新增】批量完成任务的请求 DTO，所有任务使用同一个决策和审批意见
+ */
+@Data
+public class BatchCompleteTaskRequest {
+    private List<String> taskIds;
+    private CompleteTaskRequest.Decision decision;
+    private String approvalComment; // 审批意见
+}
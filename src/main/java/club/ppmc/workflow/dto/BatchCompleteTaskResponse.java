@@ -0,0 +1,28 @@
+package club.ppmc.workflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @author cc
+ * @description 【新增】批量完成任务的结果，逐项报告每个任务是否完成
+ */
+@Data
+@Builder
+public class BatchCompleteTaskResponse {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<Item> results;
+
+    @Data
+    @AllArgsConstructor
+    public static class Item {
+        private String camundaTaskId;
+        private boolean success;
+        private String message; // 失败原因，成功时为空
+    }
+}
@@ -0,0 +1,23 @@
+package club.ppmc.workflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author cc
+ * @description 【新增】游标分页的响应对象。
+ * 客户端将 nextCursor 原样传回以获取下一页；hasMore 为 false 时表示已到最后一页。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasMore;
+    // 总数只在第一页且客户端显式请求时计算，其余情况为 null
+    private Long totalElements;
+}
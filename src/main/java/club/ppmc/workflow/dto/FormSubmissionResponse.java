@@ -21,4 +21,5 @@ public class FormSubmissionResponse {
     private List<FileAttachmentDto> attachments;
     // --- 【核心新增】用于表示申请业务状态的字段 ---
     private String submissionStatus; // 申请的业务状态 (e.g., DRAFT, PROCESSING)
+    private String startError; // 【新增】异步启动工作流失败的原因
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package club.ppmc.workflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * @author cc
+ * @description 【新增】批量导入申请任务的进度，以及逐行的校验错误和启动失败原因
+ */
+@Data
+@Builder
+public class SubmissionImportJobDto {
+    private String jobId;
+    private Long formDefinitionId;
+    private String status; // RECEIVED, PARSING, STARTING, COMPLETED, FAILED
+    private String createdBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private long totalRows;        // 已读取的数据行数
+    private long acceptedRows;     // 校验通过并已保存的行数
+    private long invalidRows;      // 校验失败的行数
+    private long startedCount;     // 已启动工作流的申请数
+    private long startFailedCount; // 启动工作流失败的申请数
+    private List<RowError> errors;
+    private boolean errorsTruncated; // 错误数超过上限，只保留了前面的部分
+    private String message;          // 任务整体失败的原因
+
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private Long row;          // 数据行号 (从1开始，不含CSV表头)；启动失败时为空
+        private Long submissionId; // 启动失败的申请ID；校验失败时为空
+        private String message;
+    }
+}
@@ -0,0 +1,12 @@
+package club.ppmc.workflow.exception;
+
+/**
+ * @author cc
+ * @description 【新增】作业执行器中的委托因并发数已达上限而未执行时抛出。
+ * 由 ThrottledJobRescheduler 识别：作业被解锁并延后重新执行，不消耗 Camunda 的重试次数。
+ */
+public class DelegateThrottledException extends RuntimeException {
+    public DelegateThrottledException(String message) {
+        super(message);
+    }
+}
@@ -66,6 +66,17 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * 【新增】处理限流异常 (登录失败次数过多、认证线程池已满)
+     * 返回 HTTP 429 Too Many Requests
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponse> handleTooManyRequestsException(TooManyRequestsException ex, HttpServletRequest request) {
+        log.warn("请求被限流: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), request.getRequestURI());
+        return new ResponseEntity<>(errorResponse, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
     /**
      * 处理认证失败 - 用户名或密码错误
      * 返回 HTTP 401 Unauthorized
@@ -0,0 +1,12 @@
+package club.ppmc.workflow.exception;
+
+/**
+ * @author cc
+ * @description 【新增】请求被限流时抛出的业务异常 (例如登录失败次数过多、认证线程池已满)。
+ * 由全局异常处理器映射为 HTTP 429 Too Many Requests。
+ */
+public class TooManyRequestsException extends RuntimeException {
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
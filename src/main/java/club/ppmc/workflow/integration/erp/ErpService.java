@@ -24,7 +24,8 @@ public interface ErpService {
     /**
      * 通知ERP进行库存扣减
      * @param request 包含SKU和数量的请求对象
+     * @param idempotencyKey 【新增】幂等键，同一次扣减重试时保持不变，由ERP据此去重
      */
-    void deductInventory(InventoryDeductionRequest request);
+    void deductInventory(InventoryDeductionRequest request, String idempotencyKey);
 
 }
\ No newline at end of file
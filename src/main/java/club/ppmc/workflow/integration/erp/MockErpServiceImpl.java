@@ -17,6 +17,7 @@ import java.util.List;
  * 这使得前端和后端开发人员可以在没有真实ERP环境的情况下进行联调和功能验证。
  */
 @Service
+@Profile("!prod") // 【修复】prod 环境由 RealErpServiceImpl 提供实现，避免存在两个 ErpService Bean
 @Slf4j
 public class MockErpServiceImpl implements ErpService {
 
@@ -32,9 +33,9 @@ public class MockErpServiceImpl implements ErpService {
     }
 
     @Override
-    public void deductInventory(InventoryDeductionRequest request) {
+    public void deductInventory(InventoryDeductionRequest request, String idempotencyKey) {
         log.info(">>> [MOCK] 调用 ErpService.deductInventory(), 打印请求信息。");
-        log.info(">>> [MOCK] 收到库存扣减请求: SKU = {}, 数量 = {}", request.getSku(), request.getQuantity());
+        log.info(">>> [MOCK] 收到库存扣减请求: SKU = {}, 数量 = {}, 幂等键 = {}", request.getSku(), request.getQuantity(), idempotencyKey);
         // 在这里不执行任何操作，仅打印日志
     }
 }
\ No newline at end of file
@@ -2,10 +2,14 @@ package club.ppmc.workflow.integration.erp;
 
 import club.ppmc.workflow.integration.erp.dto.InventoryDeductionRequest;
 import club.ppmc.workflow.integration.erp.dto.SupplierDto;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -29,8 +33,23 @@ public class RealErpServiceImpl implements ErpService {
     @Value("${erp.api.base-url}")
     private String erpApiBaseUrl;
 
+    // 【新增】调用ERP的超时时间，避免发件箱发送线程被无响应的ERP长期占用
+    @Value("${erp.api.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${erp.api.read-timeout-ms:30000}")
+    private int readTimeoutMs;
+
     private final RestTemplate restTemplate = new RestTemplate(); // 在实际项目中, RestTemplate 应作为Bean注入
 
+    @PostConstruct
+    void configureTimeouts() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        restTemplate.setRequestFactory(requestFactory);
+    }
+
     @Override
     public List<SupplierDto> getSuppliers() {
         String url = erpApiBaseUrl + "/suppliers";
@@ -47,12 +66,15 @@ public class RealErpServiceImpl implements ErpService {
     }
 
     @Override
-    public void deductInventory(InventoryDeductionRequest request) {
+    public void deductInventory(InventoryDeductionRequest request, String idempotencyKey) {
         String url = erpApiBaseUrl + "/inventory/deduct";
         log.info(">>> [REAL] 调用真实ERP接口扣减库存: POST {}", url);
         try {
             // 这里是真实调用的示例
-            restTemplate.postForEntity(url, request, Void.class);
+            // 【新增】通过 Idempotency-Key 请求头传递幂等键，重试时ERP不会重复扣减
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Idempotency-Key", idempotencyKey);
+            restTemplate.postForEntity(url, new HttpEntity<>(request, headers), Void.class);
             log.info(">>> [REAL] 库存扣减请求已成功发送至ERP: SKU = {}, 数量 = {}", request.getSku(), request.getQuantity());
         } catch (Exception e) {
             log.error("调用真实ERP库存扣减接口失败", e);
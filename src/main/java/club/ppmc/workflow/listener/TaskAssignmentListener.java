@@ -9,9 +9,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.camunda.bpm.engine.delegate.DelegateTask;
 import org.camunda.bpm.engine.delegate.TaskListener;
+import org.camunda.bpm.engine.task.IdentityLink;
+import org.camunda.bpm.engine.task.IdentityLinkType;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Component("taskAssignmentListener") // 为 Bean 命名，以便在 BPMN 中通过 Delegate Expression 使用
 @RequiredArgsConstructor
@@ -29,9 +35,26 @@ public class TaskAssignmentListener implements TaskListener {
             return;
         }
 
+        // --- 【新增】没有办理人的任务通知全部候选用户和候选用户组成员 (与待办列表的可见范围一致) ---
         String assigneeId = delegateTask.getAssignee();
-        if (assigneeId == null || assigneeId.isEmpty()) {
-            log.warn("任务 {} 没有分配办理人，无法发送通知。", delegateTask.getId());
+        Set<String> candidateUsers = new HashSet<>();
+        Set<String> candidateGroups = new HashSet<>();
+        if (StringUtils.hasText(assigneeId)) {
+            candidateUsers.add(assigneeId);
+        } else {
+            for (IdentityLink link : delegateTask.getCandidates()) {
+                if (!IdentityLinkType.CANDIDATE.equals(link.getType())) {
+                    continue;
+                }
+                if (link.getUserId() != null) {
+                    candidateUsers.add(link.getUserId());
+                } else if (link.getGroupId() != null) {
+                    candidateGroups.add(link.getGroupId());
+                }
+            }
+        }
+        if (candidateUsers.isEmpty() && candidateGroups.isEmpty()) {
+            log.warn("任务 {} 没有办理人和候选人，无法发送通知。", delegateTask.getId());
             return;
         }
 
@@ -50,22 +73,32 @@ public class TaskAssignmentListener implements TaskListener {
                     .orElse("未知");
 
             // --- 【核心修改】同时发送邮件和应用内通知 ---
-            try {
-                // 1. 发送邮件通知
-                // 在真实项目中，您应该从用户实体中获取邮箱。这里为了演示，我们假设用户ID就是邮箱前缀。
-                String toEmail = assigneeId + "@example.com";
-                notificationService.sendNewTaskNotification(toEmail, taskName, formName, submitterName);
-
-                // 2. 创建应用内通知
-                String title = "您有新的待办任务";
-                String content = String.format("来自 %s 的 %s 申请需要您处理。", submitterName, formName);
-                String link = "/tasks/" + delegateTask.getId(); // 指向任务详情页
-                notificationService.createInAppNotification(assigneeId, title, content, "task", link);
-
-            } catch (Exception e) {
-                log.error("为任务 {} 发送通知失败: ", delegateTask.getId(), e);
+            // 【修改】通知只写入发件箱，与任务创建在同一个引擎事务中：写入失败说明数据库异常，
+            // 异常直接抛出使整个事务回滚，不能在此捕获 (参与事务的方法抛出异常后事务已被标记为只能回滚)。
+            // 邮件和应用内通知的投递失败由 NotificationDispatcher 在事务提交后重试，不影响审批。
+            // 【新增】一次查询解析全部接收人 (仅正常状态的用户)，空集合用占位值代替以保证 IN 条件合法
+            List<UserRepository.NotificationRecipient> recipients = userRepository.findActiveNotificationRecipients(
+                    candidateUsers.isEmpty() ? Set.of("") : candidateUsers,
+                    candidateGroups.isEmpty() ? Set.of("") : candidateGroups);
+            if (recipients.isEmpty()) {
+                log.warn("任务 {} 的候选人中没有可通知的正常用户。", delegateTask.getId());
+                return;
             }
 
+            // 1. 发送邮件通知 (同一邮箱只发送一次)
+            // 优先使用用户实体中的邮箱；未填写邮箱时沿用 "用户ID@example.com" 的演示约定。
+            List<String> toEmails = recipients.stream()
+                    .map(r -> StringUtils.hasText(r.getEmail()) ? r.getEmail() : r.getId() + "@example.com")
+                    .toList();
+            notificationService.sendNewTaskNotifications(toEmails, taskName, formName, submitterName);
+
+            // 2. 创建应用内通知
+            String title = "您有新的待办任务";
+            String content = String.format("来自 %s 的 %s 申请需要您处理。", submitterName, formName);
+            String link = "/tasks/" + delegateTask.getId(); // 指向任务详情页
+            notificationService.createInAppNotifications(
+                    recipients.stream().map(UserRepository.NotificationRecipient::getId).toList(),
+                    title, content, "task", link);
         } else {
             log.error("无法找到流程实例 {} 对应的本地工作流实例，通知发送失败。", processInstanceId);
         }
@@ -0,0 +1,47 @@
+package club.ppmc.workflow.repository;
+
+import club.ppmc.workflow.domain.ErpOutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * @author cc
+ * @description 【新增】ErpOutboxMessage 实体的 JPA Repository 接口
+ */
+@Repository
+public interface ErpOutboxMessageRepository extends JpaRepository<ErpOutboxMessage, Long> {
+
+    /**
+     * 查询已到重试时间的待发送记录ID，按ID升序
+     */
+    @Query("SELECT m.id FROM ErpOutboxMessage m WHERE m.status = club.ppmc.workflow.domain.ErpOutboxMessage.Status.PENDING " +
+            "AND m.nextAttemptAt <= :now ORDER BY m.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * 条件更新认领一条待发送记录，返回 0 表示已被其他线程认领
+     */
+    @Modifying
+    @Query("UPDATE ErpOutboxMessage m SET m.status = club.ppmc.workflow.domain.ErpOutboxMessage.Status.SENDING, " +
+            "m.attempts = m.attempts + 1, m.claimedAt = :now " +
+            "WHERE m.id = :id AND m.status = club.ppmc.workflow.domain.ErpOutboxMessage.Status.PENDING")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * 把认领时间早于 cutoff 的 SENDING 记录恢复为待发送 (发送线程在调用 ERP 时中断，例如应用重启)
+     */
+    @Modifying
+    @Query("UPDATE ErpOutboxMessage m SET m.status = club.ppmc.workflow.domain.ErpOutboxMessage.Status.PENDING, " +
+            "m.nextAttemptAt = :now " +
+            "WHERE m.status = club.ppmc.workflow.domain.ErpOutboxMessage.Status.SENDING AND m.claimedAt < :cutoff")
+    int releaseStaleClaims(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+
+    long countByStatus(ErpOutboxMessage.Status status);
+}
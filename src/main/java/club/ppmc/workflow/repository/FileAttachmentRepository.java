@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -21,6 +22,13 @@ public interface FileAttachmentRepository extends JpaRepository<FileAttachment,
      */
     List<FileAttachment> findByFormSubmissionId(Long submissionId);
 
+    /**
+     * 【新增】批量查找多个表单提交的附件 (用于列表页面)
+     * @param submissionIds 表单提交ID集合
+     * @return 附件列表
+     */
+    List<FileAttachment> findByFormSubmissionIdIn(Collection<Long> submissionIds);
+
     // --- 【数据不一致修复】新增查询方法，用于定时清理任务 ---
     /**
      * 查找在指定时间之前创建的、处于特定状态的所有附件记录。
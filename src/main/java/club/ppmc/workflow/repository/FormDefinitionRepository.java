@@ -3,12 +3,32 @@ package club.ppmc.workflow.repository;
 import club.ppmc.workflow.domain.FormDefinition;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @author cc
  * @description FormDefinition 实体的 JPA Repository 接口
  */
 @Repository
 public interface FormDefinitionRepository extends JpaRepository<FormDefinition, Long>, JpaSpecificationExecutor<FormDefinition> {
+
+    /**
+     * 【新增】表单ID和名称的投影
+     */
+    interface FormName {
+        Long getId();
+
+        String getName();
+    }
+
+    /**
+     * 【新增】批量查询表单名称 (用于列表页面，不加载 schemaJson)
+     */
+    @Query("SELECT f.id AS id, f.name AS name FROM FormDefinition f WHERE f.id IN :ids")
+    List<FormName> findNamesByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -1,11 +1,20 @@
 package club.ppmc.workflow.repository;
 
 import club.ppmc.workflow.domain.FormSubmission;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * @author cc
@@ -21,6 +30,14 @@ public interface FormSubmissionRepository extends JpaRepository<FormSubmission,
      */
     List<FormSubmission> findByFormDefinitionId(Long formDefinitionId);
 
+    /**
+     * 【新增】分页查询时一并加载关联的流程实例。
+     * workflowInstance 是一对一关系的非拥有方，无法延迟加载，否则每一行都会单独查询一次流程实例。
+     */
+    @Override
+    @EntityGraph(attributePaths = "workflowInstance")
+    Page<FormSubmission> findAll(Specification<FormSubmission> spec, Pageable pageable);
+
     // 【核心修改】原 findBySubmitterIdOrderByCreatedAtDesc 方法将被更灵活的 Specification 查询替代，故移除。
 
     // --- 【核心新增】 ---
@@ -36,4 +53,42 @@ public interface FormSubmissionRepository extends JpaRepository<FormSubmission,
      * @param formDefinitionId 表单定义ID
      */
     void deleteByFormDefinitionId(Long formDefinitionId);
-}
\ No newline at end of file
+
+    /**
+     * 【新增】按提交人和幂等键查找已存在的提交记录
+     */
+    Optional<FormSubmission> findBySubmitterIdAndIdempotencyKey(String submitterId, String idempotencyKey);
+
+    /**
+     * 【新增】查找指定状态的提交记录ID (按ID升序，用于补偿扫描等待启动的异步提交)
+     */
+    @Query("SELECT s.id FROM FormSubmission s WHERE s.status = :status ORDER BY s.id")
+    List<Long> findIdsByStatus(@Param("status") FormSubmission.SubmissionStatus status, Pageable pageable);
+
+    /**
+     * 【新增】查找指定状态、且不属于正在执行的导入任务的提交记录ID (导入任务自行启动其申请，补偿扫描跳过)
+     */
+    @Query("SELECT s.id FROM FormSubmission s WHERE s.status = :status " +
+            "AND (s.importJobId IS NULL OR s.importJobId NOT IN :excludedImportJobIds) ORDER BY s.id")
+    List<Long> findIdsByStatusExcludingImportJobs(@Param("status") FormSubmission.SubmissionStatus status,
+                                                  @Param("excludedImportJobIds") Collection<String> excludedImportJobIds,
+                                                  Pageable pageable);
+
+    /**
+     * 【新增】按ID游标分页查找导入任务中指定状态的提交记录ID
+     */
+    @Query("SELECT s.id FROM FormSubmission s WHERE s.importJobId = :importJobId AND s.status = :status " +
+            "AND s.id > :afterId ORDER BY s.id")
+    List<Long> findIdsByImportJob(@Param("importJobId") String importJobId,
+                                  @Param("status") FormSubmission.SubmissionStatus status,
+                                  @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 【新增】条件更新状态，只有当前状态与期望一致时才更新 (用于多个工作线程之间认领异步提交)
+     * @return 更新的行数，0 表示已被其他线程处理
+     */
+    @Modifying
+    @Query("UPDATE FormSubmission s SET s.status = :newStatus WHERE s.id = :id AND s.status = :expectedStatus")
+    int compareAndSetStatus(@Param("id") Long id, @Param("expectedStatus") FormSubmission.SubmissionStatus expectedStatus,
+                            @Param("newStatus") FormSubmission.SubmissionStatus newStatus);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -33,6 +34,14 @@ public interface MenuRepository extends JpaRepository<Menu, Long> {
     @Query("SELECT DISTINCT m FROM Menu m JOIN m.roles r WHERE r IN :roles AND m.visible = true ORDER BY m.orderNum ASC")
     List<Menu> findVisibleMenusByRoles(@Param("roles") Set<Role> roles);
 
+    /**
+     * 【新增】按角色名查询可访问的所有可见菜单，并按排序号升序
+     * @param roleNames 角色名集合
+     * @return 菜单列表
+     */
+    @Query("SELECT DISTINCT m FROM Menu m JOIN m.roles r WHERE r.name IN :roleNames AND m.visible = true ORDER BY m.orderNum ASC")
+    List<Menu> findVisibleMenusByRoleNames(@Param("roleNames") Collection<String> roleNames);
+
     /**
      * 检查是否存在子菜单
      * @param parentId 父菜单ID
@@ -0,0 +1,34 @@
+package club.ppmc.workflow.repository;
+
+import club.ppmc.workflow.domain.NotificationOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author cc
+ * @description 【新增】NotificationOutboxEvent 实体的 JPA Repository 接口
+ */
+@Repository
+public interface NotificationOutboxEventRepository extends JpaRepository<NotificationOutboxEvent, Long> {
+
+    /**
+     * 查询已到投递时间的通知，按ID升序
+     */
+    @Query("SELECT e FROM NotificationOutboxEvent e WHERE e.status = club.ppmc.workflow.domain.NotificationOutboxEvent.Status.PENDING " +
+            "AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<NotificationOutboxEvent> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(NotificationOutboxEvent.Status status);
+
+    @Modifying
+    @Query("DELETE FROM NotificationOutboxEvent e WHERE e.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -46,9 +46,9 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
      * 将指定的一批通知标记为已读
      * @param ids 通知ID列表
      * @param userId 用户ID (用于权限校验)
-     * @return 更新的记录数
+     * @return 更新的记录数 (【修改】只统计原本未读的通知，用于扣减未读计数)
      */
     @Modifying
-    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id IN :ids AND n.user.id = :userId")
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id IN :ids AND n.user.id = :userId AND n.isRead = false")
     int markAsReadByIds(List<Long> ids, String userId);
 }
\ No newline at end of file
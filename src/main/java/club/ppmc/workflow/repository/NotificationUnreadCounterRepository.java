@@ -0,0 +1,36 @@
+package club.ppmc.workflow.repository;
+
+import club.ppmc.workflow.domain.NotificationUnreadCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * @author cc
+ * @description 【新增】NotificationUnreadCounter 实体的 JPA Repository 接口
+ */
+@Repository
+public interface NotificationUnreadCounterRepository extends JpaRepository<NotificationUnreadCounter, String> {
+
+    /**
+     * 减少指定用户的未读数，不低于 0
+     * @param userId 用户ID
+     * @param delta  减少的数量
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE NotificationUnreadCounter c SET c.unreadCount = CASE WHEN c.unreadCount > :delta "
+            + "THEN c.unreadCount - :delta ELSE 0 END WHERE c.userId = :userId")
+    int decrement(@Param("userId") String userId, @Param("delta") long delta);
+
+    /**
+     * 将指定用户的未读数清零
+     * @param userId 用户ID
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE NotificationUnreadCounter c SET c.unreadCount = 0 WHERE c.userId = :userId")
+    int reset(@Param("userId") String userId);
+}
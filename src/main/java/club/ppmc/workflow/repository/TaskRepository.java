@@ -1,18 +1,46 @@
 package club.ppmc.workflow.repository;
 
 import club.ppmc.workflow.domain.Task;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * @author cc
- * @description Task 实体的 JPA Repository 接口 (在第三阶段主要用于历史记录)
+ * @description 【核心修改】任务收件箱投影的 JPA Repository 接口
  */
 @Repository
 public interface TaskRepository extends JpaRepository<Task, Long> {
 
+    /**
+     * 用户可见的待办任务条件：直接分配给该用户，或尚未认领且该用户 (或其所在用户组) 是候选人。
+     * 与 Camunda TaskQuery 的 taskAssignee / taskCandidateUser / taskCandidateGroupIn 语义一致。
+     */
+    String INBOX_CONDITION = "t.status = club.ppmc.workflow.domain.Task.Status.PENDING AND t.suspended = false AND ("
+            + " t.assigneeId = :userId OR (t.assigneeId IS NULL AND ("
+            + "   :userId MEMBER OF t.candidateUsers"
+            + "   OR EXISTS (SELECT 1 FROM Task t2 JOIN t2.candidateGroups g WHERE t2 = t AND g IN :groups))))";
+
+    /**
+     * 【新增】搜索条件：任务在倒排索引中包含全部关键字 token ((token, task_id) 为主键，计数即去重计数)
+     */
+    String TOKEN_CONDITION = "t.id IN (SELECT s.taskId FROM TaskSearchToken s WHERE s.token IN :tokens"
+            + " GROUP BY s.taskId HAVING COUNT(s.token) = :tokenCount)";
+
+    /**
+     * 【新增】用户已完成的任务
+     */
+    String COMPLETED_CONDITION = "t.assigneeId = :userId AND t.status = club.ppmc.workflow.domain.Task.Status.COMPLETED";
+
     /**
      * 根据办理人ID和任务状态查找任务列表
      * @param assigneeId 办理人ID
@@ -20,4 +48,117 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
      * @return 任务列表
      */
     List<Task> findByAssigneeIdAndStatus(String assigneeId, Task.Status status);
-}
\ No newline at end of file
+
+    Optional<Task> findByCamundaTaskId(String camundaTaskId);
+
+    List<Task> findByProcessInstanceIdAndStatus(String processInstanceId, Task.Status status);
+
+    /**
+     * 【新增】分页查询用户的待办任务 (按创建时间倒序)
+     * @param userId 用户ID
+     * @param groups 用户所在的用户组名称
+     * @param pageable 分页参数
+     * @return 待办任务分页
+     */
+    @Query(value = "SELECT t FROM Task t WHERE " + INBOX_CONDITION + " ORDER BY t.createdAt DESC, t.id DESC",
+            countQuery = "SELECT COUNT(t) FROM Task t WHERE " + INBOX_CONDITION)
+    Page<Task> findInbox(@Param("userId") String userId, @Param("groups") Collection<String> groups, Pageable pageable);
+
+    /**
+     * 【新增】按搜索 token 分页查询用户的待办任务，任务必须包含全部 token
+     * @param tokens 关键字分词后的 token
+     * @param tokenCount token 数量
+     */
+    @Query(value = "SELECT t FROM Task t WHERE " + INBOX_CONDITION + " AND " + TOKEN_CONDITION
+            + " ORDER BY t.createdAt DESC, t.id DESC",
+            countQuery = "SELECT COUNT(t) FROM Task t WHERE " + INBOX_CONDITION + " AND " + TOKEN_CONDITION)
+    Page<Task> searchInbox(@Param("userId") String userId, @Param("groups") Collection<String> groups,
+                           @Param("tokens") Collection<String> tokens, @Param("tokenCount") long tokenCount,
+                           Pageable pageable);
+
+    /**
+     * 【新增】分页查询用户已完成的任务 (按完成时间倒序)
+     */
+    @Query(value = "SELECT t FROM Task t WHERE " + COMPLETED_CONDITION + " ORDER BY t.completedAt DESC, t.id DESC",
+            countQuery = "SELECT COUNT(t) FROM Task t WHERE " + COMPLETED_CONDITION)
+    Page<Task> findCompleted(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * 【新增】按搜索 token 分页查询用户已完成的任务 (按完成时间倒序)
+     */
+    @Query(value = "SELECT t FROM Task t WHERE " + COMPLETED_CONDITION + " AND " + TOKEN_CONDITION
+            + " ORDER BY t.completedAt DESC, t.id DESC",
+            countQuery = "SELECT COUNT(t) FROM Task t WHERE " + COMPLETED_CONDITION + " AND " + TOKEN_CONDITION)
+    Page<Task> searchCompleted(@Param("userId") String userId, @Param("tokens") Collection<String> tokens,
+                               @Param("tokenCount") long tokenCount, Pageable pageable);
+
+    // --- 【新增】游标分页：取 (排序时间, id) 严格小于游标的记录，limit 由 Pageable 指定 ---
+
+    String INBOX_SEEK = " AND (t.createdAt < :afterTime OR (t.createdAt = :afterTime AND t.id < :afterId))"
+            + " ORDER BY t.createdAt DESC, t.id DESC";
+
+    String COMPLETED_SEEK = " AND (t.completedAt < :afterTime OR (t.completedAt = :afterTime AND t.id < :afterId))"
+            + " ORDER BY t.completedAt DESC, t.id DESC";
+
+    @Query("SELECT t FROM Task t WHERE " + INBOX_CONDITION + INBOX_SEEK)
+    List<Task> seekInbox(@Param("userId") String userId, @Param("groups") Collection<String> groups,
+                         @Param("afterTime") LocalDateTime afterTime, @Param("afterId") Long afterId, Pageable limit);
+
+    @Query("SELECT t FROM Task t WHERE " + INBOX_CONDITION + " AND " + TOKEN_CONDITION + INBOX_SEEK)
+    List<Task> seekInboxSearch(@Param("userId") String userId, @Param("groups") Collection<String> groups,
+                               @Param("tokens") Collection<String> tokens, @Param("tokenCount") long tokenCount,
+                               @Param("afterTime") LocalDateTime afterTime, @Param("afterId") Long afterId, Pageable limit);
+
+    @Query("SELECT t FROM Task t WHERE " + COMPLETED_CONDITION + COMPLETED_SEEK)
+    List<Task> seekCompleted(@Param("userId") String userId,
+                             @Param("afterTime") LocalDateTime afterTime, @Param("afterId") Long afterId, Pageable limit);
+
+    @Query("SELECT t FROM Task t WHERE " + COMPLETED_CONDITION + " AND " + TOKEN_CONDITION + COMPLETED_SEEK)
+    List<Task> seekCompletedSearch(@Param("userId") String userId,
+                                   @Param("tokens") Collection<String> tokens, @Param("tokenCount") long tokenCount,
+                                   @Param("afterTime") LocalDateTime afterTime, @Param("afterId") Long afterId, Pageable limit);
+
+    long countByAssigneeIdAndStatus(String assigneeId, Task.Status status);
+
+    /**
+     * 【新增】判断用户是否为申请单的参与者：申请人、当前待办的办理人或候选人、或曾经办理过该申请的任务。
+     * 申请人与各任务的办理人、候选人共同构成申请单的参与者索引 (task.submission_id 上有索引)，一次查询完成判断。
+     */
+    @Query("SELECT COUNT(s) > 0 FROM FormSubmission s WHERE s.id = :submissionId AND (s.submitterId = :userId"
+            + " OR EXISTS (SELECT 1 FROM Task t WHERE t.submissionId = s.id AND ((" + INBOX_CONDITION + ")"
+            + " OR (t.assigneeId = :userId AND t.status <> club.ppmc.workflow.domain.Task.Status.PENDING))))")
+    boolean isSubmissionParticipant(@Param("submissionId") Long submissionId, @Param("userId") String userId,
+                                    @Param("groups") Collection<String> groups);
+
+    /**
+     * 【新增】判断用户当前是否可以办理指定的待办任务
+     */
+    @Query("SELECT COUNT(t) > 0 FROM Task t WHERE t.camundaTaskId = :camundaTaskId AND " + INBOX_CONDITION)
+    boolean isInboxTask(@Param("camundaTaskId") String camundaTaskId, @Param("userId") String userId,
+                        @Param("groups") Collection<String> groups);
+
+    /**
+     * 【新增】从给定的任务中筛选出用户当前可以办理的任务 (批量办理时一次校验全部任务的权限)
+     */
+    @Query("SELECT t.camundaTaskId FROM Task t WHERE t.camundaTaskId IN :camundaTaskIds AND " + INBOX_CONDITION)
+    List<String> findInboxTaskIds(@Param("camundaTaskIds") Collection<String> camundaTaskIds, @Param("userId") String userId,
+                                  @Param("groups") Collection<String> groups);
+
+    @Modifying
+    @Query("UPDATE Task t SET t.suspended = :suspended WHERE t.processInstanceId = :processInstanceId")
+    int updateSuspendedByProcessInstanceId(@Param("processInstanceId") String processInstanceId,
+                                           @Param("suspended") boolean suspended);
+
+    // --- 重建投影时清空数据 (JPQL 批量删除不会级联到元素集合表) ---
+    @Modifying
+    @Query(value = "DELETE FROM task_candidate_group", nativeQuery = true)
+    void deleteAllCandidateGroups();
+
+    @Modifying
+    @Query(value = "DELETE FROM task_candidate_user", nativeQuery = true)
+    void deleteAllCandidateUsers();
+
+    @Modifying
+    @Query(value = "DELETE FROM task", nativeQuery = true)
+    void deleteAllTasks();
+}
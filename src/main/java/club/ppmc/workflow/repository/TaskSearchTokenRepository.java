@@ -0,0 +1,23 @@
+package club.ppmc.workflow.repository;
+
+import club.ppmc.workflow.domain.TaskSearchToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * @author cc
+ * @description 【新增】任务搜索索引的 JPA Repository 接口
+ */
+@Repository
+public interface TaskSearchTokenRepository extends JpaRepository<TaskSearchToken, TaskSearchToken.Key> {
+
+    List<TaskSearchToken> findByTaskId(Long taskId);
+
+    @Modifying
+    @Query(value = "DELETE FROM task_search_token", nativeQuery = true)
+    void deleteAllTokens();
+}
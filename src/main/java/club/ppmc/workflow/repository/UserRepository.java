@@ -3,11 +3,17 @@ package club.ppmc.workflow.repository;
 import club.ppmc.workflow.domain.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * @author cc
@@ -25,4 +31,103 @@ public interface UserRepository extends JpaRepository<User, String>, JpaSpecific
      * @return 用户分页对象
      */
     Page<User> findByIdContainingIgnoreCaseOrNameContainingIgnoreCaseOrderByNameAsc(String id, String name, Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * 【新增】一次性加载用户及其角色和用户组，用于构建认证快照 (UserPrincipal)
+     *
+     * @param id 用户ID
+     * @return 包含角色和用户组的用户实体
+     */
+    @EntityGraph(attributePaths = {"roles", "userGroups"})
+    Optional<User> findWithRolesAndGroupsById(String id);
+
+    /**
+     * 【新增】用户ID与安全纪元的投影
+     */
+    interface UserSecurityEpoch {
+        String getId();
+
+        long getSecurityEpoch();
+    }
+
+    /**
+     * 【新增】查询所有用户的安全纪元，用于刷新内存中的纪元表
+     *
+     * @return 用户ID与纪元列表
+     */
+    @Query("SELECT u.id AS id, u.securityEpoch AS securityEpoch FROM User u")
+    List<UserSecurityEpoch> findAllSecurityEpochs();
+
+    /**
+     * 【新增】查询指定用户的安全纪元
+     *
+     * @param ids 用户ID集合
+     * @return 用户ID与纪元列表
+     */
+    @Query("SELECT u.id AS id, u.securityEpoch AS securityEpoch FROM User u WHERE u.id IN :ids")
+    List<UserSecurityEpoch> findSecurityEpochsByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * 【新增】递增指定用户的安全纪元，使其已签发的 Token 失效
+     *
+     * @param ids 用户ID集合
+     * @return 受影响的行数
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.securityEpoch = u.securityEpoch + 1 WHERE u.id IN :ids")
+    int incrementSecurityEpoch(@Param("ids") Collection<String> ids);
+
+    /**
+     * 【新增】查询拥有指定角色的所有用户ID
+     *
+     * @param roleId 角色ID
+     * @return 用户ID列表
+     */
+    @Query("SELECT u.id FROM User u JOIN u.roles r WHERE r.id = :roleId")
+    List<String> findIdsByRoleId(@Param("roleId") Long roleId);
+
+    /**
+     * 【新增】查询属于指定用户组的所有用户ID
+     *
+     * @param groupId 用户组ID
+     * @return 用户ID列表
+     */
+    @Query("SELECT u.id FROM User u JOIN u.userGroups g WHERE g.id = :groupId")
+    List<String> findIdsByGroupId(@Param("groupId") Long groupId);
+
+    /**
+     * 【新增】通知接收人的投影
+     */
+    interface NotificationRecipient {
+        String getId();
+
+        String getEmail();
+    }
+
+    /**
+     * 【新增】一次查询解析任务的通知接收人：指定的候选用户，以及属于任一候选用户组的用户，仅限正常状态的用户
+     *
+     * @param userIds    候选用户ID集合 (不能为空集合，没有时传入不存在的占位值)
+     * @param groupNames 候选用户组名称集合 (同上)
+     * @return 去重后的接收人列表
+     */
+    @Query("SELECT DISTINCT u.id AS id, u.email AS email FROM User u LEFT JOIN u.userGroups g "
+            + "WHERE u.status = club.ppmc.workflow.domain.UserStatus.ACTIVE AND (u.id IN :userIds OR g.name IN :groupNames)")
+    List<NotificationRecipient> findActiveNotificationRecipients(@Param("userIds") Collection<String> userIds,
+                                                                 @Param("groupNames") Collection<String> groupNames);
+
+    /**
+     * 【新增】用户ID和姓名的投影
+     */
+    interface UserName {
+        String getId();
+
+        String getName();
+    }
+
+    /**
+     * 【新增】批量查询用户姓名 (用于列表页面，不加载角色和用户组)
+     */
+    @Query("SELECT u.id AS id, u.name AS name FROM User u WHERE u.id IN :ids")
+    List<UserName> findNamesByIdIn(@Param("ids") Collection<String> ids);
+}
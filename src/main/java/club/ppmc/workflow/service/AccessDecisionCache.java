@@ -0,0 +1,56 @@
+package club.ppmc.workflow.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * @author cc
+ * @description 【新增】请求级别的权限判定缓存。
+ * 同一个请求中多个 @PreAuthorize 表达式 (或表达式与业务代码) 重复判断同一权限时，只计算一次。
+ * 结果保存在当前请求的属性中，请求结束即失效；不在 Web 请求中 (例如异步线程) 时不缓存。
+ */
+@Component
+public class AccessDecisionCache {
+
+    private static final String ATTRIBUTE_NAME = AccessDecisionCache.class.getName() + ".decisions";
+
+    /**
+     * 获取缓存的判定结果，未缓存时计算并保存
+     *
+     * @param key      判定的唯一键，例如 "submission:12:user001"
+     * @param decision 实际的判定逻辑
+     * @return 判定结果
+     */
+    public boolean get(String key, Supplier<Boolean> decision) {
+        Map<String, Boolean> decisions = currentDecisions();
+        if (decisions == null) {
+            return decision.get();
+        }
+        Boolean cached = decisions.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        boolean result = decision.get();
+        decisions.put(key, result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Boolean> currentDecisions() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<String, Boolean> decisions = (Map<String, Boolean>) attributes.getAttribute(ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
+        if (decisions == null) {
+            decisions = new HashMap<>();
+            attributes.setAttribute(ATTRIBUTE_NAME, decisions, RequestAttributes.SCOPE_REQUEST);
+        }
+        return decisions;
+    }
+}
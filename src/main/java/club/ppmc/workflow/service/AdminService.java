@@ -6,16 +6,20 @@ import club.ppmc.workflow.dto.*;
 import club.ppmc.workflow.exception.ResourceInUseException;
 import club.ppmc.workflow.exception.ResourceNotFoundException;
 import club.ppmc.workflow.repository.*;
+import club.ppmc.workflow.utils.CursorCodec;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
 import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.ManagementService;
 import org.camunda.bpm.engine.RuntimeService;
 import org.camunda.bpm.engine.TaskService;
 import org.camunda.bpm.engine.history.HistoricProcessInstance;
 import org.camunda.bpm.engine.history.HistoricProcessInstanceQuery;
+import org.camunda.bpm.engine.history.NativeHistoricProcessInstanceQuery;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
 import org.camunda.bpm.engine.runtime.ActivityInstance;
 import org.camunda.bpm.engine.runtime.Incident;
 import org.camunda.bpm.engine.runtime.ProcessInstance;
@@ -52,6 +56,7 @@ public class AdminService {
     private final RoleRepository roleRepository;
     private final UserGroupRepository userGroupRepository;
     private final RuntimeService runtimeService;
+    private final ManagementService managementService;
     private final HistoryService historyService;
     private final TaskService taskService;
     private final PasswordEncoder passwordEncoder;
@@ -67,6 +72,11 @@ public class AdminService {
     // --- 【核心新增】注入相关 Repository ---
     private final WorkflowInstanceRepository workflowInstanceRepository;
     private final FormSubmissionRepository formSubmissionRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    // 【新增】角色变更时失效发起流程的元数据缓存 (流程变量包含财务角色)
+    private final ProcessStartMetadataCache processStartMetadataCache;
+    private final SecurityEpochRegistry securityEpochRegistry;
+    private final TaskProjectionService taskProjectionService;
 
 
     // --- 流程实例管理 ---
@@ -218,6 +228,112 @@ public class AdminService {
         return new PageImpl<>(dtos, pageable, total);
     }
 
+    /**
+     * 【新增】游标分页获取流程实例列表 (按开始时间倒序)。
+     * 使用原生 SQL 查询 ACT_HI_PROCINST，以 (START_TIME_, ID_) 作为游标定位下一页，
+     * 状态筛选在 SQL 中完成，不再依赖 offset 和每页重复的 count。
+     *
+     * @param state     实例状态 (RUNNING, COMPLETED, TERMINATED)，默认 RUNNING (含已挂起的实例)
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param size      每页条数 (最大 100)
+     * @param withTotal 是否在第一页计算总数
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ProcessInstanceDto> getProcessInstancesByCursor(String state, String processDefinitionKey, String businessKey,
+                                                                      String startUser, String cursor, int size, boolean withTotal) {
+        int limit = Math.max(1, Math.min(size, 100));
+        boolean running = !"COMPLETED".equalsIgnoreCase(state) && !"TERMINATED".equalsIgnoreCase(state);
+
+        StringBuilder where = new StringBuilder(" WHERE ");
+        if ("COMPLETED".equalsIgnoreCase(state)) {
+            where.append("RES.STATE_ = 'COMPLETED'");
+        } else if ("TERMINATED".equalsIgnoreCase(state)) {
+            where.append("RES.STATE_ IN ('EXTERNALLY_TERMINATED', 'INTERNALLY_TERMINATED')");
+        } else {
+            // 与 offset 分页的运行中列表一致，包含已挂起的实例
+            where.append("RES.STATE_ IN ('ACTIVE', 'SUSPENDED')");
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        if (StringUtils.hasText(processDefinitionKey)) {
+            where.append(" AND RES.PROC_DEF_KEY_ = #{processDefinitionKey}");
+            parameters.put("processDefinitionKey", processDefinitionKey);
+        }
+        if (StringUtils.hasText(businessKey)) {
+            where.append(" AND RES.BUSINESS_KEY_ = #{businessKey}");
+            parameters.put("businessKey", businessKey);
+        }
+        if (StringUtils.hasText(startUser)) {
+            where.append(" AND RES.START_USER_ID_ = #{startUser}");
+            parameters.put("startUser", startUser);
+        }
+
+        String table = managementService.getTableName(HistoricProcessInstance.class);
+        String definitionTable = managementService.getTableName(ProcessDefinition.class);
+        // 与 Camunda 内置查询一致，关联流程定义表以填充定义名称和版本
+        StringBuilder sql = new StringBuilder("SELECT RES.*, DEF.NAME_, DEF.VERSION_ FROM ").append(table).append(" RES")
+                .append(" LEFT JOIN ").append(definitionTable).append(" DEF ON RES.PROC_DEF_ID_ = DEF.ID_").append(where);
+        CursorCodec.Cursor decoded = CursorCodec.decode(cursor);
+        Map<String, Object> pageParameters = new HashMap<>(parameters);
+        if (decoded != null) {
+            try {
+                pageParameters.put("afterTime", new Date(Long.parseLong(decoded.sortValue())));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的分页游标", e);
+            }
+            pageParameters.put("afterId", decoded.id());
+            sql.append(" AND (RES.START_TIME_ < #{afterTime} OR (RES.START_TIME_ = #{afterTime} AND RES.ID_ < #{afterId}))");
+        }
+        sql.append(" ORDER BY RES.START_TIME_ DESC, RES.ID_ DESC");
+
+        NativeHistoricProcessInstanceQuery pageQuery = historyService.createNativeHistoricProcessInstanceQuery().sql(sql.toString());
+        pageParameters.forEach(pageQuery::parameter);
+        List<HistoricProcessInstance> rows = pageQuery.listPage(0, limit + 1);
+
+        boolean hasMore = rows.size() > limit;
+        List<HistoricProcessInstance> instances = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            HistoricProcessInstance last = instances.get(instances.size() - 1);
+            nextCursor = CursorCodec.encode(String.valueOf(last.getStartTime().getTime()), last.getId());
+        }
+
+        Long total = null;
+        if (withTotal && decoded == null) {
+            NativeHistoricProcessInstanceQuery countQuery = historyService.createNativeHistoricProcessInstanceQuery()
+                    .sql("SELECT COUNT(*) FROM " + table + " RES" + where);
+            parameters.forEach(countQuery::parameter);
+            total = countQuery.count();
+        }
+        return new CursorPage<>(toProcessInstanceDtos(instances, running), nextCursor, hasMore, total);
+    }
+
+    private List<ProcessInstanceDto> toProcessInstanceDtos(List<HistoricProcessInstance> instances, boolean running) {
+        Set<String> userIds = instances.stream().map(HistoricProcessInstance::getStartUserId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<String, User> userMap = userRepository.findAllById(userIds).stream().collect(Collectors.toMap(User::getId, Function.identity()));
+
+        return instances.stream().map(instance -> {
+            ProcessInstanceDto.ProcessInstanceDtoBuilder builder = ProcessInstanceDto.builder()
+                    .processInstanceId(instance.getId())
+                    .businessKey(instance.getBusinessKey())
+                    .processDefinitionName(instance.getProcessDefinitionName())
+                    .version(Objects.requireNonNullElse(instance.getProcessDefinitionVersion(), 0))
+                    .startTime(instance.getStartTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime())
+                    .startUserId(instance.getStartUserId())
+                    .startUserName(Optional.ofNullable(instance.getStartUserId()).map(userMap::get).map(User::getName).orElse("未知"));
+            if (running) {
+                // 【C7 兼容】逐个查询事件，页面大小有上限
+                builder.currentActivityName(getActivityName(instance.getId()))
+                        .suspended(HistoricProcessInstance.STATE_SUSPENDED.equals(instance.getState()))
+                        .hasIncident(runtimeService.createIncidentQuery().processInstanceId(instance.getId()).count() > 0)
+                        .state("RUNNING");
+            } else {
+                builder.durationInMillis(instance.getDurationInMillis())
+                        .state(instance.getState());
+            }
+            return builder.build();
+        }).collect(Collectors.toList());
+    }
+
     private String getActivityName(String processInstanceId) {
         ActivityInstance activityInstance = runtimeService.getActivityInstance(processInstanceId);
         if (activityInstance != null) {
@@ -254,11 +370,22 @@ public class AdminService {
     @LogOperation(module = "实例管理", action = "挂起流程实例", targetIdExpression = "#processInstanceId")
     public void suspendProcessInstance(String processInstanceId) {
         runtimeService.suspendProcessInstanceById(processInstanceId);
+        taskProjectionService.setSuspended(processInstanceId, true);
     }
 
     @LogOperation(module = "实例管理", action = "激活流程实例", targetIdExpression = "#processInstanceId")
     public void activateProcessInstance(String processInstanceId) {
         runtimeService.activateProcessInstanceById(processInstanceId);
+        taskProjectionService.setSuspended(processInstanceId, false);
+    }
+
+    /**
+     * 【新增】从 Camunda 数据全量重建任务收件箱投影
+     * @return 重建的任务数
+     */
+    @LogOperation(module = "实例管理", action = "重建任务投影")
+    public int rebuildTaskProjection() {
+        return taskProjectionService.rebuild();
     }
 
     @LogOperation(module = "实例管理", action = "转办任务", targetIdExpression = "#taskId")
@@ -387,6 +514,7 @@ public class AdminService {
     public UserDto updateUser(String id, UserDto userDto) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("未找到用户: " + id));
+        String securityStateBefore = describeSecurityState(user);
         user.setName(userDto.getName());
         user.setEmail(userDto.getEmail());
         user.setPhoneNumber(userDto.getPhoneNumber());
@@ -395,9 +523,25 @@ public class AdminService {
         }
         updateUserRelations(user, userDto);
         User updatedUser = userRepository.save(user);
+        userPrincipalCache.invalidate(id);
+        // 【新增】姓名、角色、用户组、部门或状态发生变化时，使该用户已签发的 Token 失效
+        if (!securityStateBefore.equals(describeSecurityState(updatedUser))) {
+            securityEpochRegistry.bump(List.of(id));
+        }
         return toUserDto(updatedUser);
     }
 
+    /**
+     * 【新增】描述用户中会被写入 Token 的状态 (姓名和授权信息)，用于判断是否需要递增安全纪元
+     */
+    private String describeSecurityState(User user) {
+        return user.getName()
+                + "|" + new TreeSet<>(user.getRoles().stream().map(Role::getName).toList())
+                + "|" + new TreeSet<>(user.getUserGroups().stream().map(UserGroup::getName).toList())
+                + "|" + (user.getDepartment() != null ? user.getDepartment().getId() : null)
+                + "|" + user.getStatus();
+    }
+
     private void updateUserRelations(User user, UserDto userDto) {
         if (userDto.getDepartmentId() != null) {
             Department department = departmentRepository.findById(userDto.getDepartmentId())
@@ -434,6 +578,8 @@ public class AdminService {
                 .orElseThrow(() -> new ResourceNotFoundException("未找到用户: " + id));
         user.setStatus(UserStatus.INACTIVE);
         userRepository.save(user);
+        userPrincipalCache.invalidate(id);
+        securityEpochRegistry.bump(List.of(id));
     }
 
     @LogOperation(module = "用户管理", action = "启用用户", targetIdExpression = "#id")
@@ -442,6 +588,8 @@ public class AdminService {
                 .orElseThrow(() -> new ResourceNotFoundException("未找到用户: " + id));
         user.setStatus(UserStatus.ACTIVE);
         userRepository.save(user);
+        userPrincipalCache.invalidate(id);
+        securityEpochRegistry.bump(List.of(id));
     }
 
     // --- 角色管理 ---
@@ -453,7 +601,9 @@ public class AdminService {
         Role role = new Role();
         role.setName(roleDto.getName());
         role.setDescription(roleDto.getDescription());
-        return toRoleDto(roleRepository.save(role));
+        Role savedRole = roleRepository.save(role);
+        processStartMetadataCache.invalidateAll();
+        return toRoleDto(savedRole);
     }
 
     /**
@@ -486,6 +636,10 @@ public class AdminService {
                 throw new ResourceInUseException("无法修改角色名称 '" + oldName + "'，因为它正被 " + workflowUsageCount + " 个工作流模板使用。请先在流程设计器中修改。");
             }
             role.setName(newName);
+            // 角色名变更会影响所有成员的权限字符串，以及发起流程时的角色变量
+            userPrincipalCache.invalidateAll();
+            processStartMetadataCache.invalidateAll();
+            securityEpochRegistry.bump(userRepository.findIdsByRoleId(id));
         }
         role.setDescription(roleDto.getDescription());
         return toRoleDto(roleRepository.save(role));
@@ -508,6 +662,7 @@ public class AdminService {
             throw new ResourceInUseException("无法删除角色 '" + role.getName() + "'，因为它正被 " + workflowUsageCount + " 个工作流模板使用。");
         }
         roleRepository.delete(role);
+        processStartMetadataCache.invalidateAll();
     }
 
     // --- 用户组管理 ---
@@ -552,6 +707,9 @@ public class AdminService {
                 throw new ResourceInUseException("无法修改用户组名称 '" + oldName + "'，因为它正被 " + workflowUsageCount + " 个工作流模板使用。请先在流程设计器中修改。");
             }
             group.setName(newName);
+            // 用户组名变更会影响所有成员快照中的组名
+            userPrincipalCache.invalidateAll();
+            securityEpochRegistry.bump(userRepository.findIdsByGroupId(id));
         }
         group.setDescription(groupDto.getDescription());
         return toUserGroupDto(userGroupRepository.save(group));
@@ -2,7 +2,6 @@ package club.ppmc.workflow.service;
 
 import club.ppmc.workflow.domain.FormSubmission;
 import club.ppmc.workflow.domain.WorkflowInstance;
-import club.ppmc.workflow.integration.erp.ErpService;
 import club.ppmc.workflow.integration.erp.dto.InventoryDeductionRequest;
 import club.ppmc.workflow.repository.FormSubmissionRepository;
 import club.ppmc.workflow.repository.WorkflowInstanceRepository;
@@ -14,6 +13,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Set;
 
 /**
  * 一个 Spring Bean 实现 Camunda 的 JavaDelegate 接口。
@@ -23,13 +23,22 @@ import java.time.LocalDateTime;
 @Component("archiveProcessDelegate") // 为这个 Bean 命名，以便在 BPMN 中引用
 @RequiredArgsConstructor
 @Slf4j
-public class ArchiveProcessDelegate implements JavaDelegate {
+public class ArchiveProcessDelegate implements JavaDelegate, ProcessVariableConsumer {
 
     private final WorkflowInstanceRepository instanceRepository;
-    private final ErpService erpService;
+    // 【修改】ERP 调用改为写入发件箱，由 ErpOutboxService 在引擎事务提交后异步发送
+    private final ErpOutboxService erpOutboxService;
     // --- 【核心新增】注入 FormSubmissionRepository ---
     private final FormSubmissionRepository submissionRepository;
 
+    /**
+     * 【新增】声明 ERP 扣减库存需要的表单字段，按引用映射流程变量时这些字段会被写入流程变量
+     */
+    @Override
+    public Set<String> getRequiredVariables() {
+        return Set.of("materialSku", "quantity");
+    }
+
     @Override
     @Transactional
     public void execute(DelegateExecution execution) throws Exception {
@@ -63,8 +72,9 @@ public class ArchiveProcessDelegate implements JavaDelegate {
 
             if (skuFromProcess != null && quantityObj instanceof Number) {
                 int quantityToDeduct = ((Number) quantityObj).intValue();
-                log.info("准备调用ERP接口扣减库存: SKU = {}, 数量 = {}", skuFromProcess, quantityToDeduct);
-                erpService.deductInventory(new InventoryDeductionRequest(skuFromProcess, quantityToDeduct));
+                log.info("登记ERP库存扣减: SKU = {}, 数量 = {}", skuFromProcess, quantityToDeduct);
+                erpOutboxService.enqueueInventoryDeduction("inventory-deduction:" + processInstanceId, processInstanceId,
+                        new InventoryDeductionRequest(skuFromProcess, quantityToDeduct));
             } else {
                 log.warn("流程实例 {} 缺少 'materialSku' 或 'quantity' 变量，跳过ERP库存扣减。", processInstanceId);
             }
@@ -5,13 +5,14 @@ import club.ppmc.workflow.domain.User;
 import club.ppmc.workflow.dto.AuthRequest;
 import club.ppmc.workflow.dto.AuthResponse;
 import club.ppmc.workflow.dto.UserDto;
+import club.ppmc.workflow.exception.TooManyRequestsException;
 import club.ppmc.workflow.repository.UserRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.CredentialsExpiredException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -24,7 +25,7 @@ public class AuthService {
 
     private final UserRepository userRepository;
     private final JwtService jwtService;
-    private final AuthenticationManager authenticationManager;
+    private final CredentialVerificationService credentialVerificationService;
     private final LoggingService loggingService; // 【新增】注入 LoggingService
 
     /**
@@ -33,15 +34,28 @@ public class AuthService {
      * @return 包含 Token 和用户信息的响应
      */
     public AuthResponse authenticate(AuthRequest request) {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        HttpServletRequest httpRequest = attributes != null ? attributes.getRequest() : null;
+        String ipAddress = httpRequest != null ? getIpAddress(httpRequest) : null;
+
         // --- 【核心修改】将认证逻辑包裹在 try-catch 中 ---
         try {
-            // 使用 Spring Security 的 AuthenticationManager 进行认证
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            request.getUserId(),
-                            request.getPassword()
-                    )
+            UsernamePasswordAuthenticationToken authRequest = new UsernamePasswordAuthenticationToken(
+                    request.getUserId(),
+                    request.getPassword()
             );
+            if (httpRequest != null) {
+                // 携带请求详情，认证失败监听器可以记录到真实的 IP
+                authRequest.setDetails(new WebAuthenticationDetails(httpRequest));
+            }
+            // 【优化】经过失败限流后，在独立的有界线程池中执行 BCrypt 校验
+            credentialVerificationService.verify(authRequest, ipAddress);
+        } catch (TooManyRequestsException e) {
+            // 【新增】被限流的请求不会到达认证管理器，认证失败监听器记录不到，在这里补记登录日志
+            if (httpRequest != null) {
+                loggingService.logLoginFailure(request.getUserId(), ipAddress, httpRequest.getHeader("User-Agent"), e.getMessage());
+            }
+            throw e;
         } catch (CredentialsExpiredException e) {
             // 这是“需要修改密码”的特定场景。我们捕获它，并继续执行，
             // 因为我们需要为用户生成一个临时 token 以便他们能够调用修改密码的接口。
@@ -49,15 +63,13 @@ public class AuthService {
         }
 
         // 如果代码能执行到这里，说明要么认证成功，要么是需要修改密码
-        User user = userRepository.findById(request.getUserId())
+        // 一次性加载角色和用户组，用于在 Token 中嵌入授权信息
+        User user = userRepository.findWithRolesAndGroupsById(request.getUserId())
                 .orElseThrow(() -> new UsernameNotFoundException("认证成功但无法在数据库中找到用户，数据不一致"));
 
         // --- 【新增】记录登录成功日志 ---
         try {
-            ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-            if (attributes != null) {
-                HttpServletRequest httpRequest = attributes.getRequest();
-                String ipAddress = getIpAddress(httpRequest);
+            if (httpRequest != null) {
                 String userAgent = httpRequest.getHeader("User-Agent");
                 loggingService.logLoginSuccess(user.getId(), ipAddress, userAgent);
             }
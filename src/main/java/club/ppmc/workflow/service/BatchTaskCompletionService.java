@@ -0,0 +1,233 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.dto.BatchCompleteTaskRequest;
+import club.ppmc.workflow.dto.BatchCompleteTaskResponse;
+import club.ppmc.workflow.dto.CompleteTaskRequest;
+import club.ppmc.workflow.exception.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author cc
+ * @description 【新增】批量完成任务服务。
+ * 一次查询校验全部任务的办理权限，再按块 (chunk) 提交到有界线程池，每块在一个事务中完成；
+ * 某块中有任务失败时整块回滚，再逐个任务单独提交事务重试，保证一个任务的失败不影响其他任务。
+ * 线程池在提交中途已满时，已提交的块照常完成，未能提交的任务在逐项结果中标记为未处理；
+ * 超过等待时限后取消尚未开始的块，这些任务同样标记为未处理。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchTaskCompletionService {
+
+    private final WorkflowService workflowService;
+    private final TaskProjectionService taskProjectionService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.tasks.batch-complete.max-tasks:200}")
+    private int maxTasks;
+
+    @Value("${app.tasks.batch-complete.chunk-size:20}")
+    private int chunkSize;
+
+    @Value("${app.tasks.batch-complete.threads:2}")
+    private int poolThreads;
+
+    @Value("${app.tasks.batch-complete.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${app.tasks.batch-complete.timeout-ms:120000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+    // 工作线程继承提交请求的用户的安全上下文，逐个任务的操作日志能记录到正确的操作人
+    private ExecutorService securedExecutor;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolThreads, poolThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "task-batch-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.securedExecutor = new DelegatingSecurityContextExecutorService(executor);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 以同一个决策和审批意见批量完成任务
+     *
+     * @param userId  当前用户ID
+     * @param request 批量完成请求
+     * @return 逐项的完成结果
+     * @throws IllegalArgumentException 任务列表为空、超过上限或缺少决策
+     * @throws TooManyRequestsException 批量处理线程池已满，且没有任何任务开始处理
+     */
+    public BatchCompleteTaskResponse completeTasks(String userId, BatchCompleteTaskRequest request) {
+        if (request.getDecision() == null) {
+            throw new IllegalArgumentException("批量完成任务必须指定审批决策");
+        }
+        List<String> taskIds = request.getTaskIds() == null ? List.of()
+                : request.getTaskIds().stream().filter(Objects::nonNull).distinct().toList();
+        if (taskIds.isEmpty()) {
+            throw new IllegalArgumentException("任务列表不能为空");
+        }
+        if (taskIds.size() > maxTasks) {
+            throw new IllegalArgumentException("一次最多批量完成 " + maxTasks + " 个任务");
+        }
+
+        // 1. 一次查询校验所有任务的办理权限
+        Set<String> allowed = taskProjectionService.findInboxTaskIds(taskIds, userId,
+                userPrincipalCache.get(userId).getGroupNames());
+        Map<String, BatchCompleteTaskResponse.Item> results = new LinkedHashMap<>();
+        List<String> executable = new ArrayList<>();
+        for (String taskId : taskIds) {
+            if (allowed.contains(taskId)) {
+                executable.add(taskId);
+                results.put(taskId, null);
+            } else {
+                results.put(taskId, new BatchCompleteTaskResponse.Item(taskId, false, "任务不存在或您无权办理"));
+            }
+        }
+
+        // 2. 分块提交到线程池
+        CompleteTaskRequest completeRequest = new CompleteTaskRequest();
+        completeRequest.setDecision(request.getDecision());
+        completeRequest.setApprovalComment(request.getApprovalComment());
+        List<Future<List<BatchCompleteTaskResponse.Item>>> futures = new ArrayList<>();
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < executable.size(); from += chunkSize) {
+            List<String> chunk = executable.subList(from, Math.min(from + chunkSize, executable.size()));
+            try {
+                futures.add(securedExecutor.submit(() -> completeChunk(chunk, completeRequest)));
+                chunks.add(chunk);
+            } catch (RejectedExecutionException e) {
+                if (futures.isEmpty()) {
+                    // 还没有任何任务开始处理，整个请求可以安全地重试
+                    throw new TooManyRequestsException("批量处理任务过多，请稍后再试");
+                }
+                // 【修改】已提交的块可能已经在执行，不能再整体拒绝：等待它们完成，其余任务逐项报告为未处理
+                log.warn("用户 {} 的批量完成任务中 {} 个任务因线程池已满未处理。", userId, executable.size() - from);
+                executable.subList(from, executable.size()).forEach(taskId -> results.put(taskId,
+                        new BatchCompleteTaskResponse.Item(taskId, false, "系统繁忙，此任务未处理，请稍后重试")));
+                break;
+            }
+        }
+
+        // 3. 汇总结果
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        boolean expired = false;
+        for (int i = 0; i < futures.size() && !expired; i++) {
+            try {
+                collect(futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS), results);
+            } catch (TimeoutException e) {
+                expired = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                expired = true;
+            } catch (ExecutionException e) {
+                reportExecutionFailure(chunks.get(i), e, results);
+            }
+        }
+        if (expired) {
+            // 【修改】超时后取消尚未开始的块，避免它们在请求返回之后才被执行；已经开始的块无法安全中断，等待其自行完成
+            int notStarted = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                Future<List<BatchCompleteTaskResponse.Item>> future = futures.get(i);
+                if (future.cancel(false)) {
+                    notStarted += chunks.get(i).size();
+                    chunks.get(i).forEach(taskId -> results.put(taskId,
+                            new BatchCompleteTaskResponse.Item(taskId, false, "处理超时，此任务未处理，请稍后重试")));
+                } else if (future.isDone() && !future.isCancelled()) {
+                    try {
+                        collect(future.get(), results);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException e) {
+                        reportExecutionFailure(chunks.get(i), e, results);
+                    }
+                }
+            }
+            executor.purge();
+            log.warn("用户 {} 的批量完成任务处理超时，{} 个尚未开始的任务已取消。", userId, notStarted);
+        }
+        // 超时时仍在执行的块，结果未知
+        results.replaceAll((taskId, item) -> item != null ? item
+                : new BatchCompleteTaskResponse.Item(taskId, false, "处理超时，请刷新待办列表确认结果"));
+
+        int succeeded = (int) results.values().stream().filter(BatchCompleteTaskResponse.Item::isSuccess).count();
+        log.info("用户 {} 批量完成任务: 共 {} 个, 成功 {} 个。", userId, results.size(), succeeded);
+        return BatchCompleteTaskResponse.builder()
+                .total(results.size())
+                .succeeded(succeeded)
+                .failed(results.size() - succeeded)
+                .results(new ArrayList<>(results.values()))
+                .build();
+    }
+
+    private List<BatchCompleteTaskResponse.Item> completeChunk(List<String> taskIds, CompleteTaskRequest request) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> taskIds.forEach(taskId -> workflowService.completeUserTask(taskId, request)));
+            return taskIds.stream().map(taskId -> new BatchCompleteTaskResponse.Item(taskId, true, null)).toList();
+        } catch (RuntimeException e) {
+            if (taskIds.size() == 1) {
+                return List.of(failure(taskIds.get(0), e));
+            }
+            log.info("批量完成任务时整块提交失败 ({})，改为逐个任务提交。", e.getMessage());
+        }
+
+        List<BatchCompleteTaskResponse.Item> items = new ArrayList<>();
+        for (String taskId : taskIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> workflowService.completeUserTask(taskId, request));
+                items.add(new BatchCompleteTaskResponse.Item(taskId, true, null));
+            } catch (RuntimeException e) {
+                items.add(failure(taskId, e));
+            }
+        }
+        return items;
+    }
+
+    private static void collect(List<BatchCompleteTaskResponse.Item> items, Map<String, BatchCompleteTaskResponse.Item> results) {
+        items.forEach(item -> results.put(item.getCamundaTaskId(), item));
+    }
+
+    /**
+     * 块内的任务失败已在 completeChunk 中逐项处理，这里只会是处理线程本身的异常，块内任务的结果未知
+     */
+    private void reportExecutionFailure(List<String> chunk, ExecutionException e, Map<String, BatchCompleteTaskResponse.Item> results) {
+        log.error("批量完成任务的处理线程异常", e.getCause());
+        chunk.forEach(taskId -> results.put(taskId,
+                new BatchCompleteTaskResponse.Item(taskId, false, "处理失败，请刷新待办列表确认结果")));
+    }
+
+    private BatchCompleteTaskResponse.Item failure(String taskId, RuntimeException e) {
+        log.warn("批量完成任务时任务 {} 失败: {}", taskId, e.getMessage());
+        return new BatchCompleteTaskResponse.Item(taskId, false, e.getMessage());
+    }
+}
@@ -0,0 +1,157 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author cc
+ * @description 【新增】密码校验服务。
+ * BCrypt 校验在独立的、有界的线程池中执行，队列满时直接拒绝，避免登录风暴占满 Tomcat 请求线程；
+ * 同时在消耗 BCrypt CPU 之前先经过 {@link LoginAttemptLimiter} 的失败限流。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CredentialVerificationService {
+
+    private final AuthenticationManager authenticationManager;
+    private final LoginAttemptLimiter loginAttemptLimiter;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.security.credential-pool.threads:4}")
+    private int poolThreads;
+
+    @Value("${app.security.credential-pool.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.security.credential-pool.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+    private Timer successTimer;
+    private Timer failureTimer;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolThreads, poolThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "credential-verify-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        this.successTimer = Timer.builder("auth.credential.verification")
+                .description("密码校验耗时 (包含排队时间)")
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        this.failureTimer = Timer.builder("auth.credential.verification")
+                .description("密码校验耗时 (包含排队时间)")
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+        Gauge.builder("auth.credential.queue.depth", executor, e -> e.getQueue().size())
+                .description("等待密码校验的登录请求数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 校验用户名和密码
+     *
+     * @param token     包含用户名和密码的认证令牌
+     * @param ipAddress 客户端 IP，用于按 (账号, IP) 和按 IP 限流
+     * @return 认证结果
+     * @throws AuthenticationException   认证失败 (密码错误、账号禁用、需要修改密码等)
+     * @throws TooManyRequestsException 被限流或校验线程池已满
+     */
+    public Authentication verify(UsernamePasswordAuthenticationToken token, String ipAddress) {
+        String userId = token.getName();
+        LoginAttemptLimiter.Scope blocked = loginAttemptLimiter.checkBlocked(userId, ipAddress);
+        if (blocked != null) {
+            reject(blocked == LoginAttemptLimiter.Scope.ACCOUNT ? "account_throttled" : "ip_throttled");
+            throw new TooManyRequestsException("登录失败次数过多，请稍后再试");
+        }
+
+        long start = System.nanoTime();
+        Future<Authentication> future;
+        try {
+            future = executor.submit(() -> authenticationManager.authenticate(token));
+        } catch (RejectedExecutionException e) {
+            reject("queue_full");
+            throw new TooManyRequestsException("登录请求过多，请稍后再试");
+        }
+
+        try {
+            Authentication authentication = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            loginAttemptLimiter.recordSuccess(userId, ipAddress);
+            return authentication;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CredentialsExpiredException expired) {
+                // 密码正确但需要修改密码，不计为失败
+                successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                loginAttemptLimiter.recordSuccess(userId, ipAddress);
+                throw expired;
+            }
+            failureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (cause instanceof AuthenticationException authenticationException) {
+                loginAttemptLimiter.recordFailure(userId, ipAddress);
+                throw authenticationException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("密码校验失败", cause);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            reject("timeout");
+            throw new TooManyRequestsException("登录请求过多，请稍后再试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("密码校验被中断", e);
+        }
+    }
+
+    private void reject(String reason) {
+        Counter.builder("auth.login.rejected")
+                .description("在密码校验之前被拒绝的登录请求数")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        log.warn("登录请求被拒绝: {}", reason);
+    }
+}
@@ -0,0 +1,238 @@
+package club.ppmc.workflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author cc
+ * @description 【新增】数据保留策略：定时删除过期的通知、登录日志、操作日志和已完成的发件箱记录。
+ * 按主键分块删除 (每块一个短事务，块之间暂停)，不会长时间锁表；每次运行删除的块数有上限，积压的数据在后续运行中继续删除。
+ * 配置了归档目录时，每块数据先以 gzip 压缩的 NDJSON 写入归档文件，再删除。保留天数小于等于 0 表示不清理该表。
+ * 清理会永久删除登录日志和操作日志等审计数据，默认关闭，需在确认保留期限和归档目录后显式启用。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DataRetentionService {
+
+    private static final DateTimeFormatter ARCHIVE_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final NotificationUnreadCounterReconciler unreadCounterReconciler;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.retention.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.retention.notification-days:180}")
+    private int notificationDays;
+
+    @Value("${app.retention.login-log-days:180}")
+    private int loginLogDays;
+
+    @Value("${app.retention.operation-log-days:365}")
+    private int operationLogDays;
+
+    @Value("${app.retention.outbox-days:30}")
+    private int outboxDays;
+
+    @Value("${app.retention.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.retention.max-chunks-per-run:500}")
+    private int maxChunksPerRun;
+
+    @Value("${app.retention.chunk-pause-ms:100}")
+    private long chunkPauseMs;
+
+    @Value("${app.retention.archive-dir:}")
+    private String archiveDir;
+
+    private TransactionTemplate transactionTemplate;
+    private List<RetentionPolicy> policies;
+
+    /**
+     * 单张表的保留策略
+     *
+     * @param table      表名
+     * @param timeColumn 判断是否过期的时间列
+     * @param condition  额外的过滤条件 (例如只清理已完成的发件箱记录)，可为空
+     * @param days       保留天数
+     */
+    private record RetentionPolicy(String table, String timeColumn, String condition, int days) {
+    }
+
+    @PostConstruct
+    void init() {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.policies = List.of(
+                new RetentionPolicy("app_notification", "created_at", null, notificationDays),
+                new RetentionPolicy("login_log", "login_time", null, loginLogDays),
+                new RetentionPolicy("operation_log", "operation_time", null, operationLogDays),
+                new RetentionPolicy("erp_outbox", "sent_at", "status = 'SENT'", outboxDays),
+                new RetentionPolicy("notification_outbox", "created_at", "status = 'FAILED'", outboxDays)
+        );
+    }
+
+    @Scheduled(cron = "${app.retention.cron:0 30 3 * * ?}")
+    public void purgeExpired() {
+        if (!enabled) {
+            return;
+        }
+        log.info("开始执行数据保留清理任务...");
+        for (RetentionPolicy policy : policies) {
+            if (policy.days() <= 0) {
+                continue;
+            }
+            try {
+                long purged = purge(policy);
+                if (purged > 0 && "app_notification".equals(policy.table())) {
+                    // 删除的通知中可能有未读通知，重新校正未读计数
+                    unreadCounterReconciler.reconcile();
+                }
+            } catch (RuntimeException e) {
+                log.error("清理表 {} 的过期数据失败，将在下次运行时重试。", policy.table(), e);
+            }
+        }
+    }
+
+    private long purge(RetentionPolicy policy) {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(policy.days()));
+        String where = policy.timeColumn() + " < ?" + (policy.condition() != null ? " AND " + policy.condition() : "");
+        String selectIds = "SELECT id FROM " + policy.table() + " WHERE " + where + " ORDER BY id LIMIT " + chunkSize;
+        Counter purgedCounter = Counter.builder("retention.purged")
+                .description("数据保留策略删除的记录数")
+                .tag("table", policy.table())
+                .register(meterRegistry);
+
+        long purged = 0;
+        Writer archive = null;
+        try {
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                List<Long> ids = jdbcTemplate.queryForList(selectIds, Long.class, cutoff);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                String idList = "(" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+                if (StringUtils.hasText(archiveDir)) {
+                    if (archive == null) {
+                        archive = openArchive(policy.table());
+                    }
+                    writeArchive(archive, jdbcTemplate.queryForList(
+                            "SELECT * FROM " + policy.table() + " WHERE id IN " + idList, ids.toArray()));
+                }
+                Integer deleted = transactionTemplate.execute(status -> jdbcTemplate.update(
+                        "DELETE FROM " + policy.table() + " WHERE id IN " + idList, ids.toArray()));
+                purged += deleted != null ? deleted : 0;
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+                pause();
+            }
+        } finally {
+            closeArchive(archive, policy.table());
+        }
+        purgedCounter.increment(purged);
+        if (purged > 0) {
+            log.info("已清理表 {} 中 {} 天前的 {} 条记录。", policy.table(), policy.days(), purged);
+        }
+        return purged;
+    }
+
+    private Writer openArchive(String table) {
+        try {
+            Path dir = Paths.get(archiveDir).toAbsolutePath().normalize();
+            Files.createDirectories(dir);
+            Path file = dir.resolve(table + "-" + LocalDateTime.now().format(ARCHIVE_SUFFIX) + ".ndjson.gz");
+            return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法创建归档文件", e);
+        }
+    }
+
+    /**
+     * 写入并刷新一块数据，保证删除之前数据已经落盘
+     */
+    private void writeArchive(Writer archive, List<Map<String, Object>> rows) {
+        try {
+            for (Map<String, Object> row : rows) {
+                Map<String, Object> record = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> column : row.entrySet()) {
+                    record.put(column.getKey().toLowerCase(), archiveValue(column.getValue()));
+                }
+                archive.write(objectMapper.writeValueAsString(record));
+                archive.write('\n');
+            }
+            archive.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入归档文件失败", e);
+        }
+    }
+
+    private static Object archiveValue(Object value) {
+        try {
+            if (value instanceof Clob clob) {
+                return clob.getSubString(1, (int) clob.length());
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("读取待归档的文本字段失败", e);
+        }
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime().toString() : value;
+    }
+
+    private static void closeArchive(Writer archive, String table) {
+        if (archive == null) {
+            return;
+        }
+        try {
+            archive.close();
+        } catch (IOException e) {
+            log.warn("关闭表 {} 的归档文件失败", table, e);
+        }
+    }
+
+    private void pause() {
+        if (chunkPauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(chunkPauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("数据保留清理任务被中断", e);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.ErpOutboxMessage;
+import club.ppmc.workflow.integration.erp.ErpService;
+import club.ppmc.workflow.integration.erp.dto.InventoryDeductionRequest;
+import club.ppmc.workflow.repository.ErpOutboxMessageRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author cc
+ * @description 【新增】ERP 事务发件箱。
+ * 流程委托调用 {@link #enqueueInventoryDeduction} 在当前 (引擎) 事务中写入发件箱记录，不再在事务中等待 ERP 的 HTTP 响应；
+ * 事务提交后由有界线程池并行发送，多个线程通过条件更新 (PENDING -> SENDING) 认领记录，保证同一时刻只有一个线程发送。
+ * 发送失败按指数退避重试，超过最大次数后标记为 FAILED；线程池已满、等待重试或应用重启遗留的记录由定时扫描按批补发。
+ * 每条记录的幂等键随请求发送给 ERP，重复投递 (例如 ERP 已处理但响应超时) 由 ERP 去重。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ErpOutboxService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ErpOutboxMessageRepository outboxRepository;
+    private final ErpService erpService;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.erp-outbox.worker-threads:4}")
+    private int workerThreads;
+
+    @Value("${app.erp-outbox.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${app.erp-outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.erp-outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.erp-outbox.initial-backoff-ms:5000}")
+    private long initialBackoffMs;
+
+    @Value("${app.erp-outbox.max-backoff-ms:1800000}")
+    private long maxBackoffMs;
+
+    @Value("${app.erp-outbox.claim-timeout-ms:300000}")
+    private long claimTimeoutMs;
+
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate transactionTemplate;
+    // 已入队或正在发送的记录，避免定时扫描重复入队
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private Timer sendTimer;
+    private Counter sentCounter;
+    private Counter retryCounter;
+    private Counter failedCounter;
+
+    /**
+     * 发件箱记录已写入的事件，事务提交后触发发送
+     */
+    public record ErpOutboxEnqueuedEvent(Long messageId) {
+    }
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                workerThreads, workerThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "erp-outbox-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("erp.outbox.queue.depth", executor, e -> e.getQueue().size())
+                .description("等待发送的 ERP 发件箱记录数 (内存队列)")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("erp.outbox.send").description("调用 ERP 的耗时").register(meterRegistry);
+        this.sentCounter = Counter.builder("erp.outbox.sent").description("成功发送的 ERP 操作数").register(meterRegistry);
+        this.retryCounter = Counter.builder("erp.outbox.retried").description("发送失败等待重试的次数").register(meterRegistry);
+        this.failedCounter = Counter.builder("erp.outbox.failed").description("超过最大重试次数的 ERP 操作数").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 在当前事务中登记一次库存扣减，事务提交后异步发送给 ERP
+     *
+     * @param idempotencyKey    幂等键，同一业务操作必须相同
+     * @param processInstanceId 产生此操作的流程实例ID
+     * @param request           扣减请求
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueInventoryDeduction(String idempotencyKey, String processInstanceId, InventoryDeductionRequest request) {
+        ErpOutboxMessage message = new ErpOutboxMessage();
+        message.setIdempotencyKey(idempotencyKey);
+        message.setOperation(ErpOutboxMessage.Operation.INVENTORY_DEDUCTION);
+        message.setProcessInstanceId(processInstanceId);
+        try {
+            message.setPayloadJson(objectMapper.writeValueAsString(request));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("无法序列化 ERP 请求", e);
+        }
+        outboxRepository.save(message);
+        eventPublisher.publishEvent(new ErpOutboxEnqueuedEvent(message.getId()));
+    }
+
+    @TransactionalEventListener
+    public void onEnqueued(ErpOutboxEnqueuedEvent event) {
+        enqueue(event.messageId());
+    }
+
+    /**
+     * 定时补发：回收超时未完成的认领，再把已到重试时间的记录按批入队
+     */
+    @Scheduled(fixedDelayString = "${app.erp-outbox.poll-interval-ms:10000}", initialDelayString = "${app.erp-outbox.poll-interval-ms:10000}")
+    public void dispatchDue() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer released = transactionTemplate.execute(status ->
+                outboxRepository.releaseStaleClaims(now.minus(Duration.ofMillis(claimTimeoutMs)), now));
+        if (released != null && released > 0) {
+            log.warn("回收了 {} 条发送超时的 ERP 发件箱记录。", released);
+        }
+        List<Long> dueIds = outboxRepository.findDueIds(now, PageRequest.of(0, batchSize));
+        dueIds.stream().filter(id -> !inFlight.contains(id)).forEach(this::enqueue);
+    }
+
+    private void enqueue(Long messageId) {
+        if (!inFlight.add(messageId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    send(messageId);
+                } finally {
+                    inFlight.remove(messageId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(messageId);
+            log.warn("ERP 发件箱队列已满，记录 #{} 将由定时扫描稍后发送。", messageId);
+        }
+    }
+
+    private void send(Long messageId) {
+        Integer claimed = transactionTemplate.execute(status -> outboxRepository.claim(messageId, LocalDateTime.now()));
+        if (claimed == null || claimed == 0) {
+            return; // 已被其他线程认领或已发送
+        }
+        ErpOutboxMessage message = outboxRepository.findById(messageId).orElseThrow();
+        try {
+            sendTimer.record(() -> deliver(message));
+        } catch (RuntimeException e) {
+            recordFailure(message, e);
+            return;
+        }
+        message.setStatus(ErpOutboxMessage.Status.SENT);
+        message.setSentAt(LocalDateTime.now());
+        message.setLastError(null);
+        outboxRepository.save(message);
+        sentCounter.increment();
+    }
+
+    private void deliver(ErpOutboxMessage message) {
+        try {
+            switch (message.getOperation()) {
+                case INVENTORY_DEDUCTION -> erpService.deductInventory(
+                        objectMapper.readValue(message.getPayloadJson(), InventoryDeductionRequest.class),
+                        message.getIdempotencyKey());
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("ERP 发件箱记录的负载无法解析", e);
+        }
+    }
+
+    private void recordFailure(ErpOutboxMessage message, RuntimeException cause) {
+        String error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        message.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        if (message.getAttempts() >= maxAttempts) {
+            message.setStatus(ErpOutboxMessage.Status.FAILED);
+            failedCounter.increment();
+            log.error("ERP 发件箱记录 #{} ({}) 已重试 {} 次仍失败，需要人工处理。", message.getId(), message.getIdempotencyKey(),
+                    message.getAttempts(), cause);
+        } else {
+            long delay = backoffMillis(message.getAttempts());
+            message.setStatus(ErpOutboxMessage.Status.PENDING);
+            message.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+            retryCounter.increment();
+            log.warn("ERP 发件箱记录 #{} 第 {} 次发送失败 ({})，{} 毫秒后重试。", message.getId(), message.getAttempts(), error, delay);
+        }
+        outboxRepository.save(message);
+    }
+
+    /**
+     * 指数退避，叠加最多 20% 的随机抖动，避免 ERP 恢复时所有记录同时重发
+     */
+    private long backoffMillis(int attempts) {
+        long base = initialBackoffMs << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoffMs);
+        return capped + ThreadLocalRandom.current().nextLong(capped / 5 + 1);
+    }
+}
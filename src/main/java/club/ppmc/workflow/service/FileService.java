@@ -19,7 +19,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -92,6 +94,19 @@ public class FileService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 【新增】一次查询多个表单提交的附件，按提交ID分组；没有附件的提交不在结果中
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<FileAttachmentDto>> getFilesBySubmissionIds(Collection<Long> submissionIds) {
+        if (submissionIds.isEmpty()) {
+            return Map.of();
+        }
+        return fileAttachmentRepository.findByFormSubmissionIdIn(submissionIds).stream()
+                .collect(Collectors.groupingBy(attachment -> attachment.getFormSubmission().getId(),
+                        Collectors.mapping(this::convertToDto, Collectors.toList())));
+    }
+
     private FileAttachmentDto convertToDto(FileAttachment entity) {
         return FileAttachmentDto.builder()
                 .id(entity.getId())
@@ -0,0 +1,100 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.FormDefinition;
+import club.ppmc.workflow.utils.FormSchemaParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author cc
+ * @description 【新增】已解析的表单 schema 缓存。
+ * 按 (表单ID, 更新时间) 缓存不可变的 {@link FormSchemaParser.ParsedSchema}，表单列表、搜索索引和批量导入不再逐行解析 schemaJson。
+ * 表单被修改后更新时间变化，旧的解析结果自然失效；修改和删除表单时也会显式移除。缓存按最近最少使用淘汰，条目数有上限。
+ */
+@Service
+@RequiredArgsConstructor
+public class FormSchemaCache {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.form-schema-cache.max-size:500}")
+    private int maxSize;
+
+    private record CachedSchema(LocalDateTime updatedAt, FormSchemaParser.ParsedSchema schema) {
+    }
+
+    // 访问顺序的 LinkedHashMap，超过上限时移除最久未使用的条目
+    private final Map<Long, CachedSchema> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedSchema> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * 获取表单定义的解析结果，未命中或表单已被修改时重新解析
+     *
+     * @param formDefinition 表单定义
+     * @return 不可变的解析结果
+     * @throws IOException 如果 schemaJson 解析失败
+     */
+    public FormSchemaParser.ParsedSchema get(FormDefinition formDefinition) throws IOException {
+        Long formId = formDefinition.getId();
+        LocalDateTime updatedAt = formDefinition.getUpdatedAt();
+        if (formId == null || updatedAt == null) {
+            return FormSchemaParser.parse(formDefinition.getSchemaJson(), objectMapper);
+        }
+
+        CachedSchema cached;
+        synchronized (cache) {
+            cached = cache.get(formId);
+        }
+        if (cached != null && cached.updatedAt().equals(updatedAt)) {
+            return cached.schema();
+        }
+
+        // 在锁外解析，避免大表单阻塞其他读取
+        FormSchemaParser.ParsedSchema parsed = FormSchemaParser.parse(formDefinition.getSchemaJson(), objectMapper);
+        synchronized (cache) {
+            CachedSchema current = cache.get(formId);
+            // 只用更新的数据覆盖缓存，防止并发读取把旧版本的解析结果放回缓存
+            if (current == null || !current.updatedAt().isAfter(updatedAt)) {
+                cache.put(formId, new CachedSchema(updatedAt, parsed));
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * 移除单个表单的解析结果。如果当前处于事务中，则在事务提交后执行。
+     */
+    public void invalidate(Long formDefinitionId) {
+        runAfterCommit(() -> {
+            synchronized (cache) {
+                cache.remove(formDefinitionId);
+            }
+        });
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
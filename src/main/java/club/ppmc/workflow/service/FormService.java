@@ -14,6 +14,9 @@ import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Subquery;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -47,6 +50,17 @@ public class FormService {
     private final MenuRepository menuRepository;
     private final WorkflowTemplateRepository workflowTemplateRepository;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProcessStartMetadataCache processStartMetadataCache;
+    private final FormSchemaCache formSchemaCache;
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+    // 【新增】(submitter_id, idempotency_key) 唯一约束的名称，见 FormSubmission
+    private static final String IDEMPOTENCY_CONSTRAINT = "uk_submission_idempotency";
+
+    // 【新增】未显式指定时，是否以异步方式启动工作流
+    @Value("${app.submission.async-default:false}")
+    private boolean asyncByDefault;
 
     @LogOperation(module = "表单提交", action = "提交申请", targetIdExpression = "#result?.id")
     public FormDefinitionResponse createFormDefinition(CreateFormDefinitionRequest request) {
@@ -88,6 +102,8 @@ public class FormService {
         formDefinition.setSchemaJson(request.getSchemaJson());
 
         FormDefinition updatedForm = formDefinitionRepository.save(formDefinition);
+        processStartMetadataCache.invalidate(id);
+        formSchemaCache.invalidate(id);
         return convertToDefinitionResponse(updatedForm);
     }
 
@@ -115,6 +131,8 @@ public class FormService {
         }
 
         formDefinitionRepository.deleteById(id);
+        processStartMetadataCache.invalidate(id);
+        formSchemaCache.invalidate(id);
     }
 
     @Transactional(readOnly = true)
@@ -187,9 +205,26 @@ public class FormService {
 
     /**
      * 【核心修改】创建表单提交记录并启动工作流。移除了创建草稿的逻辑。
+     * 【新增】支持幂等键 (重复请求直接返回首次创建的记录) 和异步模式 (保存为 QUEUED 后立即返回，由后台线程启动工作流)。
+     *
+     * @param idempotencyKey 客户端提供的幂等键，可为空
+     * @param async          是否异步启动工作流，为空时使用 app.submission.async-default
      */
     @LogOperation(module = "表单提交", action = "创建并提交申请", targetIdExpression = "#result?.id")
-    public FormSubmissionResponse createFormSubmission(Long formDefinitionId, CreateFormSubmissionRequest request, String submitterId) {
+    public FormSubmissionResponse createFormSubmission(Long formDefinitionId, CreateFormSubmissionRequest request, String submitterId,
+                                                       String idempotencyKey, Boolean async) {
+        validateIdempotencyKey(idempotencyKey);
+        if (idempotencyKey != null) {
+            Optional<FormSubmission> existing = formSubmissionRepository.findBySubmitterIdAndIdempotencyKey(submitterId, idempotencyKey);
+            if (existing.isPresent()) {
+                if (!formDefinitionId.equals(existing.get().getFormDefinition().getId())) {
+                    throw new IllegalStateException("幂等键 " + idempotencyKey + " 已用于其他表单的申请");
+                }
+                log.info("幂等键 {} 已存在，返回已创建的申请 #{}。", idempotencyKey, existing.get().getId());
+                return convertToSubmissionResponse(existing.get());
+            }
+        }
+
         FormDefinition formDefinition = formDefinitionRepository.findById(formDefinitionId)
                 .orElseThrow(() -> new ResourceNotFoundException("无法为不存在的表单 (ID: " + formDefinitionId + ") 创建提交记录"));
 
@@ -197,6 +232,7 @@ public class FormService {
         submission.setFormDefinition(formDefinition);
         submission.setDataJson(request.getDataJson());
         submission.setSubmitterId(submitterId);
+        submission.setIdempotencyKey(idempotencyKey);
 
         // 保存附件
         if (!CollectionUtils.isEmpty(request.getAttachmentIds())) {
@@ -213,18 +249,13 @@ public class FormService {
         // ⭐ 核心简化：此方法现在只处理需要立即启动工作流的场景
         if ("proceed".equals(action) || "terminate".equals(action)) {
             // 【核心修复】在启动工作流前，检查是否存在已部署的流程模板
-            WorkflowTemplate template = workflowTemplateRepository.findByFormDefinitionId(formDefinitionId)
-                    .orElseThrow(() -> new IllegalStateException(
-                            "此表单未关联任何工作流，无法提交申请。请联系管理员。"));
+            requireDeployedWorkflow(formDefinitionId);
 
-            if (!StringUtils.hasText(template.getCamundaDeploymentId())) {
-                throw new IllegalStateException(
-                        "此表单关联的工作流尚未部署，无法提交申请。请联系管理员完成流程部署。");
+            if (isAsync(async)) {
+                return convertToSubmissionResponse(enqueueStart(submission, action));
             }
-            // 【修复结束】
-
             submission.setStatus(FormSubmission.SubmissionStatus.PROCESSING);
-            FormSubmission savedSubmission = formSubmissionRepository.save(submission);
+            FormSubmission savedSubmission = saveWithIdempotencyKey(submission);
             workflowService.startWorkflow(savedSubmission, action);
             return convertToSubmissionResponse(savedSubmission);
         } else {
@@ -252,15 +283,26 @@ public class FormService {
         return convertToSubmissionResponse(updatedSubmission);
     }
 
+    /**
+     * 提交草稿并发起流程。【新增】启动失败 (START_FAILED) 的申请也可以修改后重新提交；
+     * 携带与上次提交相同的幂等键重试时，直接返回当前状态。
+     */
     @LogOperation(module = "我的申请", action = "提交草稿并发起流程", targetIdExpression = "#submissionId")
-    public FormSubmissionResponse submitDraft(Long submissionId, CreateFormSubmissionRequest request, String submitterId) {
+    public FormSubmissionResponse submitDraft(Long submissionId, CreateFormSubmissionRequest request, String submitterId,
+                                              String idempotencyKey, Boolean async) {
+        validateIdempotencyKey(idempotencyKey);
         FormSubmission submission = formSubmissionRepository.findById(submissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("未找到提交记录 ID: " + submissionId));
 
         if (!submission.getSubmitterId().equals(submitterId)) {
             throw new UnauthorizedException("您没有权限提交此草稿");
         }
-        if (submission.getStatus() != FormSubmission.SubmissionStatus.DRAFT) {
+        boolean resubmittable = submission.getStatus() == FormSubmission.SubmissionStatus.DRAFT
+                || submission.getStatus() == FormSubmission.SubmissionStatus.START_FAILED;
+        if (!resubmittable && idempotencyKey != null && idempotencyKey.equals(submission.getIdempotencyKey())) {
+            return convertToSubmissionResponse(submission);
+        }
+        if (!resubmittable) {
             throw new IllegalStateException("此申请已在流程中，无法重复提交");
         }
 
@@ -268,15 +310,19 @@ public class FormService {
         updateAttachments(submission, request.getAttachmentIds());
 
         // 【核心修复】在启动工作流前，检查是否存在已部署的流程模板
-        WorkflowTemplate template = workflowTemplateRepository.findByFormDefinitionId(submission.getFormDefinition().getId())
-                .orElseThrow(() -> new IllegalStateException(
-                        "此表单未关联任何工作流，无法提交申请。请联系管理员。"));
-
-        if (!StringUtils.hasText(template.getCamundaDeploymentId())) {
-            throw new IllegalStateException(
-                    "此表单关联的工作流尚未部署，无法提交申请。请联系管理员完成流程部署。");
+        requireDeployedWorkflow(submission.getFormDefinition().getId());
+
+        if (idempotencyKey != null && !idempotencyKey.equals(submission.getIdempotencyKey())) {
+            formSubmissionRepository.findBySubmitterIdAndIdempotencyKey(submitterId, idempotencyKey).ifPresent(other -> {
+                throw new IllegalStateException("幂等键 " + idempotencyKey + " 已用于其他申请");
+            });
+            submission.setIdempotencyKey(idempotencyKey);
+            saveWithIdempotencyKey(submission);
+        }
+        submission.setStartError(null);
+        if (isAsync(async)) {
+            return convertToSubmissionResponse(enqueueStart(submission, request.getInitialAction()));
         }
-        // 【修复结束】
 
         workflowService.startWorkflow(submission, request.getInitialAction());
 
@@ -286,6 +332,56 @@ public class FormService {
         return convertToSubmissionResponse(savedSubmission);
     }
 
+    /**
+     * 【新增】以 QUEUED 状态保存申请，事务提交后由 SubmissionStartService 在后台启动工作流
+     */
+    private FormSubmission enqueueStart(FormSubmission submission, String initialAction) {
+        submission.setStatus(FormSubmission.SubmissionStatus.QUEUED);
+        submission.setInitialAction(initialAction);
+        FormSubmission savedSubmission = saveWithIdempotencyKey(submission);
+        eventPublisher.publishEvent(new SubmissionStartService.SubmissionQueuedEvent(savedSubmission.getId()));
+        return savedSubmission;
+    }
+
+    /**
+     * 【新增】检查表单已关联并部署了工作流 (从流程元数据缓存读取，不查询模板表)
+     */
+    private void requireDeployedWorkflow(Long formDefinitionId) {
+        ProcessStartMetadataCache.StartMetadata metadata = processStartMetadataCache.get(formDefinitionId)
+                .orElseThrow(() -> new IllegalStateException(
+                        "此表单未关联任何工作流，无法提交申请。请联系管理员。"));
+        if (!metadata.deployed()) {
+            throw new IllegalStateException(
+                    "此表单关联的工作流尚未部署，无法提交申请。请联系管理员完成流程部署。");
+        }
+    }
+
+    private boolean isAsync(Boolean async) {
+        return async != null ? async : asyncByDefault;
+    }
+
+    /**
+     * 【新增】保存并立即刷新申请，使幂等键的唯一约束冲突在这里暴露。
+     * 并发请求使用同一幂等键时，后到的请求返回 409，客户端使用同一幂等键重试即可拿到先创建的申请。
+     */
+    private FormSubmission saveWithIdempotencyKey(FormSubmission submission) {
+        try {
+            return formSubmissionRepository.saveAndFlush(submission);
+        } catch (DataIntegrityViolationException e) {
+            String cause = String.valueOf(e.getMostSpecificCause().getMessage());
+            if (submission.getIdempotencyKey() != null && cause.toLowerCase(Locale.ROOT).contains(IDEMPOTENCY_CONSTRAINT)) {
+                throw new IllegalStateException("使用相同幂等键的请求正在处理，请稍后使用同一幂等键重试");
+            }
+            throw e;
+        }
+    }
+
+    private void validateIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new IllegalArgumentException("幂等键不能为空且长度不能超过 " + MAX_IDEMPOTENCY_KEY_LENGTH);
+        }
+    }
+
     @LogOperation(module = "数据列表", action = "更新提交记录", targetIdExpression = "#submissionId")
     public FormSubmissionResponse updateSubmission(Long submissionId, UpdateFormSubmissionRequest request) {
         FormSubmission submission = formSubmissionRepository.findById(submissionId)
@@ -346,7 +442,7 @@ public class FormService {
             return cb.and(predicates.toArray(new Predicate[0]));
         };
 
-        return formSubmissionRepository.findAll(spec, pageable).map(this::convertToSubmissionResponse);
+        return convertToSubmissionResponses(formSubmissionRepository.findAll(spec, pageable));
     }
 
     @Transactional(readOnly = true)
@@ -355,7 +451,9 @@ public class FormService {
                 .orElseThrow(() -> new ResourceNotFoundException("未找到 ID 为 " + formDefinitionId + " 的表单定义"));
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User currentUser = (User) authentication.getPrincipal();
+        // 认证 Principal 是不可变快照，数据范围判断需要完整的 User 实体 (部门、角色、用户组)
+        User currentUser = userRepository.findById(authentication.getName())
+                .orElseThrow(() -> new ResourceNotFoundException("未找到用户: " + authentication.getName()));
 
         Specification<FormSubmission> spec = (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
@@ -377,7 +475,7 @@ public class FormService {
             return cb.and(predicates.toArray(new Predicate[0]));
         };
 
-        return formSubmissionRepository.findAll(spec, pageable).map(this::convertToSubmissionResponse);
+        return convertToSubmissionResponses(formSubmissionRepository.findAll(spec, pageable));
     }
 
     public FormDefinitionResponse convertToDefinitionResponse(FormDefinition entity) {
@@ -389,7 +487,8 @@ public class FormService {
         dto.setUpdatedAt(entity.getUpdatedAt());
 
         try {
-            FormSchemaParser.ParsedSchema schema = FormSchemaParser.parse(entity.getSchemaJson(), objectMapper);
+            // 【修改】使用缓存的解析结果，列表接口不再逐行解析 schemaJson
+            FormSchemaParser.ParsedSchema schema = formSchemaCache.get(entity);
             dto.setFilterableFields(schema.getFilterableFields());
             dto.setListDisplayFields(schema.getListDisplayFields());
         } catch (Exception e) {
@@ -402,24 +501,62 @@ public class FormService {
     }
 
     public FormSubmissionResponse convertToSubmissionResponse(FormSubmission entity) {
+        List<FileAttachmentDto> attachments = fileService.getFilesBySubmissionId(entity.getId());
+        String submitterName = userRepository.findById(entity.getSubmitterId()).map(User::getName).orElse(null);
+        return toSubmissionResponse(entity, entity.getFormDefinition().getName(), submitterName, attachments);
+    }
+
+    /**
+     * 【新增】组装一页提交记录：附件、提交人姓名和表单名称各用一次查询批量加载，
+     * 查询次数与分页大小无关 (逐行转换时每行需要约 4 次查询)。
+     */
+    private Page<FormSubmissionResponse> convertToSubmissionResponses(Page<FormSubmission> page) {
+        List<FormSubmission> submissions = page.getContent();
+        if (submissions.isEmpty()) {
+            return page.map(entity -> toSubmissionResponse(entity, null, null, List.of()));
+        }
+
+        Set<Long> submissionIds = new HashSet<>();
+        Set<String> submitterIds = new HashSet<>();
+        Set<Long> formIds = new HashSet<>();
+        for (FormSubmission submission : submissions) {
+            submissionIds.add(submission.getId());
+            submitterIds.add(submission.getSubmitterId());
+            // 读取代理对象的ID不会触发懒加载
+            formIds.add(submission.getFormDefinition().getId());
+        }
+
+        Map<Long, List<FileAttachmentDto>> attachments = fileService.getFilesBySubmissionIds(submissionIds);
+        Map<String, String> submitterNames = userRepository.findNamesByIdIn(submitterIds).stream()
+                .collect(Collectors.toMap(UserRepository.UserName::getId, UserRepository.UserName::getName, (a, b) -> a));
+        Map<Long, String> formNames = formDefinitionRepository.findNamesByIdIn(formIds).stream()
+                .collect(Collectors.toMap(FormDefinitionRepository.FormName::getId, FormDefinitionRepository.FormName::getName));
+
+        return page.map(entity -> toSubmissionResponse(entity,
+                formNames.get(entity.getFormDefinition().getId()),
+                submitterNames.get(entity.getSubmitterId()),
+                attachments.getOrDefault(entity.getId(), List.of())));
+    }
+
+    private FormSubmissionResponse toSubmissionResponse(FormSubmission entity, String formName, String submitterName,
+                                                        List<FileAttachmentDto> attachments) {
         FormSubmissionResponse dto = new FormSubmissionResponse();
         dto.setId(entity.getId());
         dto.setFormDefinitionId(entity.getFormDefinition().getId());
-        dto.setFormName(entity.getFormDefinition().getName());
+        dto.setFormName(formName);
         dto.setDataJson(entity.getDataJson());
         dto.setCreatedAt(entity.getCreatedAt());
         dto.setSubmissionStatus(entity.getStatus().name());
+        dto.setStartError(entity.getStartError());
 
-        List<FileAttachment> attachments = fileAttachmentRepository.findByFormSubmissionId(entity.getId());
         if (!attachments.isEmpty()) {
-            dto.setAttachments(fileService.getFilesBySubmissionId(entity.getId()));
+            dto.setAttachments(attachments);
         }
-
-        userRepository.findById(entity.getSubmitterId())
-                .ifPresent(user -> dto.setSubmitterName(user.getName()));
-
+        dto.setSubmitterName(submitterName);
         dto.setWorkflowStatus(switch (entity.getStatus()) {
             case DRAFT -> "草稿";
+            case QUEUED -> "提交中";
+            case START_FAILED -> "提交失败";
             case PROCESSING -> "审批中";
             case APPROVED -> "已通过";
             case REJECTED -> "已拒绝";
@@ -1,19 +1,38 @@
 package club.ppmc.workflow.service;
 
+import club.ppmc.workflow.domain.Role;
+import club.ppmc.workflow.domain.User;
+import club.ppmc.workflow.domain.UserGroup;
+import club.ppmc.workflow.domain.UserPrincipal;
+import club.ppmc.workflow.domain.UserStatus;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class JwtService {
@@ -25,6 +44,52 @@ public class JwtService {
     @Value("${app.jwt.expiration-ms}")
     private long EXPIRATION_TIME;
 
+    // 【新增】已验证 Token 缓存的开关与容量上限
+    @Value("${app.jwt.verified-cache.enabled:true}")
+    private boolean verifiedCacheEnabled;
+
+    @Value("${app.jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
+
+    // 【新增】是否在 Token 中嵌入授权信息 (角色、用户组、部门、安全纪元)
+    @Value("${app.jwt.embed-authorization-claims:true}")
+    private boolean embedAuthorizationClaims;
+
+    // 【新增】授权相关的 Claim 名称
+    private static final String CLAIM_NAME = "name";
+    private static final String CLAIM_ROLES = "roles";
+    private static final String CLAIM_GROUPS = "groups";
+    private static final String CLAIM_DEPARTMENT_ID = "deptId";
+    private static final String CLAIM_SECURITY_EPOCH = "epoch";
+
+    /**
+     * 【新增】启动时预先计算好的签名密钥和解析器 (JwtParser 是线程安全的)，
+     * 避免每次校验都重新 Base64 解码密钥并构造 Key。
+     */
+    private Key signInKey;
+    private JwtParser jwtParser;
+
+    /**
+     * 【新增】已验证 Claims 缓存。
+     * Key 为 Token 的 SHA-256 摘要 (不在内存中保存原始 Token)，Value 为已通过签名校验的 Claims。
+     * 条目在 Token 自身过期时失效，容量满时先清理过期条目，仍然满则不再缓存新条目。
+     */
+    private final Map<String, VerifiedClaims> verifiedClaimsCache = new ConcurrentHashMap<>();
+
+    private record VerifiedClaims(Claims claims, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return expiresAtMillis <= now;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        this.signInKey = buildSignInKey();
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+    }
+
     /**
      * 从 Token 中提取用户名 (在我们的应用中是 userId)
      * @param token JWT
@@ -45,6 +110,39 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * 【新增】一次性解析并校验 Token，返回已验证的 Claims。
+     * 命中缓存时直接返回，不再进行 HMAC 校验；未命中时解析一次并写入缓存。
+     *
+     * @param token JWT
+     * @return 已通过签名和过期校验的 Claims
+     * @throws ExpiredJwtException 如果 Token 已过期
+     * @throws io.jsonwebtoken.JwtException 如果 Token 格式或签名无效
+     */
+    public Claims parseVerifiedClaims(String token) {
+        if (!verifiedCacheEnabled) {
+            return extractAllClaims(token);
+        }
+
+        long now = System.currentTimeMillis();
+        String digest = digest(token);
+        VerifiedClaims cached = verifiedClaimsCache.get(digest);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return cached.claims();
+            }
+            verifiedClaimsCache.remove(digest, cached);
+        }
+
+        // 解析失败 (包括过期) 时异常直接抛出，不会写入缓存
+        Claims claims = extractAllClaims(token);
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            cacheVerifiedClaims(digest, new VerifiedClaims(claims, expiration.getTime()), now);
+        }
+        return claims;
+    }
+
     /**
      * 生成 Token
      * @param userDetails 用户信息
@@ -54,6 +152,28 @@ public class JwtService {
         return generateToken(new HashMap<>(), userDetails);
     }
 
+    /**
+     * 【新增】为用户生成 Token。开启 app.jwt.embed-authorization-claims 时，
+     * 会把姓名、角色、用户组、部门ID和安全纪元写入 Token，请求期间无需再查询用户表。
+     * 调用方需确保 user 的 roles 和 userGroups 已加载。
+     * @param user 用户实体
+     * @return JWT 字符串
+     */
+    public String generateToken(User user) {
+        if (!embedAuthorizationClaims) {
+            return generateToken(new HashMap<>(), user);
+        }
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_NAME, user.getName());
+        claims.put(CLAIM_ROLES, user.getRoles().stream().map(Role::getName).collect(Collectors.toList()));
+        claims.put(CLAIM_GROUPS, user.getUserGroups().stream().map(UserGroup::getName).collect(Collectors.toList()));
+        if (user.getDepartment() != null) {
+            claims.put(CLAIM_DEPARTMENT_ID, user.getDepartment().getId());
+        }
+        claims.put(CLAIM_SECURITY_EPOCH, user.getSecurityEpoch());
+        return generateToken(claims, user);
+    }
+
     /**
      * 生成包含额外 Claims 的 Token
      * @param extraClaims 额外的 Claims
@@ -66,7 +186,7 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -77,28 +197,87 @@ public class JwtService {
      * @return 是否有效
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(extractAllClaims(token), userDetails);
+    }
+
+    /**
+     * 【新增】基于已解析的 Claims 验证 Token 是否属于该用户且未过期，无需再次解析 Token。
+     * @param claims 已验证的 Claims
+     * @param userDetails 用户信息
+     * @return 是否有效
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return username != null
+                && username.equals(userDetails.getUsername())
+                && !claims.getExpiration().before(new Date());
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * 【新增】读取 Token 中的安全纪元
+     * @param claims 已验证的 Claims
+     * @return 安全纪元；未嵌入授权信息的 Token 返回 null
+     */
+    public Long extractSecurityEpoch(Claims claims) {
+        Number epoch = claims.get(CLAIM_SECURITY_EPOCH, Number.class);
+        return epoch != null ? epoch.longValue() : null;
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * 【新增】直接从 Token 中的授权信息构建用户快照。
+     * 调用方必须先确认 Token 的安全纪元仍然有效。
+     * @param claims 已验证且包含授权信息的 Claims
+     * @return 用户快照
+     */
+    @SuppressWarnings("unchecked")
+    public UserPrincipal buildPrincipal(Claims claims) {
+        Collection<String> roles = claims.get(CLAIM_ROLES, List.class);
+        Collection<String> groups = claims.get(CLAIM_GROUPS, List.class);
+        Number departmentId = claims.get(CLAIM_DEPARTMENT_ID, Number.class);
+
+        List<GrantedAuthority> authorities = roles == null ? Collections.emptyList() : roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority("ROLE_" + role))
+                .collect(Collectors.toList());
+        return new UserPrincipal(
+                claims.getSubject(),
+                claims.get(CLAIM_NAME, String.class),
+                // 只会为正常状态的用户签发 Token，状态变更会递增纪元使 Token 失效
+                UserStatus.ACTIVE,
+                authorities,
+                groups == null ? Collections.emptyList() : groups,
+                departmentId != null ? departmentId.longValue() : null
+        );
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
-    private Key getSignInKey() {
+    private void cacheVerifiedClaims(String digest, VerifiedClaims entry, long now) {
+        if (verifiedClaimsCache.size() >= verifiedCacheMaxSize) {
+            verifiedClaimsCache.values().removeIf(v -> v.isExpired(now));
+            if (verifiedClaimsCache.size() >= verifiedCacheMaxSize) {
+                // 缓存已满且没有可清理的过期条目，放弃缓存，保证内存有界
+                return;
+            }
+        }
+        verifiedClaimsCache.put(digest, entry);
+    }
+
+    private String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 JRE 都必须支持 SHA-256
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    private Key buildSignInKey() {
         byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
         return Keys.hmacShaKeyFor(keyBytes);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package club.ppmc.workflow.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author cc
+ * @description 【新增】基于滑动窗口的登录失败限流器。
+ * 分别按 (账号, IP) 和按 IP 统计窗口内的失败次数，超过阈值后在执行 BCrypt 校验之前直接拒绝。
+ * 账号维度只限制来自同一 IP 的尝试，攻击者无法通过故意输错密码把其他人锁在账号之外。
+ */
+@Component
+public class LoginAttemptLimiter {
+
+    /**
+     * 限流的维度 (ACCOUNT 指来自同一 IP 的同一账号)
+     */
+    public enum Scope {
+        ACCOUNT, IP
+    }
+
+    @Value("${app.security.login.failure-window-seconds:300}")
+    private long windowSeconds;
+
+    @Value("${app.security.login.max-failures-per-account:5}")
+    private int maxFailuresPerAccount;
+
+    @Value("${app.security.login.max-failures-per-ip:20}")
+    private int maxFailuresPerIp;
+
+    // 每个维度最多跟踪的 key 数量，防止随机账号名撑爆内存
+    @Value("${app.security.login.max-tracked-keys:100000}")
+    private int maxTrackedKeys;
+
+    // key 为 "账号|IP"
+    private final Map<String, Deque<Long>> accountFailures = new ConcurrentHashMap<>();
+    private final Map<String, Deque<Long>> ipFailures = new ConcurrentHashMap<>();
+
+    /**
+     * 检查账号或 IP 是否已被限流
+     *
+     * @param userId    登录账号
+     * @param ipAddress 客户端 IP
+     * @return 被限流的维度；未被限流时返回 null
+     */
+    public Scope checkBlocked(String userId, String ipAddress) {
+        long now = System.currentTimeMillis();
+        if (userId != null && countRecent(accountFailures.get(accountKey(userId, ipAddress)), now) >= maxFailuresPerAccount) {
+            return Scope.ACCOUNT;
+        }
+        if (ipAddress != null && countRecent(ipFailures.get(ipAddress), now) >= maxFailuresPerIp) {
+            return Scope.IP;
+        }
+        return null;
+    }
+
+    /**
+     * 记录一次登录失败
+     */
+    public void recordFailure(String userId, String ipAddress) {
+        long now = System.currentTimeMillis();
+        if (userId != null) {
+            record(accountFailures, accountKey(userId, ipAddress), now);
+        }
+        if (ipAddress != null) {
+            record(ipFailures, ipAddress, now);
+        }
+    }
+
+    /**
+     * 登录成功后清除该账号在此 IP 上的失败记录 (IP 维度保留，防止用一个有效账号掩护撞库)
+     */
+    public void recordSuccess(String userId, String ipAddress) {
+        if (userId != null) {
+            accountFailures.remove(accountKey(userId, ipAddress));
+        }
+    }
+
+    /**
+     * 定时清理窗口外的记录
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        accountFailures.values().removeIf(failures -> countRecent(failures, now) == 0);
+        ipFailures.values().removeIf(failures -> countRecent(failures, now) == 0);
+    }
+
+    private static String accountKey(String userId, String ipAddress) {
+        return ipAddress == null ? userId : userId + "|" + ipAddress;
+    }
+
+    private void record(Map<String, Deque<Long>> failuresByKey, String key, long now) {
+        Deque<Long> failures = failuresByKey.get(key);
+        if (failures == null) {
+            if (failuresByKey.size() >= maxTrackedKeys) {
+                return;
+            }
+            failures = failuresByKey.computeIfAbsent(key, k -> new ArrayDeque<>());
+        }
+        synchronized (failures) {
+            failures.addLast(now);
+        }
+    }
+
+    private int countRecent(Deque<Long> failures, long now) {
+        if (failures == null) {
+            return 0;
+        }
+        long windowStart = now - windowSeconds * 1000;
+        synchronized (failures) {
+            while (!failures.isEmpty() && failures.peekFirst() < windowStart) {
+                failures.pollFirst();
+            }
+            return failures.size();
+        }
+    }
+}
@@ -6,7 +6,6 @@ import club.ppmc.workflow.exception.ResourceNotFoundException;
 import club.ppmc.workflow.repository.FormDefinitionRepository;
 import club.ppmc.workflow.repository.MenuRepository;
 import club.ppmc.workflow.repository.RoleRepository;
-import club.ppmc.workflow.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,26 +26,21 @@ import java.util.stream.Collectors;
 public class MenuService {
 
     private final MenuRepository menuRepository;
-    private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final FormDefinitionRepository formDefinitionRepository;
 
     /**
      * 【核心修复】获取指定用户的可访问菜单树
      *  - 为管理员(ADMIN)增加特殊逻辑，使其能够看到所有菜单。
+     *  - 【优化】直接使用认证信息中的角色名，不再查询用户表。
      *
-     * @param userId 用户ID
+     * @param roleNames 当前用户的角色名集合 (不含 "ROLE_" 前缀)
      * @return 菜单 DTO 树形列表
      */
     @Transactional(readOnly = true)
-    public List<MenuDto> getMenuTreeForUser(String userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("未找到用户: " + userId));
-        Set<Role> userRoles = user.getRoles();
-
+    public List<MenuDto> getMenuTreeForRoles(Collection<String> roleNames) {
         // 检查用户是否拥有 "ADMIN" 角色
-        boolean isAdmin = userRoles.stream()
-                .anyMatch(role -> "ADMIN".equals(role.getName()));
+        boolean isAdmin = roleNames.contains("ADMIN");
 
         List<Menu> accessibleMenus;
 
@@ -58,10 +52,10 @@ public class MenuService {
                     .thenComparing(Menu::getName));
         } else {
             // 如果不是管理员，则按角色获取可见菜单
-            if (userRoles.isEmpty()) {
+            if (roleNames.isEmpty()) {
                 return Collections.emptyList();
             }
-            accessibleMenus = menuRepository.findVisibleMenusByRoles(userRoles);
+            accessibleMenus = menuRepository.findVisibleMenusByRoleNames(roleNames);
         }
 
         return buildMenuTree(accessibleMenus.stream().map(this::toDto).collect(Collectors.toList()));
@@ -0,0 +1,346 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.NotificationOutboxEvent;
+import club.ppmc.workflow.domain.User;
+import club.ppmc.workflow.repository.NotificationOutboxEventRepository;
+import club.ppmc.workflow.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * @author cc
+ * @description 【新增】通知发件箱的投递器。
+ * 单个后台线程按批读取已到期的通知：同一批中内容完全相同的通知只投递一次；
+ * 应用内通知通过 JDBC 批量插入，邮件通过 {@link JavaMailSender#send(SimpleMailMessage...)} 在同一个 SMTP 连接上发送。
+ * 业务事务提交后唤醒投递线程，多次唤醒合并为一次；定时任务负责投递重试和应用重启前遗留的通知。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final String INSERT_SQL = "INSERT INTO app_notification "
+            + "(user_id, title, content, type, link, is_read, created_at) VALUES (?, ?, ?, ?, ?, FALSE, ?)";
+    private static final String INCREMENT_UNREAD_SQL = "UPDATE notification_unread_counter "
+            + "SET unread_count = unread_count + ? WHERE user_id = ?";
+    private static final String INSERT_UNREAD_SQL = "INSERT INTO notification_unread_counter (user_id, unread_count) VALUES (?, ?)";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final NotificationOutboxEventRepository outboxRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final JavaMailSender mailSender;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.mail.from}")
+    private String fromEmail;
+
+    @Value("${app.notification-outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.notification-outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.notification-outbox.retry-backoff-ms:60000}")
+    private long retryBackoffMs;
+
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate transactionTemplate;
+    private final AtomicLong pendingCount = new AtomicLong();
+    // 【新增】写入应用内通知并增加未读数时持有，未读计数校正持有同一把锁，两者不会交错
+    private final ReentrantLock unreadCounterLock = new ReentrantLock();
+
+    private Timer lagTimer;
+    private Counter coalescedCounter;
+    private Counter retryCounter;
+
+    /**
+     * 通知已写入发件箱的事件，由 NotificationService 在写入事务中发布
+     */
+    public record NotificationEnqueuedEvent() {
+    }
+
+    /**
+     * 同一批中用于合并重复通知的键
+     */
+    private record CoalesceKey(NotificationOutboxEvent.Channel channel, String recipient, String title,
+                               String content, String type, String link) {
+        static CoalesceKey of(NotificationOutboxEvent event) {
+            return new CoalesceKey(event.getChannel(), event.getRecipient(), event.getTitle(),
+                    event.getContent(), event.getType(), event.getLink());
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        // 单线程投递；队列中最多保留一次待执行的投递，期间的唤醒直接丢弃 (下一次投递会一并处理)
+        this.executor = new ThreadPoolExecutor(
+                1, 1,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "notification-dispatcher");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy()
+        );
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("notification.outbox.pending", pendingCount, AtomicLong::get)
+                .description("通知发件箱中等待投递的通知数 (每次投递后刷新)")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("notification.outbox.lag")
+                .description("通知从写入发件箱到投递完成的延迟")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("notification.outbox.coalesced")
+                .description("因内容重复被合并的通知数")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("notification.outbox.retried")
+                .description("投递失败等待重试的通知数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationEnqueued(NotificationEnqueuedEvent event) {
+        wakeUp();
+    }
+
+    /**
+     * 定时投递到期的重试和遗留通知
+     */
+    @Scheduled(fixedDelayString = "${app.notification-outbox.poll-interval-ms:10000}", initialDelayString = "${app.notification-outbox.poll-interval-ms:10000}")
+    public void wakeUp() {
+        executor.execute(this::flush);
+    }
+
+    private void flush() {
+        try {
+            List<NotificationOutboxEvent> batch;
+            do {
+                batch = outboxRepository.findDue(LocalDateTime.now(), PageRequest.of(0, batchSize));
+                if (!batch.isEmpty()) {
+                    dispatch(batch);
+                }
+            } while (batch.size() == batchSize);
+            pendingCount.set(outboxRepository.countByStatus(NotificationOutboxEvent.Status.PENDING));
+        } catch (RuntimeException e) {
+            log.error("投递通知发件箱时发生异常，将在下次唤醒时重试", e);
+        }
+    }
+
+    private void dispatch(List<NotificationOutboxEvent> batch) {
+        Map<CoalesceKey, NotificationOutboxEvent> unique = new LinkedHashMap<>();
+        List<Long> duplicateIds = new ArrayList<>();
+        for (NotificationOutboxEvent event : batch) {
+            if (unique.putIfAbsent(CoalesceKey.of(event), event) != null) {
+                duplicateIds.add(event.getId());
+            }
+        }
+        if (!duplicateIds.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteByIds(duplicateIds));
+            coalescedCounter.increment(duplicateIds.size());
+        }
+        Map<NotificationOutboxEvent.Channel, List<NotificationOutboxEvent>> byChannel = unique.values().stream()
+                .collect(Collectors.groupingBy(NotificationOutboxEvent::getChannel));
+
+        dispatchInApp(byChannel.getOrDefault(NotificationOutboxEvent.Channel.IN_APP, List.of()));
+        dispatchEmail(byChannel.getOrDefault(NotificationOutboxEvent.Channel.EMAIL, List.of()));
+    }
+
+    /**
+     * 在一个事务中批量插入应用内通知并删除对应的发件箱记录
+     */
+    private void dispatchInApp(List<NotificationOutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Set<String> existingUsers = userRepository.findAllById(
+                        events.stream().map(NotificationOutboxEvent::getRecipient).collect(Collectors.toSet()))
+                .stream().map(User::getId).collect(Collectors.toSet());
+        List<Object[]> rows = new ArrayList<>(events.size());
+        List<Long> processedIds = new ArrayList<>(events.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (NotificationOutboxEvent event : events) {
+            processedIds.add(event.getId());
+            if (!existingUsers.contains(event.getRecipient())) {
+                log.warn("应用内通知 #{} 的接收用户 {} 不存在，已丢弃。", event.getId(), event.getRecipient());
+                continue;
+            }
+            rows.add(new Object[]{event.getRecipient(), event.getTitle(), event.getContent(), event.getType(), event.getLink(), now});
+        }
+        try {
+            runWithUnreadCounterLock(() -> transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+                incrementUnreadCounters(rows);
+                outboxRepository.deleteByIds(processedIds);
+            }));
+        } catch (RuntimeException e) {
+            log.error("批量写入 {} 条应用内通知失败", rows.size(), e);
+            Map<Long, String> failures = new HashMap<>();
+            events.forEach(event -> failures.put(event.getId(), errorMessage(e)));
+            recordFailures(events, failures);
+            return;
+        }
+        events.forEach(this::recordLag);
+        events.stream()
+                .map(NotificationOutboxEvent::getRecipient)
+                .filter(existingUsers::contains)
+                .distinct()
+                .forEach(userId -> eventPublisher.publishEvent(new PushNotificationHub.UnreadCountChangedEvent(userId)));
+        log.info("已投递 {} 条应用内通知。", rows.size());
+    }
+
+    /**
+     * 【新增】持有未读计数锁执行操作 (操作应在内部提交自己的事务)。
+     * 投递线程写入应用内通知的事务在锁内执行，{@link NotificationUnreadCounterReconciler} 每校正一块用户也持有这把锁。
+     */
+    public void runWithUnreadCounterLock(Runnable action) {
+        unreadCounterLock.lock();
+        try {
+            action.run();
+        } finally {
+            unreadCounterLock.unlock();
+        }
+    }
+
+    /**
+     * 【新增】在写入通知的同一事务中批量增加接收用户的未读数，尚无计数行的用户插入新行
+     */
+    private void incrementUnreadCounters(List<Object[]> rows) {
+        Map<String, Long> increments = rows.stream()
+                .collect(Collectors.groupingBy(row -> (String) row[0], LinkedHashMap::new, Collectors.counting()));
+        List<String> userIds = new ArrayList<>(increments.keySet());
+        int[] updated = jdbcTemplate.batchUpdate(INCREMENT_UNREAD_SQL,
+                userIds.stream().map(userId -> new Object[]{increments.get(userId), userId}).toList());
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            if (updated[i] == 0) {
+                missing.add(new Object[]{userIds.get(i), increments.get(userIds.get(i))});
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_UNREAD_SQL, missing);
+        }
+    }
+
+    /**
+     * 在同一个 SMTP 连接上发送本批全部邮件，只有失败的邮件保留在发件箱中等待重试
+     */
+    private void dispatchEmail(List<NotificationOutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Map<SimpleMailMessage, NotificationOutboxEvent> eventsByMessage = new IdentityHashMap<>();
+        for (NotificationOutboxEvent event : events) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(fromEmail);
+            message.setTo(event.getRecipient());
+            message.setSubject(event.getTitle());
+            message.setText(event.getContent());
+            eventsByMessage.put(message, event);
+        }
+
+        Map<Long, String> failures = new HashMap<>();
+        try {
+            mailSender.send(eventsByMessage.keySet().toArray(SimpleMailMessage[]::new));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                events.forEach(event -> failures.put(event.getId(), errorMessage(e)));
+            } else {
+                e.getFailedMessages().forEach((message, cause) -> {
+                    NotificationOutboxEvent event = eventsByMessage.get(message);
+                    if (event != null) {
+                        failures.put(event.getId(), errorMessage(cause));
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            events.forEach(event -> failures.put(event.getId(), errorMessage(e)));
+        }
+
+        List<NotificationOutboxEvent> sent = events.stream().filter(event -> !failures.containsKey(event.getId())).toList();
+        if (!sent.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxRepository.deleteByIds(sent.stream().map(NotificationOutboxEvent::getId).toList()));
+            sent.forEach(this::recordLag);
+            log.info("已发送 {} 封通知邮件。", sent.size());
+        }
+        if (!failures.isEmpty()) {
+            log.error("{} 封通知邮件发送失败，例如: {}", failures.size(), failures.values().iterator().next());
+            recordFailures(events, failures);
+        }
+    }
+
+    private void recordFailures(List<NotificationOutboxEvent> events, Map<Long, String> failures) {
+        Set<Long> failedIds = new HashSet<>(failures.keySet());
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(Duration.ofMillis(retryBackoffMs));
+        List<NotificationOutboxEvent> failed = events.stream().filter(event -> failedIds.contains(event.getId())).toList();
+        for (NotificationOutboxEvent event : failed) {
+            event.setAttempts(event.getAttempts() + 1);
+            event.setLastError(failures.get(event.getId()));
+            if (event.getAttempts() >= maxAttempts) {
+                event.setStatus(NotificationOutboxEvent.Status.FAILED);
+                log.error("通知 #{} ({} -> {}) 已投递 {} 次仍失败，不再重试。", event.getId(), event.getChannel(),
+                        event.getRecipient(), event.getAttempts());
+            } else {
+                event.setNextAttemptAt(nextAttemptAt);
+                retryCounter.increment();
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.saveAll(failed));
+    }
+
+    private void recordLag(NotificationOutboxEvent event) {
+        if (event.getCreatedAt() != null) {
+            lagTimer.record(Duration.between(event.getCreatedAt(), LocalDateTime.now()));
+        }
+    }
+
+    private static String errorMessage(Throwable e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
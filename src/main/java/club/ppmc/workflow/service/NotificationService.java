@@ -1,22 +1,23 @@
 package club.ppmc.workflow.service;
 
 import club.ppmc.workflow.domain.Notification;
-import club.ppmc.workflow.domain.User;
+import club.ppmc.workflow.domain.NotificationOutboxEvent;
 import club.ppmc.workflow.dto.NotificationDto;
-import club.ppmc.workflow.exception.ResourceNotFoundException;
+import club.ppmc.workflow.domain.NotificationUnreadCounter;
 import club.ppmc.workflow.repository.NotificationRepository;
-import club.ppmc.workflow.repository.UserRepository;
+import club.ppmc.workflow.repository.NotificationUnreadCounterRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -24,102 +25,111 @@ import java.util.List;
 @Slf4j
 public class NotificationService {
 
-    private final JavaMailSender mailSender;
+    private static final String OUTBOX_INSERT_SQL = "INSERT INTO notification_outbox "
+            + "(channel, recipient, title, content, type, link, status, attempts, next_attempt_at, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
     // --- 【新增】注入 Repository ---
     private final NotificationRepository notificationRepository;
-    private final UserRepository userRepository;
-
-    @Value("${app.mail.from}")
-    private String fromEmail;
+    // 【新增】未读数计数表，查询未读数时按主键读取
+    private final NotificationUnreadCounterRepository unreadCounterRepository;
+    // 批量写入发件箱 (一个任务的全部候选人只需一次 JDBC 批量插入)
+    private final JdbcTemplate jdbcTemplate;
+    // 【新增】未读数量变化时通知推送中心
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * 异步发送新任务通知邮件
+     * 【修改】登记新任务通知邮件，调用方事务提交后发送
      * @param toEmail 收件人邮箱
      * @param taskName 任务名称
      * @param formName 关联的表单名称
      * @param submitterName 提交人
      */
-    @Async // 异步执行，避免阻塞主流程（如启动工作流）
+    @Transactional
     public void sendNewTaskNotification(String toEmail, String taskName, String formName, String submitterName) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("【工作流通知】您有一个新的待办任务");
-
-            String text = String.format(
-                    "您好，\n\n您有一个新的待办任务需要处理。\n\n" +
-                            "任务名称: %s\n" +
-                            "相关申请: %s\n" +
-                            "发起人: %s\n\n" +
-                            "请及时登录系统进行处理。\n\n" +
-                            "此邮件为系统自动发送，请勿回复。",
-                    taskName, formName, submitterName
-            );
-            message.setText(text);
-
-            mailSender.send(message);
-            log.info("成功发送新任务通知邮件至: {}", toEmail);
-        } catch (Exception e) {
-            // 捕获所有异常，防止异步线程因异常而终止
-            log.error("发送邮件至 {} 失败: ", toEmail, e);
-        }
+        sendNewTaskNotifications(List.of(toEmail), taskName, formName, submitterName);
     }
 
     /**
-     * 【新增】异步发送任务超时/升级通知邮件
+     * 【新增】向多个收件人登记同一封新任务通知邮件 (例如任务的全部候选人)
+     * @param toEmails 收件人邮箱，重复的地址只发送一次
+     */
+    @Transactional
+    public void sendNewTaskNotifications(Collection<String> toEmails, String taskName, String formName, String submitterName) {
+        String text = String.format(
+                "您好，\n\n您有一个新的待办任务需要处理。\n\n" +
+                        "任务名称: %s\n" +
+                        "相关申请: %s\n" +
+                        "发起人: %s\n\n" +
+                        "请及时登录系统进行处理。\n\n" +
+                        "此邮件为系统自动发送，请勿回复。",
+                taskName, formName, submitterName
+        );
+        enqueue(NotificationOutboxEvent.Channel.EMAIL, toEmails, "【工作流通知】您有一个新的待办任务", text, null, null);
+    }
+
+    /**
+     * 【新增】登记任务超时/升级通知邮件，调用方事务提交后发送
      * @param toEmail 收件人邮箱
      * @param recipientName 收件人姓名
      * @param taskName 任务名称
      * @param formName 关联的表单名称
      * @param originalAssigneeName 原办理人姓名 (如果发生升级)
      */
-    @Async
+    @Transactional
     public void sendTaskOverdueNotification(String toEmail, String recipientName, String taskName, String formName, String originalAssigneeName) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("【工作流提醒】一个待办任务已超时");
-
-            boolean isEscalation = !recipientName.equals(originalAssigneeName);
-            String escalationText = isEscalation
-                    ? String.format("原办理人 %s 未及时处理，该任务现已转交由您处理。\n\n", originalAssigneeName)
-                    : "";
-
-            String text = String.format(
-                    "您好，%s，\n\n以下任务已超过预定处理时间。\n\n%s" +
-                            "任务名称: %s\n" +
-                            "相关申请: %s\n\n" +
-                            "请尽快登录系统处理，以免影响业务进度。\n\n" +
-                            "此邮件为系统自动发送，请勿回复。",
-                    recipientName, escalationText, taskName, formName
-            );
-            message.setText(text);
-
-            mailSender.send(message);
-            log.info("成功发送任务超时通知邮件至: {}", toEmail);
-        } catch (Exception e) {
-            log.error("发送任务超时邮件至 {} 失败: ", toEmail, e);
-        }
+        boolean isEscalation = !recipientName.equals(originalAssigneeName);
+        String escalationText = isEscalation
+                ? String.format("原办理人 %s 未及时处理，该任务现已转交由您处理。\n\n", originalAssigneeName)
+                : "";
+
+        String text = String.format(
+                "您好，%s，\n\n以下任务已超过预定处理时间。\n\n%s" +
+                        "任务名称: %s\n" +
+                        "相关申请: %s\n\n" +
+                        "请尽快登录系统处理，以免影响业务进度。\n\n" +
+                        "此邮件为系统自动发送，请勿回复。",
+                recipientName, escalationText, taskName, formName
+        );
+        enqueue(NotificationOutboxEvent.Channel.EMAIL, List.of(toEmail), "【工作流提醒】一个待办任务已超时", text, null, null);
     }
 
     // --- 【新增】应用内通知相关方法 ---
 
-    @Async
+    /**
+     * 【修改】在调用方事务中登记应用内通知，事务提交后由 NotificationDispatcher 批量写入
+     */
     @Transactional
     public void createInAppNotification(String userId, String title, String content, String type, String link) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("创建通知失败：未找到用户 " + userId));
-
-        Notification notification = new Notification();
-        notification.setUser(user);
-        notification.setTitle(title);
-        notification.setContent(content);
-        notification.setType(type);
-        notification.setLink(link);
-        notificationRepository.save(notification);
-        log.info("已为用户 {} 创建应用内通知: {}", userId, title);
+        createInAppNotifications(List.of(userId), title, content, type, link);
+    }
+
+    /**
+     * 【新增】为多个用户登记同一条应用内通知，所有用户的发件箱记录在一次 JDBC 批量插入中写入
+     * @param userIds 接收用户ID，重复的用户只通知一次
+     */
+    @Transactional
+    public void createInAppNotifications(Collection<String> userIds, String title, String content, String type, String link) {
+        enqueue(NotificationOutboxEvent.Channel.IN_APP, userIds, title, content, type, link);
+        log.debug("已为 {} 个用户登记应用内通知: {}", userIds.size(), title);
+    }
+
+    /**
+     * 在调用方事务中批量写入发件箱。写入失败时抛出异常并使调用方事务回滚 (通知与业务数据同时提交或同时回滚)；
+     * 投递失败 (SMTP 等) 发生在事务提交之后，由 NotificationDispatcher 重试，不影响调用方。
+     */
+    private void enqueue(NotificationOutboxEvent.Channel channel, Collection<String> recipients, String title, String content,
+                         String type, String link) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = recipients.stream()
+                .distinct()
+                .map(recipient -> new Object[]{channel.name(), recipient, title, content, type, link, now, now})
+                .toList();
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(OUTBOX_INSERT_SQL, rows);
+        eventPublisher.publishEvent(new NotificationDispatcher.NotificationEnqueuedEvent());
     }
 
     @Transactional(readOnly = true)
@@ -128,19 +138,30 @@ public class NotificationService {
                 .map(this::toDto);
     }
 
+    /**
+     * 【修改】从计数表读取未读数，不再统计通知表
+     */
     @Transactional(readOnly = true)
     public long getUnreadCount(String userId) {
-        return notificationRepository.countByUserIdAndIsRead(userId, false);
+        return unreadCounterRepository.findById(userId)
+                .map(NotificationUnreadCounter::getUnreadCount)
+                .orElse(0L);
     }
 
     @Transactional
     public void markAllAsRead(String userId) {
         notificationRepository.markAllAsReadByUserId(userId);
+        unreadCounterRepository.reset(userId);
+        eventPublisher.publishEvent(new PushNotificationHub.UnreadCountChangedEvent(userId));
     }
 
     @Transactional
     public void markAsRead(String userId, List<Long> ids) {
-        notificationRepository.markAsReadByIds(ids, userId);
+        int marked = notificationRepository.markAsReadByIds(ids, userId);
+        if (marked > 0) {
+            unreadCounterRepository.decrement(userId, marked);
+        }
+        eventPublisher.publishEvent(new PushNotificationHub.UnreadCountChangedEvent(userId));
     }
 
     private NotificationDto toDto(Notification entity) {
@@ -0,0 +1,111 @@
+package club.ppmc.workflow.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author cc
+ * @description 【新增】未读通知计数的定期校正。
+ * 计数在写入通知和标记已读时增量维护，但与通知表并发更新或直接修改通知表时可能产生偏差，
+ * 这里按通知表重新计算有偏差的计数，并为尚无计数行的用户补齐。应用启动后立即执行一次。
+ * 【修改】按用户ID分块校正，每块一个短事务：事务内先锁定这些用户的计数行 (与标记已读的扣减互斥)，
+ * 并在 {@link NotificationDispatcher#runWithUnreadCounterLock} 内执行 (与投递线程增加未读数互斥)，
+ * 不再用一条语句更新整张计数表。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationUnreadCounterReconciler {
+
+    private static final String UNREAD_COUNT = "(SELECT COUNT(*) FROM app_notification n WHERE n.user_id = c.user_id AND n.is_read = FALSE)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final NotificationDispatcher notificationDispatcher;
+
+    @Value("${app.notification.unread-reconcile-chunk-size:100}")
+    private int chunkSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.notification.unread-reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        int corrected = 0;
+        int inserted = 0;
+
+        // 已有计数行的用户
+        String selectCounterUsers = "SELECT user_id FROM notification_unread_counter WHERE user_id > ? "
+                + "ORDER BY user_id LIMIT " + chunkSize;
+        String lastUserId = "";
+        List<String> userIds;
+        do {
+            userIds = jdbcTemplate.queryForList(selectCounterUsers, String.class, lastUserId);
+            if (!userIds.isEmpty()) {
+                corrected += inChunkTransaction(userIds, this::correctCounters);
+                lastUserId = userIds.get(userIds.size() - 1);
+            }
+        } while (userIds.size() == chunkSize);
+
+        // 有未读通知但尚无计数行的用户
+        String selectMissingUsers = "SELECT DISTINCT n.user_id FROM app_notification n WHERE n.is_read = FALSE AND n.user_id > ? "
+                + "AND NOT EXISTS (SELECT 1 FROM notification_unread_counter c WHERE c.user_id = n.user_id) "
+                + "ORDER BY n.user_id LIMIT " + chunkSize;
+        lastUserId = "";
+        do {
+            userIds = jdbcTemplate.queryForList(selectMissingUsers, String.class, lastUserId);
+            if (!userIds.isEmpty()) {
+                inserted += inChunkTransaction(userIds, this::insertMissingCounters);
+                lastUserId = userIds.get(userIds.size() - 1);
+            }
+        } while (userIds.size() == chunkSize);
+
+        if (corrected > 0 || inserted > 0) {
+            log.info("已校正 {} 个用户的未读通知计数，补齐 {} 个用户的计数。", corrected, inserted);
+        }
+    }
+
+    private interface ChunkAction {
+        int apply(List<String> userIds, String idList);
+    }
+
+    /**
+     * 持有投递线程的未读计数锁，在一个短事务中校正一块用户
+     */
+    private int inChunkTransaction(List<String> userIds, ChunkAction action) {
+        String idList = "(" + String.join(",", Collections.nCopies(userIds.size(), "?")) + ")";
+        int[] affected = new int[1];
+        notificationDispatcher.runWithUnreadCounterLock(() -> affected[0] = transactionTemplate.execute(
+                status -> action.apply(userIds, idList)));
+        return affected[0];
+    }
+
+    private int correctCounters(List<String> userIds, String idList) {
+        // 先锁定计数行，再统计通知表：未提交的标记已读会在之后扣减，已提交的会被本次统计包含
+        jdbcTemplate.queryForList("SELECT user_id FROM notification_unread_counter WHERE user_id IN " + idList + " FOR UPDATE",
+                String.class, userIds.toArray());
+        return jdbcTemplate.update("UPDATE notification_unread_counter c SET unread_count = " + UNREAD_COUNT
+                + " WHERE c.user_id IN " + idList + " AND c.unread_count <> " + UNREAD_COUNT, userIds.toArray());
+    }
+
+    private int insertMissingCounters(List<String> userIds, String idList) {
+        return jdbcTemplate.update("INSERT INTO notification_unread_counter (user_id, unread_count) "
+                + "SELECT n.user_id, COUNT(*) FROM app_notification n WHERE n.is_read = FALSE AND n.user_id IN " + idList
+                + " AND NOT EXISTS (SELECT 1 FROM notification_unread_counter c WHERE c.user_id = n.user_id) "
+                + "GROUP BY n.user_id", userIds.toArray());
+    }
+}
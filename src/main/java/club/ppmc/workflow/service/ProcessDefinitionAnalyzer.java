@@ -0,0 +1,285 @@
+package club.ppmc.workflow.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.ConditionExpression;
+import org.camunda.bpm.model.bpmn.instance.ExclusiveGateway;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.camunda.bpm.model.bpmn.instance.UserTask;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author cc
+ * @description 【新增】流程定义分析器。
+ * 在部署时 (以及引擎启动后) 一次性解析 BPMN 模型，计算每个用户任务节点的可用决策，
+ * 并按流程定义ID缓存。已部署的流程定义不可变，因此请求期间无需再访问 BPMN 模型。
+ * 【新增】同时静态扫描 BPMN 中的所有表达式 (条件、办理人/候选人、委托与字段注入等)，得到流程引用的变量名，
+ * 用于只把这些表单字段写入流程变量。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProcessDefinitionAnalyzer {
+
+    private static final Pattern TASK_OUTCOME_PATTERN = Pattern.compile("\\$\\{taskOutcome\\s*==\\s*'([^']*)'\\}");
+    private static final Pattern CAMEL_CASE_BOUNDARY = Pattern.compile("([a-z])([A-Z])");
+    private static final List<String> DEFAULT_DECISIONS = List.of("APPROVED", "REJECTED");
+    private static final int MAX_SEARCH_DEPTH = 10;
+
+    // 【新增】变量引用分析
+    private static final Pattern STRING_LITERAL_PATTERN = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'|\"(?:[^\"\\\\]|\\\\.)*\"");
+    private static final Pattern VARIABLE_ACCESSOR_PATTERN = Pattern.compile("getVariable(?:Local|Typed)?\\(\\s*['\"]([^'\"]+)['\"]");
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("(?<![.\\w])[A-Za-z_][A-Za-z0-9_]*");
+    // 脚本、Java 类委托、决策表和传递全部变量的调用活动可能读取任意变量，无法静态分析
+    private static final Pattern UNANALYZABLE_PATTERN = Pattern.compile(
+            "camunda:class=|camunda:resource=|scriptFormat=|camunda:decisionRef=|camunda:variableMappingClass=|variables=\"all\"");
+    private static final Set<String> EL_RESERVED_WORDS = Set.of("and", "or", "not", "eq", "ne", "lt", "gt", "le", "ge",
+            "empty", "div", "mod", "true", "false", "null", "instanceof", "execution", "task", "variableScope", "authenticatedUserId");
+
+    private final RepositoryService repositoryService;
+    private final ApplicationContext applicationContext;
+
+    // 流程定义ID -> (用户任务 key -> 可用决策)
+    private final Map<String, Map<String, List<String>>> decisionsByDefinition = new ConcurrentHashMap<>();
+    // 【新增】流程定义ID -> 引用的变量名；为空表示流程可能读取任意变量
+    private final Map<String, Optional<Set<String>>> variablesByDefinition = new ConcurrentHashMap<>();
+
+    /**
+     * 引擎启动后预先分析所有流程的最新版本；旧版本在首次访问时按需分析
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        List<ProcessDefinition> definitions = repositoryService.createProcessDefinitionQuery()
+                .latestVersion()
+                .list();
+        definitions.forEach(definition -> analyze(definition.getId()));
+        log.info("已预先分析 {} 个流程定义的任务决策。", definitions.size());
+    }
+
+    /**
+     * 分析并缓存指定流程定义 (部署后调用)
+     *
+     * @param processDefinitionId 流程定义ID
+     */
+    public void analyze(String processDefinitionId) {
+        decisionsByDefinition.computeIfAbsent(processDefinitionId, this::resolveDecisions);
+        variablesByDefinition.computeIfAbsent(processDefinitionId, this::resolveReferencedVariables);
+    }
+
+    /**
+     * 【新增】获取流程定义中的表达式引用的变量名 (包括表达式中引用的委托通过 {@link ProcessVariableConsumer} 声明的变量)
+     *
+     * @param processDefinitionId 流程定义ID
+     * @return 变量名集合；流程包含脚本、Java 类委托等无法静态分析的元素，或加载模型失败时为空
+     */
+    public Optional<Set<String>> getReferencedVariables(String processDefinitionId) {
+        Optional<Set<String>> variables = variablesByDefinition.computeIfAbsent(processDefinitionId, this::resolveReferencedVariables);
+        return variables != null ? variables : Optional.empty();
+    }
+
+    /**
+     * 获取指定用户任务的可用决策
+     *
+     * @param processDefinitionId 流程定义ID
+     * @param taskDefinitionKey   用户任务节点ID
+     * @return 可用决策 (如 APPROVED、REJECTED、RETURN_TO_INITIATOR)，不可修改
+     */
+    public List<String> getAvailableDecisions(String processDefinitionId, String taskDefinitionKey) {
+        Map<String, List<String>> decisionsByTask = decisionsByDefinition.computeIfAbsent(processDefinitionId, this::resolveDecisions);
+        if (decisionsByTask == null) {
+            return DEFAULT_DECISIONS;
+        }
+        return decisionsByTask.getOrDefault(taskDefinitionKey, DEFAULT_DECISIONS);
+    }
+
+    private Map<String, List<String>> resolveDecisions(String processDefinitionId) {
+        BpmnModelInstance modelInstance;
+        try {
+            modelInstance = repositoryService.getBpmnModelInstance(processDefinitionId);
+        } catch (Exception e) {
+            // 不缓存失败结果，下次访问时重试
+            log.error("加载流程定义 {} 的 BPMN 模型失败, 将提供默认操作。", processDefinitionId, e);
+            return null;
+        }
+
+        Map<String, List<String>> decisionsByTask = new HashMap<>();
+        for (UserTask userTask : modelInstance.getModelElementsByType(UserTask.class)) {
+            decisionsByTask.put(userTask.getId(), resolveTaskDecisions(processDefinitionId, userTask));
+        }
+        return Map.copyOf(decisionsByTask);
+    }
+
+    private Optional<Set<String>> resolveReferencedVariables(String processDefinitionId) {
+        String xml;
+        try (InputStream model = repositoryService.getProcessModel(processDefinitionId)) {
+            xml = new String(model.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            // 不缓存失败结果，下次访问时重试
+            log.error("加载流程定义 {} 的 BPMN 模型失败, 将写入全部表单字段。", processDefinitionId, e);
+            return null;
+        }
+        Optional<Set<String>> extracted = extractReferencedVariables(xml);
+        if (extracted.isEmpty()) {
+            log.info("流程定义 {} 包含无法静态分析变量引用的元素，将写入全部表单字段。", processDefinitionId);
+            return Optional.empty();
+        }
+
+        Set<String> variables = new HashSet<>(extracted.get());
+        // 表达式引用的 Bean (如 ${archiveProcessDelegate}) 在代码中读取的变量
+        Set<String> beanVariables = new HashSet<>();
+        for (String name : variables) {
+            if (applicationContext.containsBean(name) && applicationContext.getBean(name) instanceof ProcessVariableConsumer consumer) {
+                beanVariables.addAll(consumer.getRequiredVariables());
+            }
+        }
+        variables.addAll(beanVariables);
+        log.debug("流程定义 {} 引用的变量: {}", processDefinitionId, variables);
+        return Optional.of(Set.copyOf(variables));
+    }
+
+    /**
+     * 【新增】从 BPMN XML 中提取表达式引用的变量名 (不含委托 Bean 声明的变量)
+     *
+     * @return 变量名集合；包含无法静态分析的元素或未闭合的表达式时为空
+     */
+    static Optional<Set<String>> extractReferencedVariables(String xml) {
+        if (UNANALYZABLE_PATTERN.matcher(xml).find()) {
+            return Optional.empty();
+        }
+        List<String> expressions = extractExpressions(unescapeXml(xml));
+        if (expressions == null) {
+            return Optional.empty();
+        }
+
+        Set<String> variables = new HashSet<>();
+        for (String expression : expressions) {
+            Matcher accessors = VARIABLE_ACCESSOR_PATTERN.matcher(expression);
+            while (accessors.find()) {
+                variables.add(accessors.group(1));
+            }
+            Matcher identifiers = IDENTIFIER_PATTERN.matcher(STRING_LITERAL_PATTERN.matcher(expression).replaceAll(""));
+            while (identifiers.find()) {
+                String identifier = identifiers.group();
+                if (!EL_RESERVED_WORDS.contains(identifier)) {
+                    variables.add(identifier);
+                }
+            }
+        }
+        return Optional.of(variables);
+    }
+
+    /**
+     * 【新增】按括号配对提取 ${...} 和 #{...} 表达式的内容。
+     * 表达式内部可以包含集合/Map 字面量的花括号，字符串字面量中的花括号和引号不参与配对。
+     *
+     * @return 表达式内容列表；存在未闭合的表达式时返回 null
+     */
+    static List<String> extractExpressions(String text) {
+        List<String> expressions = new ArrayList<>();
+        int i = 0;
+        while (i < text.length() - 1) {
+            char c = text.charAt(i);
+            if ((c != '$' && c != '#') || text.charAt(i + 1) != '{') {
+                i++;
+                continue;
+            }
+            int start = i + 2;
+            int depth = 1;
+            char quote = 0;
+            int j = start;
+            for (; j < text.length() && depth > 0; j++) {
+                char ch = text.charAt(j);
+                if (quote != 0) {
+                    if (ch == '\\') {
+                        j++;
+                    } else if (ch == quote) {
+                        quote = 0;
+                    }
+                } else if (ch == '\'' || ch == '"') {
+                    quote = ch;
+                } else if (ch == '{') {
+                    depth++;
+                } else if (ch == '}') {
+                    depth--;
+                }
+            }
+            if (depth > 0) {
+                return null;
+            }
+            expressions.add(text.substring(start, j - 1));
+            i = j;
+        }
+        return expressions;
+    }
+
+    private static String unescapeXml(String xml) {
+        return xml.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    private List<String> resolveTaskDecisions(String processDefinitionId, UserTask userTask) {
+        List<String> decisions = new ArrayList<>();
+        for (SequenceFlow flow : findDecisionFlows(userTask, 0)) {
+            ConditionExpression condition = flow.getConditionExpression();
+            if (condition != null && condition.getTextContent() != null) {
+                Matcher matcher = TASK_OUTCOME_PATTERN.matcher(condition.getTextContent().trim());
+                if (matcher.matches()) {
+                    String outcome = matcher.group(1);
+                    decisions.add(CAMEL_CASE_BOUNDARY.matcher(outcome).replaceAll("$1_$2").toUpperCase());
+                }
+            }
+        }
+
+        if (decisions.isEmpty()) {
+            log.debug("任务节点 '{}' (流程定义: {}) 未找到基于 'taskOutcome' 的条件分支, 将提供默认操作。",
+                    userTask.getId(), processDefinitionId);
+            return DEFAULT_DECISIONS;
+        }
+        return List.copyOf(decisions);
+    }
+
+    private Collection<SequenceFlow> findDecisionFlows(FlowNode currentNode, int depth) {
+        if (depth > MAX_SEARCH_DEPTH) {
+            log.warn("查找决策点时递归深度超过{}，已中止。节点ID: {}", MAX_SEARCH_DEPTH, currentNode.getId());
+            return Collections.emptyList();
+        }
+
+        Collection<SequenceFlow> outgoingFlows = currentNode.getOutgoing();
+        if (outgoingFlows.size() > 1 || (outgoingFlows.size() == 1 && outgoingFlows.iterator().next().getConditionExpression() != null)) {
+            return outgoingFlows;
+        }
+
+        if (outgoingFlows.size() == 1) {
+            FlowNode targetNode = outgoingFlows.iterator().next().getTarget();
+            if (targetNode instanceof ExclusiveGateway) {
+                return targetNode.getOutgoing();
+            }
+            if (targetNode != null) {
+                return findDecisionFlows(targetNode, depth + 1);
+            }
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,136 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.WorkflowTemplate;
+import club.ppmc.workflow.repository.RoleRepository;
+import club.ppmc.workflow.repository.WorkflowTemplateRepository;
+import lombok.RequiredArgsConstructor;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author cc
+ * @description 【新增】发起流程所需元数据的缓存。
+ * 按表单定义缓存关联的流程模板、最新版本的流程定义ID和静态流程变量 (例如财务角色)，
+ * 提交申请和启动流程时不再查询模板表、流程定义表和角色表。
+ * 这些数据只在部署流程、保存流程草稿、修改或删除表单、修改角色时变化，由对应服务显式失效。
+ */
+@Service
+@RequiredArgsConstructor
+public class ProcessStartMetadataCache {
+
+    private static final String FINANCE_ROLE_NAME = "FINANCE_APPROVER";
+
+    private final WorkflowTemplateRepository templateRepository;
+    private final RoleRepository roleRepository;
+    private final RepositoryService repositoryService;
+
+    private final Map<Long, Optional<StartMetadata>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 每次失效操作都会递增此代数。加载开始后若代数发生变化，则不写入缓存，
+     * 防止并发加载把失效前读到的旧数据重新放回缓存。
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * 发起流程所需的元数据
+     *
+     * @param templateId           流程模板ID
+     * @param processDefinitionKey 流程定义Key
+     * @param deployed             模板是否已部署
+     * @param processDefinitionId  最新版本的流程定义ID，未找到已部署的流程定义时为空
+     * @param formName             表单名称
+     * @param staticVariables      与提交人无关的流程变量
+     */
+    public record StartMetadata(Long templateId, String processDefinitionKey, boolean deployed,
+                                String processDefinitionId, String formName, Map<String, Object> staticVariables) {
+    }
+
+    /**
+     * 获取表单的流程元数据，未命中时加载
+     *
+     * @param formDefinitionId 表单定义ID
+     * @return 元数据；表单未关联流程模板时为空
+     */
+    public Optional<StartMetadata> get(Long formDefinitionId) {
+        Optional<StartMetadata> cached = cache.get(formDefinitionId);
+        if (cached != null) {
+            return cached;
+        }
+        long startGeneration = generation.get();
+        Optional<StartMetadata> loaded = templateRepository.findByFormDefinitionId(formDefinitionId).map(this::load);
+        if (generation.get() == startGeneration) {
+            cache.put(formDefinitionId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * 使单个表单的元数据失效。如果当前处于事务中，则在事务提交后执行。
+     */
+    public void invalidate(Long formDefinitionId) {
+        runAfterCommit(() -> {
+            generation.incrementAndGet();
+            cache.remove(formDefinitionId);
+        });
+    }
+
+    /**
+     * 立即移除单个表单的元数据 (例如缓存的流程定义已不可用，当前事务将回滚)
+     */
+    public void evict(Long formDefinitionId) {
+        generation.incrementAndGet();
+        cache.remove(formDefinitionId);
+    }
+
+    /**
+     * 使所有元数据失效 (例如角色被修改时)
+     */
+    public void invalidateAll() {
+        runAfterCommit(() -> {
+            generation.incrementAndGet();
+            cache.clear();
+        });
+    }
+
+    private StartMetadata load(WorkflowTemplate template) {
+        ProcessDefinition processDefinition = repositoryService.createProcessDefinitionQuery()
+                .processDefinitionKey(template.getProcessDefinitionKey())
+                .latestVersion()
+                .singleResult();
+
+        Map<String, Object> staticVariables = new HashMap<>();
+        roleRepository.findByName(FINANCE_ROLE_NAME).ifPresent(role -> staticVariables.put("financeRole", role.getName()));
+
+        return new StartMetadata(
+                template.getId(),
+                template.getProcessDefinitionKey(),
+                StringUtils.hasText(template.getCamundaDeploymentId()),
+                processDefinition != null ? processDefinition.getId() : null,
+                template.getFormDefinition().getName(),
+                Map.copyOf(staticVariables));
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package club.ppmc.workflow.service;
+
+import java.util.Set;
+
+/**
+ * @author cc
+ * @description 【新增】在代码中读取表单字段流程变量的委托 (JavaDelegate / 监听器) 实现此接口，声明其需要的变量。
+ * 这些读取 (execution.getVariable) 无法从 BPMN 表达式中静态分析得到；
+ * 按引用映射流程变量时，BPMN 中通过 Bean 名称引用了该委托的流程会同时提升这些字段。
+ */
+public interface ProcessVariableConsumer {
+
+    /**
+     * @return 委托需要的流程变量名
+     */
+    Set<String> getRequiredVariables();
+}
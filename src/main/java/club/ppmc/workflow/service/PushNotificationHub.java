@@ -0,0 +1,330 @@
+package club.ppmc.workflow.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author cc
+ * @description 【新增】待办与通知的服务端推送 (SSE) 中心。
+ * 按用户维护订阅，在业务事务提交之后推送增量事件 (task-added / task-removed / unread-count)，
+ * 前端无需再轮询待办列表和未读数量接口。
+ * 每个连接有独立的有界发送缓冲区，缓冲区满 (客户端消费过慢) 时直接关闭连接，由客户端重连后重新拉取一次全量数据；
+ * 发送在独立线程池中进行，不占用提交事务的线程；线程池的任务队列同样有界，
+ * 同一用户排队中的未读数量推送会合并为一次，队列满时丢弃未读数量推送、关闭无法调度发送的连接。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PushNotificationHub {
+
+    public static final String EVENT_TASK_ADDED = "task-added";
+    public static final String EVENT_TASK_REMOVED = "task-removed";
+    public static final String EVENT_UNREAD_COUNT = "unread-count";
+
+    private final NotificationService notificationService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.push.buffer-capacity:64}")
+    private int bufferCapacity;
+
+    @Value("${app.push.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    @Value("${app.push.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${app.push.sender-threads:2}")
+    private int senderThreads;
+
+    @Value("${app.push.sender-queue-capacity:1000}")
+    private int senderQueueCapacity;
+
+    private final Map<String, Set<Subscription>> subscriptionsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong subscriptionSequence = new AtomicLong();
+    // 已提交但尚未执行的未读数量推送，同一用户只排队一次
+    private final Set<String> pendingUnreadCounts = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor senderExecutor;
+    private Counter overflowCounter;
+    private Counter rejectedCounter;
+
+    /**
+     * 待办任务的可见范围：办理人，或候选用户和候选用户组
+     */
+    public record Audience(Set<String> userIds, Set<String> groupNames) {
+        public static final Audience NONE = new Audience(Set.of(), Set.of());
+
+        public boolean isEmpty() {
+            return userIds.isEmpty() && groupNames.isEmpty();
+        }
+
+        /**
+         * 返回在当前范围内、但不在另一范围内的部分
+         */
+        public Audience minus(Audience other) {
+            Set<String> users = new HashSet<>(userIds);
+            users.removeAll(other.userIds);
+            Set<String> groups = new HashSet<>(groupNames);
+            groups.removeAll(other.groupNames);
+            return new Audience(users, groups);
+        }
+    }
+
+    /**
+     * 待办任务变化事件，由任务投影在引擎事务中发布，事务提交后推送
+     *
+     * @param eventName {@link #EVENT_TASK_ADDED} 或 {@link #EVENT_TASK_REMOVED}
+     * @param audience  接收事件的用户和用户组
+     * @param payload   事件内容 (至少包含 camundaTaskId)
+     */
+    public record TaskInboxEvent(String eventName, Audience audience, Map<String, Object> payload) {
+    }
+
+    /**
+     * 用户未读通知数量变化事件
+     */
+    public record UnreadCountChangedEvent(String userId) {
+    }
+
+    private final class Subscription {
+        private final String userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final long sequence = subscriptionSequence.incrementAndGet();
+
+        private Subscription(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                // 客户端消费过慢，关闭连接；客户端重连时会重新拉取全量数据
+                overflowCounter.increment();
+                log.warn("用户 {} 的推送连接发送缓冲区已满，关闭连接。", userId);
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senderExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // 发送线程池已满，与缓冲区溢出一样关闭连接，由客户端重连后重新拉取
+                    rejectedCounter.increment();
+                    log.warn("推送发送队列已满，关闭用户 {} 的推送连接。", userId);
+                    draining.set(false);
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed.get() && (event = buffer.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开
+                unregister(this);
+            } finally {
+                draining.set(false);
+            }
+            if (!closed.get() && !buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                unregister(this);
+                buffer.clear();
+                emitter.complete();
+            }
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 每个连接同一时刻最多只有一个发送任务在排队，每个用户最多一个未读数量推送在排队；队列满时拒绝 (由调用方处理)
+        this.senderExecutor = new ThreadPoolExecutor(
+                senderThreads, senderThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(senderQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "push-sender-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        this.overflowCounter = Counter.builder("push.buffer.overflow")
+                .description("因发送缓冲区已满而关闭的推送连接数")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("push.sender.rejected")
+                .description("因发送线程池队列已满而被拒绝的推送任务数")
+                .register(meterRegistry);
+        Gauge.builder("push.connections", connectionCount, AtomicInteger::get)
+                .description("当前的推送连接数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscriptionsByUser.values().forEach(subscriptions -> List.copyOf(subscriptions).forEach(Subscription::close));
+        senderExecutor.shutdownNow();
+    }
+
+    /**
+     * 为用户建立推送连接。连接建立后立即推送一次当前的未读通知数量。
+     * 同一用户的连接数超过上限时，关闭最早建立的连接。
+     *
+     * @param userId 当前用户ID
+     * @return SSE 连接
+     */
+    public SseEmitter subscribe(String userId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscription subscription = new Subscription(userId, emitter);
+        emitter.onCompletion(() -> unregister(subscription));
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> unregister(subscription));
+
+        Set<Subscription> userSubscriptions = add(subscriptionsByUser, userId, subscription);
+        connectionCount.incrementAndGet();
+        if (userSubscriptions.size() > maxConnectionsPerUser) {
+            userSubscriptions.stream().filter(s -> s != subscription)
+                    .min(Comparator.comparingLong(s -> s.sequence))
+                    .ifPresent(Subscription::close);
+        }
+
+        pushUnreadCount(userId);
+        return emitter;
+    }
+
+    /**
+     * 事务提交后推送待办变化；没有事务时立即推送。
+     * 用户组按在线用户的用户快照 (随成员变化失效) 匹配，连接建立后加入用户组的用户也能收到事件。
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskInboxEvent(TaskInboxEvent event) {
+        Set<String> recipients = new HashSet<>();
+        event.audience().userIds().stream().filter(subscriptionsByUser::containsKey).forEach(recipients::add);
+        if (!event.audience().groupNames().isEmpty()) {
+            for (String userId : subscriptionsByUser.keySet()) {
+                if (!recipients.contains(userId) && isInAnyGroup(userId, event.audience().groupNames())) {
+                    recipients.add(userId);
+                }
+            }
+        }
+        recipients.forEach(userId -> subscriptionsByUser.getOrDefault(userId, Set.of()).forEach(subscription ->
+                subscription.enqueue(SseEmitter.event().name(event.eventName()).data(event.payload()))));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUnreadCountChanged(UnreadCountChangedEvent event) {
+        if (subscriptionsByUser.containsKey(event.userId())) {
+            pushUnreadCount(event.userId());
+        }
+    }
+
+    /**
+     * 定时发送心跳注释行，防止代理因空闲断开连接，同时及时发现已断开的客户端
+     */
+    @Scheduled(fixedDelayString = "${app.push.heartbeat-ms:25000}", initialDelayString = "${app.push.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        subscriptionsByUser.values().forEach(subscriptions -> subscriptions.forEach(
+                subscription -> subscription.enqueue(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    private void pushUnreadCount(String userId) {
+        // 计数查询放在发送线程中执行，不阻塞提交事务的线程；已有排队中的推送时合并，执行时查询的总是最新数量
+        if (!pendingUnreadCounts.add(userId)) {
+            return;
+        }
+        try {
+            senderExecutor.execute(() -> sendUnreadCount(userId));
+        } catch (RejectedExecutionException e) {
+            // 丢弃本次推送，下一次数量变化时会推送最新值
+            pendingUnreadCounts.remove(userId);
+            rejectedCounter.increment();
+            log.warn("推送发送队列已满，丢弃用户 {} 的未读数量推送。", userId);
+        }
+    }
+
+    private void sendUnreadCount(String userId) {
+        pendingUnreadCounts.remove(userId);
+        Set<Subscription> subscriptions = subscriptionsByUser.get(userId);
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            return;
+        }
+        try {
+            long count = notificationService.getUnreadCount(userId);
+            subscriptions.forEach(subscription -> subscription.enqueue(
+                    SseEmitter.event().name(EVENT_UNREAD_COUNT).data(Map.of("count", count))));
+        } catch (RuntimeException e) {
+            log.warn("查询用户 {} 的未读通知数量失败，本次不推送。", userId, e);
+        }
+    }
+
+    private void unregister(Subscription subscription) {
+        subscription.closed.set(true);
+        if (remove(subscriptionsByUser, subscription.userId, subscription)) {
+            connectionCount.decrementAndGet();
+        }
+    }
+
+    private boolean isInAnyGroup(String userId, Set<String> groupNames) {
+        try {
+            return userPrincipalCache.get(userId).getGroupNames().stream().anyMatch(groupNames::contains);
+        } catch (RuntimeException e) {
+            // 用户已被删除等情况
+            return false;
+        }
+    }
+
+    // 增删在 compute 中完成，避免与清理空集合的操作交错而丢失订阅
+    private static Set<Subscription> add(Map<String, Set<Subscription>> index, String key, Subscription subscription) {
+        return index.compute(key, (k, set) -> {
+            Set<Subscription> result = set != null ? set : ConcurrentHashMap.newKeySet();
+            result.add(subscription);
+            return result;
+        });
+    }
+
+    private static boolean remove(Map<String, Set<Subscription>> index, String key, Subscription subscription) {
+        AtomicBoolean removed = new AtomicBoolean();
+        index.computeIfPresent(key, (k, set) -> {
+            removed.set(set.remove(subscription));
+            return set.isEmpty() ? null : set;
+        });
+        return removed.get();
+    }
+}
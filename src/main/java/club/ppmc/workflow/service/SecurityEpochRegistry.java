@@ -0,0 +1,104 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author cc
+ * @description 【新增】用户安全纪元 (security epoch) 的内存表。
+ * 用户的姓名、角色、用户组、部门或状态被修改时，该用户的纪元会递增，
+ * 携带旧纪元的 JWT 将被 JwtAuthFilter 拒绝。
+ * 内存表在后台定时从数据库刷新，以同步其他节点的变更。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SecurityEpochRegistry {
+
+    private final UserRepository userRepository;
+
+    private final Map<String, Long> epochs = new ConcurrentHashMap<>();
+
+    /**
+     * 获取用户当前的安全纪元
+     *
+     * @param userId 用户ID
+     * @return 当前纪元；如果内存表中还没有该用户 (例如刚创建)，返回 null
+     */
+    public Long getCurrentEpoch(String userId) {
+        return epochs.get(userId);
+    }
+
+    /**
+     * 【新增】立即从数据库重新读取单个用户的纪元。
+     * 用于 Token 携带的纪元比内存表更新的情况 (其他节点修改了用户并签发了新 Token，本节点尚未定时刷新)。
+     *
+     * @param userId 用户ID
+     * @return 刷新后的纪元；数据库中没有该用户时返回 null
+     */
+    public Long refreshEpoch(String userId) {
+        merge(userRepository.findSecurityEpochsByIdIn(List.of(userId)));
+        return epochs.get(userId);
+    }
+
+    /**
+     * 递增指定用户的安全纪元，使其已签发的 Token 失效。
+     * 必须在事务中调用；内存表在事务提交后从数据库重新读取这些用户的纪元。
+     *
+     * @param userIds 用户ID集合
+     */
+    @Transactional
+    public void bump(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        userRepository.incrementSecurityEpoch(userIds);
+        List<String> ids = List.copyOf(userIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                merge(userRepository.findSecurityEpochsByIdIn(ids));
+            }
+        });
+    }
+
+    /**
+     * 启动完成后 (初始化数据已写入) 加载全量纪元表
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    /**
+     * 定时从数据库全量刷新纪元表
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.epoch-refresh-ms:30000}", initialDelayString = "${app.jwt.epoch-refresh-ms:30000}")
+    public void refresh() {
+        try {
+            merge(userRepository.findAllSecurityEpochs());
+        } catch (Exception e) {
+            log.error("刷新用户安全纪元表失败", e);
+        }
+    }
+
+    private void merge(List<UserRepository.UserSecurityEpoch> rows) {
+        // 纪元只增不减，取较大值，避免较早开始的刷新覆盖刚提交的新纪元
+        for (UserRepository.UserSecurityEpoch row : rows) {
+            epochs.merge(row.getId(), row.getSecurityEpoch(), Math::max);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author cc
+ * @description 【新增】实时推送 (SSE) 订阅凭证。
+ * 浏览器 EventSource 无法设置请求头，订阅前先通过已认证的请求换取一张短时有效、只能使用一次的随机凭证，
+ * 订阅接口只接受该凭证作为参数，JWT 不会出现在 URL、访问日志和浏览器历史中。
+ * 凭证只保存在签发它的节点的内存中，多节点部署时订阅请求须与签发请求落在同一节点 (推送连接本身也是节点本地的)。
+ */
+@Component
+public class StreamTicketService {
+
+    private static final int TICKET_BYTES = 32;
+
+    @Value("${app.push.stream-ticket-ttl-seconds:30}")
+    private long ttlSeconds;
+
+    // 同时有效的凭证数量上限，防止已登录用户无限申请撑爆内存
+    @Value("${app.push.max-stream-tickets:10000}")
+    private int maxTickets;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    private record Ticket(String userId, long expiresAtMillis) {
+    }
+
+    /**
+     * 为用户签发一张订阅凭证
+     *
+     * @param userId 已认证的用户
+     * @return 凭证字符串 (URL 安全)
+     */
+    public String issue(String userId) {
+        if (tickets.size() >= maxTickets) {
+            evictExpired();
+            if (tickets.size() >= maxTickets) {
+                throw new TooManyRequestsException("推送订阅请求过多，请稍后重试");
+            }
+        }
+        byte[] bytes = new byte[TICKET_BYTES];
+        secureRandom.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(ticket, new Ticket(userId, System.currentTimeMillis() + ttlSeconds * 1000));
+        return ticket;
+    }
+
+    /**
+     * 兑换凭证：无论是否过期，凭证都会被立即作废
+     *
+     * @return 凭证所属的用户；凭证不存在或已过期时返回 null
+     */
+    public String redeem(String ticket) {
+        Ticket redeemed = ticket == null ? null : tickets.remove(ticket);
+        if (redeemed == null || redeemed.expiresAtMillis() < System.currentTimeMillis()) {
+            return null;
+        }
+        return redeemed.userId();
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    /**
+     * 定时清理过期未兑换的凭证
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        tickets.values().removeIf(ticket -> ticket.expiresAtMillis() < now);
+    }
+}
@@ -0,0 +1,549 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.FormDefinition;
+import club.ppmc.workflow.domain.FormSubmission;
+import club.ppmc.workflow.dto.FormFieldConfigDto;
+import club.ppmc.workflow.dto.SubmissionImportJobDto;
+import club.ppmc.workflow.exception.ResourceNotFoundException;
+import club.ppmc.workflow.exception.TooManyRequestsException;
+import club.ppmc.workflow.repository.FormDefinitionRepository;
+import club.ppmc.workflow.repository.FormSubmissionRepository;
+import club.ppmc.workflow.repository.UserRepository;
+import club.ppmc.workflow.utils.CsvReader;
+import club.ppmc.workflow.utils.FormSchemaParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author cc
+ * @description 【新增】申请批量导入服务。
+ * 上传的 NDJSON / CSV 先写入临时文件，再由后台导入任务逐行读取、按表单结构校验，
+ * 通过 JDBC 批量插入 QUEUED 状态的申请，最后按块提交到并行的启动线程，由 {@link SubmissionStartService} 启动工作流。
+ * 任何时刻内存中只保留一个插入批次和有限个待启动的块，与文件大小无关；导入进度和逐行错误通过任务ID查询。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SubmissionImportService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    // 可选的特殊列：指定申请的提交人，默认为执行导入的管理员
+    private static final String SUBMITTER_COLUMN = "_submitterId";
+    private static final String INITIAL_ACTION = "proceed";
+    private static final String INSERT_SQL = "INSERT INTO form_submission "
+            + "(form_definition_id, data_json, created_at, submitter_id, status, initial_action, import_job_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_CACHED_SUBMITTERS = 10_000;
+
+    private final FormDefinitionRepository formDefinitionRepository;
+    private final ProcessStartMetadataCache processStartMetadataCache;
+    private final FormSchemaCache formSchemaCache;
+    private final FormSubmissionRepository formSubmissionRepository;
+    private final UserRepository userRepository;
+    private final SubmissionStartService submissionStartService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.import.max-bytes:104857600}")
+    private long maxBytes;
+
+    @Value("${app.import.max-record-chars:65536}")
+    private int maxRecordChars;
+
+    @Value("${app.import.insert-batch-size:500}")
+    private int insertBatchSize;
+
+    @Value("${app.import.start-chunk-size:20}")
+    private int startChunkSize;
+
+    @Value("${app.import.start-threads:4}")
+    private int startThreads;
+
+    @Value("${app.import.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${app.import.max-errors:1000}")
+    private int maxErrors;
+
+    @Value("${app.import.job-retention-ms:3600000}")
+    private long jobRetentionMs;
+
+    private ThreadPoolExecutor jobExecutor;
+    private ThreadPoolExecutor startExecutor;
+    private TransactionTemplate transactionTemplate;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    private enum JobStatus {
+        RECEIVED, PARSING, STARTING, COMPLETED, FAILED
+    }
+
+    private final class ImportJob {
+        private final String id = UUID.randomUUID().toString();
+        private final Long formDefinitionId;
+        private final String createdBy;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile LocalDateTime finishedAt;
+        private volatile JobStatus status = JobStatus.RECEIVED;
+        private volatile String message;
+        private final AtomicLong totalRows = new AtomicLong();
+        private final AtomicLong acceptedRows = new AtomicLong();
+        private final AtomicLong invalidRows = new AtomicLong();
+        private final AtomicLong startedCount = new AtomicLong();
+        private final AtomicLong startFailedCount = new AtomicLong();
+        private final Queue<SubmissionImportJobDto.RowError> errors = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger errorCount = new AtomicInteger();
+
+        private ImportJob(Long formDefinitionId, String createdBy) {
+            this.formDefinitionId = formDefinitionId;
+            this.createdBy = createdBy;
+        }
+
+        private void addError(Long row, Long submissionId, String message) {
+            if (errorCount.incrementAndGet() <= maxErrors) {
+                errors.add(new SubmissionImportJobDto.RowError(row, submissionId, message));
+            }
+        }
+
+        private void finish(JobStatus finalStatus) {
+            this.status = finalStatus;
+            this.finishedAt = LocalDateTime.now();
+        }
+
+        private SubmissionImportJobDto toDto() {
+            return SubmissionImportJobDto.builder()
+                    .jobId(id)
+                    .formDefinitionId(formDefinitionId)
+                    .status(status.name())
+                    .createdBy(createdBy)
+                    .createdAt(createdAt)
+                    .finishedAt(finishedAt)
+                    .totalRows(totalRows.get())
+                    .acceptedRows(acceptedRows.get())
+                    .invalidRows(invalidRows.get())
+                    .startedCount(startedCount.get())
+                    .startFailedCount(startFailedCount.get())
+                    .errors(List.copyOf(errors))
+                    .errorsTruncated(errorCount.get() > maxErrors)
+                    .message(message)
+                    .build();
+        }
+    }
+
+    /**
+     * 导入时使用的表单结构：输入字段 (按ID) 和 CSV 表头到字段ID的映射 (表头可使用字段ID或标签)
+     */
+    private record ImportSchema(Map<String, FormFieldConfigDto> fieldsById, Set<String> requiredFieldIds,
+                                Map<String, String> headerToFieldId) {
+    }
+
+    /**
+     * 一行解析后的数据；error 不为空表示该行校验失败
+     */
+    private record ParsedRow(Map<String, Object> data, String error) {
+        static ParsedRow invalid(String error) {
+            return new ParsedRow(null, error);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        this.jobExecutor = newExecutor(maxConcurrentJobs, maxConcurrentJobs, "submission-import-");
+        // 每个导入任务通过信号量限制在途的块数，队列长度按最多同时执行的任务数预留
+        this.startExecutor = newExecutor(startThreads, startThreads * 2 * maxConcurrentJobs, "submission-import-start-");
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobExecutor.shutdownNow();
+        startExecutor.shutdownNow();
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threads, int queueCapacity, String threadNamePrefix) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadNamePrefix + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * 接收导入文件并创建后台导入任务
+     *
+     * @param formDefinitionId 表单定义ID
+     * @param format           {@link #FORMAT_NDJSON} 或 {@link #FORMAT_CSV}
+     * @param body             请求体 (UTF-8)
+     * @param operatorId       执行导入的管理员ID，也是未指定 _submitterId 的行的提交人
+     * @return 新建任务的进度
+     * @throws IllegalArgumentException 格式不支持或文件过大
+     * @throws IllegalStateException    表单未关联已部署的工作流
+     * @throws TooManyRequestsException 正在执行的导入任务过多
+     */
+    public SubmissionImportJobDto createImportJob(Long formDefinitionId, String format, InputStream body, String operatorId) throws IOException {
+        if (!FORMAT_NDJSON.equals(format) && !FORMAT_CSV.equals(format)) {
+            throw new IllegalArgumentException("不支持的导入格式，请使用 application/x-ndjson 或 text/csv");
+        }
+        FormDefinition formDefinition = formDefinitionRepository.findById(formDefinitionId)
+                .orElseThrow(() -> new ResourceNotFoundException("未找到表单定义 ID: " + formDefinitionId));
+        ProcessStartMetadataCache.StartMetadata metadata = processStartMetadataCache.get(formDefinitionId)
+                .orElseThrow(() -> new IllegalStateException("此表单未关联任何工作流，无法导入申请。"));
+        if (!metadata.deployed()) {
+            throw new IllegalStateException("此表单关联的工作流尚未部署，无法导入申请。");
+        }
+        ImportSchema schema = toImportSchema(formSchemaCache.get(formDefinition));
+
+        // 先完整接收到临时文件，导入过程不依赖请求连接
+        Path file = Files.createTempFile("submission-import-", "." + format);
+        try {
+            spool(body, file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        ImportJob job = new ImportJob(formDefinitionId, operatorId);
+        jobs.put(job.id, job);
+        try {
+            jobExecutor.execute(() -> runJob(job, formDefinitionId, format, schema, file));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(file);
+            throw new TooManyRequestsException("正在执行的导入任务过多，请稍后再试");
+        }
+        log.info("管理员 {} 创建了表单 #{} 的申请导入任务 {}。", operatorId, formDefinitionId, job.id);
+        return job.toDto();
+    }
+
+    /**
+     * 查询导入任务的进度
+     */
+    public SubmissionImportJobDto getImportJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("未找到导入任务: " + jobId);
+        }
+        return job.toDto();
+    }
+
+    /**
+     * 定时清理已结束且超过保留时间的任务
+     */
+    @Scheduled(fixedDelay = 600_000)
+    public void evictFinishedJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(jobRetentionMs));
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    private void spool(InputStream body, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new IllegalArgumentException("导入文件不能超过 " + maxBytes + " 字节");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private ImportSchema toImportSchema(FormSchemaParser.ParsedSchema parsed) {
+        // 字段ID重复时与解析结果一致，以第一个字段为准
+        Map<String, FormFieldConfigDto> fieldsById = parsed.getFieldsById();
+        Map<String, String> headerToFieldId = new HashMap<>();
+        fieldsById.values().forEach(field -> headerToFieldId.putIfAbsent(field.getLabel(), field.getId()));
+        // 字段ID优先于同名的标签
+        fieldsById.keySet().forEach(id -> headerToFieldId.put(id, id));
+        headerToFieldId.put(SUBMITTER_COLUMN, SUBMITTER_COLUMN);
+        return new ImportSchema(fieldsById, parsed.getRequiredFieldIds(), headerToFieldId);
+    }
+
+    private void runJob(ImportJob job, Long formDefinitionId, String format, ImportSchema schema, Path file) {
+        submissionStartService.registerImportJob(job.id);
+        try {
+            job.status = JobStatus.PARSING;
+            parseAndInsert(job, formDefinitionId, format, schema, file);
+            job.status = JobStatus.STARTING;
+            startQueuedSubmissions(job);
+            job.finish(JobStatus.COMPLETED);
+            log.info("导入任务 {} 完成：共 {} 行，保存 {} 行，启动成功 {} 个，启动失败 {} 个。", job.id,
+                    job.totalRows.get(), job.acceptedRows.get(), job.startedCount.get(), job.startFailedCount.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.message = "导入任务被中断，已保存的申请将由定时扫描启动";
+            job.finish(JobStatus.FAILED);
+        } catch (Exception e) {
+            log.error("导入任务 {} 失败", job.id, e);
+            job.message = e.getMessage();
+            job.finish(JobStatus.FAILED);
+        } finally {
+            // 注销后，未启动的申请 (例如任务中途失败) 会由补偿扫描继续启动
+            submissionStartService.unregisterImportJob(job.id);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("删除导入临时文件 {} 失败", file, e);
+            }
+        }
+    }
+
+    // --- 解析、校验与批量插入 ---
+
+    private void parseAndInsert(ImportJob job, Long formDefinitionId, String format, ImportSchema schema, Path file) throws IOException {
+        Map<String, Boolean> knownSubmitters = new HashMap<>();
+        List<Object[]> batch = new ArrayList<>(insertBatchSize);
+        try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            CsvReader csvReader = FORMAT_CSV.equals(format) ? new CsvReader(reader) : null;
+            List<String> header = csvReader != null ? readCsvHeader(csvReader, schema) : null;
+            long row = 0;
+            while (true) {
+                ParsedRow parsed;
+                if (csvReader != null) {
+                    List<String> record = csvReader.readRecord(maxRecordChars);
+                    if (record == null) {
+                        break;
+                    }
+                    if (record.size() == 1 && record.get(0).isBlank()) {
+                        continue; // 空行
+                    }
+                    parsed = parseCsvRecord(record, header, schema);
+                } else {
+                    String line = readLine(reader);
+                    if (line == null) {
+                        break;
+                    }
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    parsed = parseJsonLine(line, schema);
+                }
+                row++;
+                job.totalRows.incrementAndGet();
+
+                String submitterId = job.createdBy;
+                if (parsed.error() == null) {
+                    Object submitter = parsed.data().remove(SUBMITTER_COLUMN);
+                    if (submitter != null && StringUtils.hasText(submitter.toString())) {
+                        submitterId = submitter.toString().trim();
+                        if (!isKnownUser(submitterId, knownSubmitters)) {
+                            parsed = ParsedRow.invalid("提交人不存在: " + submitterId);
+                        }
+                    }
+                }
+                if (parsed.error() != null) {
+                    job.invalidRows.incrementAndGet();
+                    job.addError(row, null, parsed.error());
+                    continue;
+                }
+
+                batch.add(new Object[]{formDefinitionId, objectMapper.writeValueAsString(parsed.data()),
+                        Timestamp.valueOf(LocalDateTime.now()), submitterId,
+                        FormSubmission.SubmissionStatus.QUEUED.name(), INITIAL_ACTION, job.id});
+                if (batch.size() >= insertBatchSize) {
+                    insertBatch(job, batch);
+                }
+            }
+            insertBatch(job, batch);
+        }
+    }
+
+    private List<String> readCsvHeader(CsvReader csvReader, ImportSchema schema) throws IOException {
+        List<String> header = csvReader.readRecord(maxRecordChars);
+        if (header == null) {
+            throw new IllegalArgumentException("CSV 文件为空，缺少表头");
+        }
+        List<String> fieldIds = new ArrayList<>(header.size());
+        for (String column : header) {
+            String name = column.strip();
+            if (fieldIds.isEmpty() && name.startsWith("\uFEFF")) {
+                name = name.substring(1); // Excel 导出的 UTF-8 BOM
+            }
+            String fieldId = schema.headerToFieldId().get(name);
+            if (fieldId == null) {
+                throw new IllegalArgumentException("CSV 表头中的列 '" + name + "' 不是表单字段");
+            }
+            fieldIds.add(fieldId);
+        }
+        return fieldIds;
+    }
+
+    private ParsedRow parseCsvRecord(List<String> record, List<String> header, ImportSchema schema) {
+        if (record.size() != header.size()) {
+            return ParsedRow.invalid("列数 (" + record.size() + ") 与表头 (" + header.size() + ") 不一致");
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String value = record.get(i);
+            if (value.isEmpty()) {
+                continue; // CSV 中的空单元格视为未填写
+            }
+            String fieldId = header.get(i);
+            FormFieldConfigDto field = schema.fieldsById().get(fieldId);
+            if (field != null && "InputNumber".equals(field.getType())) {
+                try {
+                    data.put(fieldId, new BigDecimal(value.strip()));
+                } catch (NumberFormatException e) {
+                    return ParsedRow.invalid("字段 '" + field.getLabel() + "' 必须是数字");
+                }
+            } else {
+                data.put(fieldId, value);
+            }
+        }
+        return validate(data, schema);
+    }
+
+    private ParsedRow parseJsonLine(String line, ImportSchema schema) {
+        Map<String, Object> data;
+        try {
+            data = objectMapper.readValue(line, new TypeReference<LinkedHashMap<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            return ParsedRow.invalid("不是有效的 JSON 对象: " + e.getOriginalMessage());
+        }
+        if (data == null) {
+            return ParsedRow.invalid("不是有效的 JSON 对象");
+        }
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            FormFieldConfigDto field = schema.fieldsById().get(entry.getKey());
+            if (field != null && "InputNumber".equals(field.getType())
+                    && entry.getValue() != null && !(entry.getValue() instanceof Number)) {
+                return ParsedRow.invalid("字段 '" + field.getLabel() + "' 必须是数字");
+            }
+        }
+        return validate(data, schema);
+    }
+
+    private ParsedRow validate(Map<String, Object> data, ImportSchema schema) {
+        for (String key : data.keySet()) {
+            if (!SUBMITTER_COLUMN.equals(key) && !schema.fieldsById().containsKey(key)) {
+                return ParsedRow.invalid("未知字段: " + key);
+            }
+        }
+        for (String requiredId : schema.requiredFieldIds()) {
+            Object value = data.get(requiredId);
+            if (value == null || (value instanceof String text && text.isBlank())
+                    || (value instanceof Collection<?> values && values.isEmpty())) {
+                return ParsedRow.invalid("必填字段 '" + schema.fieldsById().get(requiredId).getLabel() + "' 不能为空");
+            }
+        }
+        return new ParsedRow(data, null);
+    }
+
+    /**
+     * 读取一行 NDJSON，单行超过上限时报错，避免格式错误的文件占用大量内存
+     */
+    private String readLine(Reader reader) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '\n') {
+                return line.toString();
+            }
+            if (c != '\r') {
+                if (line.length() >= maxRecordChars) {
+                    throw new IllegalArgumentException("NDJSON 单行不能超过 " + maxRecordChars + " 个字符");
+                }
+                line.append((char) c);
+            }
+        }
+        return line.isEmpty() ? null : line.toString();
+    }
+
+    private boolean isKnownUser(String userId, Map<String, Boolean> knownSubmitters) {
+        if (knownSubmitters.size() >= MAX_CACHED_SUBMITTERS) {
+            knownSubmitters.clear();
+        }
+        return knownSubmitters.computeIfAbsent(userId, userRepository::existsById);
+    }
+
+    private void insertBatch(ImportJob job, List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+        job.acceptedRows.addAndGet(batch.size());
+        batch.clear();
+    }
+
+    // --- 分块并行启动工作流 ---
+
+    private void startQueuedSubmissions(ImportJob job) throws InterruptedException {
+        int maxInFlight = startThreads * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long afterId = 0L;
+        while (true) {
+            List<Long> ids = formSubmissionRepository.findIdsByImportJob(job.id,
+                    FormSubmission.SubmissionStatus.QUEUED, afterId, PageRequest.of(0, startChunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+            inFlight.acquire();
+            try {
+                startExecutor.execute(() -> {
+                    try {
+                        startChunk(job, ids);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                // 其他导入任务占满了线程池，由当前线程直接启动该块
+                startChunk(job, ids);
+            }
+        }
+        // 等待所有在途的块完成
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+    }
+
+    private void startChunk(ImportJob job, List<Long> ids) {
+        try {
+            Map<Long, String> failures = submissionStartService.startChunk(ids);
+            job.startedCount.addAndGet(ids.size() - failures.size());
+            job.startFailedCount.addAndGet(failures.size());
+            failures.forEach((submissionId, error) -> job.addError(null, submissionId, error));
+        } catch (RuntimeException e) {
+            log.error("导入任务 {} 启动申请块失败", job.id, e);
+            job.startFailedCount.addAndGet(ids.size());
+            ids.forEach(submissionId -> job.addError(null, submissionId, e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.FormSubmission;
+import club.ppmc.workflow.repository.FormSubmissionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author cc
+ * @description 【新增】异步提交的工作流启动服务。
+ * 异步提交的申请以 QUEUED 状态保存后立即返回，事务提交后由有界线程池在独立事务中启动工作流；
+ * 多个线程通过条件更新 (QUEUED -> PROCESSING) 认领申请，保证只启动一次。
+ * 线程池已满或应用重启时遗留的 QUEUED 申请由定时扫描补偿。
+ * 批量导入的申请由导入任务按块调用 {@link #startChunk(List)} 启动，执行中的导入任务的申请不参与补偿扫描。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SubmissionStartService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final WorkflowService workflowService;
+    private final FormSubmissionRepository formSubmissionRepository;
+    private final NotificationService notificationService;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.submission.worker-threads:4}")
+    private int workerThreads;
+
+    @Value("${app.submission.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${app.submission.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate transactionTemplate;
+    // 已入队或正在处理的申请，避免补偿扫描重复入队
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    // 正在执行的导入任务，其申请由导入任务自行启动
+    private final Set<String> activeImportJobs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 申请已以 QUEUED 状态保存的事件，由 FormService 在提交事务中发布
+     */
+    public record SubmissionQueuedEvent(Long submissionId) {
+    }
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                workerThreads, workerThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "submission-start-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("submission.start.queue.depth", executor, e -> e.getQueue().size())
+                .description("等待启动工作流的异步提交数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交事务成功后再入队，保证工作线程能读到已保存的申请
+     */
+    @TransactionalEventListener
+    public void onSubmissionQueued(SubmissionQueuedEvent event) {
+        enqueue(event.submissionId());
+    }
+
+    /**
+     * 定时补偿：把线程池已满时未能入队、或应用重启前未处理的 QUEUED 申请重新入队
+     */
+    @Scheduled(fixedDelayString = "${app.submission.sweep-interval-ms:30000}", initialDelayString = "${app.submission.sweep-interval-ms:30000}")
+    public void sweepQueuedSubmissions() {
+        PageRequest page = PageRequest.of(0, sweepBatchSize);
+        List<Long> queuedIds = activeImportJobs.isEmpty()
+                ? formSubmissionRepository.findIdsByStatus(FormSubmission.SubmissionStatus.QUEUED, page)
+                : formSubmissionRepository.findIdsByStatusExcludingImportJobs(
+                        FormSubmission.SubmissionStatus.QUEUED, Set.copyOf(activeImportJobs), page);
+        queuedIds.stream().filter(id -> !inFlight.contains(id)).forEach(this::enqueue);
+    }
+
+    private void enqueue(Long submissionId) {
+        if (!inFlight.add(submissionId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    start(submissionId);
+                } finally {
+                    inFlight.remove(submissionId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(submissionId);
+            log.warn("异步提交队列已满，申请 #{} 将由定时扫描稍后启动。", submissionId);
+        }
+    }
+
+    /**
+     * 【新增】登记正在执行的导入任务，登记期间补偿扫描不会处理该任务的申请
+     */
+    public void registerImportJob(String importJobId) {
+        activeImportJobs.add(importJobId);
+    }
+
+    public void unregisterImportJob(String importJobId) {
+        activeImportJobs.remove(importJobId);
+    }
+
+    /**
+     * 【新增】在一个事务中启动一批 QUEUED 申请的工作流；有申请失败时整块回滚，再逐个申请单独启动。
+     * 失败的申请标记为 START_FAILED，不发送站内通知 (由调用方汇总报告)。
+     *
+     * @param submissionIds 申请ID列表
+     * @return 启动失败的申请ID及失败原因
+     */
+    public Map<Long, String> startChunk(List<Long> submissionIds) {
+        if (submissionIds.size() > 1) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> submissionIds.forEach(this::claimAndStart));
+                return Map.of();
+            } catch (RuntimeException e) {
+                log.info("整块启动 {} 个申请失败 ({})，改为逐个启动。", submissionIds.size(), e.getMessage());
+            }
+        }
+        Map<Long, String> failures = new LinkedHashMap<>();
+        for (Long submissionId : submissionIds) {
+            String error = start(submissionId, false);
+            if (error != null) {
+                failures.put(submissionId, error);
+            }
+        }
+        return failures;
+    }
+
+    private void start(Long submissionId) {
+        start(submissionId, true);
+    }
+
+    /**
+     * @return 失败原因；启动成功或已被其他线程处理时返回 null
+     */
+    private String start(Long submissionId, boolean notifySubmitter) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> claimAndStart(submissionId));
+            return null;
+        } catch (RuntimeException e) {
+            log.error("异步启动申请 #{} 的工作流失败", submissionId, e);
+            return markStartFailed(submissionId, e, notifySubmitter);
+        }
+    }
+
+    private void claimAndStart(Long submissionId) {
+        int claimed = formSubmissionRepository.compareAndSetStatus(submissionId,
+                FormSubmission.SubmissionStatus.QUEUED, FormSubmission.SubmissionStatus.PROCESSING);
+        if (claimed == 0) {
+            return; // 已被其他线程处理或已被撤回
+        }
+        FormSubmission submission = formSubmissionRepository.findById(submissionId).orElseThrow();
+        workflowService.startWorkflow(submission, submission.getInitialAction());
+        submission.setInitialAction(null);
+        formSubmissionRepository.save(submission);
+        log.info("已为异步提交的申请 #{} 启动工作流。", submissionId);
+    }
+
+    private String markStartFailed(Long submissionId, RuntimeException cause, boolean notifySubmitter) {
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        String error = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+        try {
+            FormSubmission failed = transactionTemplate.execute(status -> formSubmissionRepository.findById(submissionId)
+                    .filter(submission -> submission.getStatus() == FormSubmission.SubmissionStatus.QUEUED)
+                    .map(submission -> {
+                        submission.setStatus(FormSubmission.SubmissionStatus.START_FAILED);
+                        submission.setStartError(error);
+                        return formSubmissionRepository.save(submission);
+                    })
+                    .orElse(null));
+            if (failed != null && notifySubmitter) {
+                notificationService.createInAppNotification(failed.getSubmitterId(), "申请提交失败",
+                        String.format("您的申请 #%d 未能启动审批流程：%s", submissionId, error), "submission", null);
+            }
+        } catch (RuntimeException e) {
+            log.error("记录申请 #{} 的启动失败状态时出错", submissionId, e);
+        }
+        return error;
+    }
+}
@@ -29,7 +29,7 @@ public class TaskEmailNotificationDelegate implements JavaDelegate {
     private final UserRepository userRepository;
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional // 【修改】通知写入发件箱，需要参与引擎事务
     public void execute(DelegateExecution execution) throws Exception {
         // --- 【核心修复】开始 ---
         // 1. 获取当前执行的BPMN元素（即边界事件后面的ServiceTask），并强制转换为 FlowNode
@@ -28,7 +28,7 @@ public class TaskInAppNotificationDelegate implements JavaDelegate {
     private final NotificationService notificationService;
 
     @Override
-    @Transactional(readOnly = true) // 只读事务，因为它只查询和发送通知，不修改流程状态
+    @Transactional // 【修改】通知写入发件箱，需要参与引擎事务 (不再是只读事务)
     public void execute(DelegateExecution execution) throws Exception {
         // --- 【核心修复】开始 ---
         // 1. 获取当前执行的BPMN元素（即边界事件后面的ServiceTask），并强制转换为 FlowNode
@@ -0,0 +1,605 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.FormSubmission;
+import club.ppmc.workflow.domain.Task;
+import club.ppmc.workflow.dto.CursorPage;
+import club.ppmc.workflow.repository.FormSubmissionRepository;
+import club.ppmc.workflow.repository.TaskRepository;
+import club.ppmc.workflow.utils.CursorCodec;
+import club.ppmc.workflow.utils.SearchTokenizer;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.TaskService;
+import org.camunda.bpm.engine.delegate.DelegateTask;
+import org.camunda.bpm.engine.delegate.TaskListener;
+import org.camunda.bpm.engine.history.HistoricTaskInstance;
+import org.camunda.bpm.engine.history.HistoricVariableInstance;
+import org.camunda.bpm.engine.history.HistoricVariableUpdate;
+import org.camunda.bpm.engine.task.IdentityLink;
+import org.camunda.bpm.engine.task.IdentityLinkType;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author cc
+ * @description 【新增】任务收件箱投影的维护服务。
+ * 监听 Camunda Spring Boot Starter 发布的任务事件 (camunda.bpm.eventing.task)，
+ * 在引擎的同一个事务中同步更新 {@link Task} 投影，保证投影与引擎状态一起提交或回滚。
+ * 投影变化时同步维护搜索索引 ({@link TaskSearchIndexService})，
+ * 同时提供从 Camunda 运行时和历史数据全量重建投影的命令。
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+@Slf4j
+public class TaskProjectionService {
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final String[] BUSINESS_VARIABLES = {"formSubmissionId", "formName", "submitterName"};
+    private static final String[] DECISION_VARIABLES = {"taskOutcome", "approved"};
+
+    private final TaskRepository taskRepository;
+    private final FormSubmissionRepository formSubmissionRepository;
+    private final TaskService taskService;
+    private final HistoryService historyService;
+    private final RuntimeService runtimeService;
+    private final EntityManager entityManager;
+    private final TaskSearchIndexService taskSearchIndexService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 处理 Camunda 任务事件。监听器在引擎命令内同步执行，DelegateTask 只在此期间有效。
+     */
+    @EventListener
+    public void onTaskEvent(DelegateTask delegateTask) {
+        switch (delegateTask.getEventName()) {
+            case TaskListener.EVENTNAME_CREATE -> {
+                Optional<Task> existing = taskRepository.findByCamundaTaskId(delegateTask.getId());
+                Task task = existing.orElseGet(Task::new);
+                PushNotificationHub.Audience before = audienceOf(task);
+                FormSubmission submission = applyRuntimeState(task, delegateTask);
+                taskRepository.save(task);
+                if (existing.isPresent()) {
+                    taskSearchIndexService.reindex(task, submission);
+                } else {
+                    taskSearchIndexService.index(task, submission);
+                }
+                publishInboxChange(task, before);
+            }
+            case TaskListener.EVENTNAME_ASSIGNMENT, TaskListener.EVENTNAME_UPDATE -> {
+                Task task = taskRepository.findByCamundaTaskId(delegateTask.getId()).orElse(null);
+                if (task == null) {
+                    // 投影建立之前创建的任务，补齐完整信息
+                    task = new Task();
+                    FormSubmission submission = applyRuntimeState(task, delegateTask);
+                    taskRepository.save(task);
+                    taskSearchIndexService.index(task, submission);
+                    publishInboxChange(task, PushNotificationHub.Audience.NONE);
+                } else {
+                    PushNotificationHub.Audience before = audienceOf(task);
+                    boolean renamed = !Objects.equals(task.getStepName(), delegateTask.getName());
+                    task.setStepName(delegateTask.getName());
+                    task.setAssigneeId(delegateTask.getAssignee());
+                    applyCandidates(task, delegateTask.getCandidates());
+                    taskRepository.save(task);
+                    if (renamed) {
+                        taskSearchIndexService.reindex(task, findSubmission(task.getSubmissionId()));
+                    }
+                    publishInboxChange(task, before);
+                }
+            }
+            case TaskListener.EVENTNAME_COMPLETE -> taskRepository.findByCamundaTaskId(delegateTask.getId()).ifPresent(task -> {
+                PushNotificationHub.Audience before = audienceOf(task);
+                task.setStatus(Task.Status.COMPLETED);
+                task.setAssigneeId(delegateTask.getAssignee());
+                task.setCompletedAt(LocalDateTime.now());
+                task.setDecision(resolveDecision(delegateTask.getVariable("taskOutcome"), delegateTask.getVariable("approved")));
+                Object comment = delegateTask.getVariableLocal("approvalComment");
+                task.setComment(comment instanceof String ? (String) comment : null);
+                taskRepository.save(task);
+                // 办理时可能修改了表单数据，按差异更新索引
+                taskSearchIndexService.reindex(task, findSubmission(task.getSubmissionId()));
+                publishInboxChange(task, before);
+            });
+            case TaskListener.EVENTNAME_DELETE -> taskRepository.findByCamundaTaskId(delegateTask.getId()).ifPresent(task -> {
+                PushNotificationHub.Audience before = audienceOf(task);
+                task.setStatus(Task.Status.CANCELED);
+                task.setCompletedAt(LocalDateTime.now());
+                taskRepository.save(task);
+                publishInboxChange(task, before);
+            });
+            default -> {
+                // 其他事件 (如 timeout) 不影响投影
+            }
+        }
+    }
+
+    /**
+     * 分页查询用户的待办任务
+     *
+     * @param userId     用户ID
+     * @param groupNames 用户所在的用户组名称
+     * @param keyword    搜索关键字 (匹配表单名称、提交人、步骤名称和可筛选的表单字段)，可为空
+     * @param pageable   分页参数 (排序固定为创建时间倒序)
+     * @return 待办任务分页
+     */
+    @Transactional(readOnly = true)
+    public Page<Task> findInbox(String userId, Collection<String> groupNames, String keyword, Pageable pageable) {
+        Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Set<String> tokens = SearchTokenizer.queryTokens(keyword);
+        if (tokens.isEmpty()) {
+            return taskRepository.findInbox(userId, groupNames, page);
+        }
+        return taskRepository.searchInbox(userId, groupNames, tokens, tokens.size(), page);
+    }
+
+    /**
+     * 【新增】分页查询用户已完成的任务 (按完成时间倒序)，关键字规则与待办相同
+     *
+     * @param userId   办理人ID
+     * @param keyword  搜索关键字，可为空
+     * @param pageable 分页参数
+     * @return 已完成任务分页
+     */
+    @Transactional(readOnly = true)
+    public Page<Task> findCompleted(String userId, String keyword, Pageable pageable) {
+        Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Set<String> tokens = SearchTokenizer.queryTokens(keyword);
+        if (tokens.isEmpty()) {
+            return taskRepository.findCompleted(userId, page);
+        }
+        return taskRepository.searchCompleted(userId, tokens, tokens.size(), page);
+    }
+
+    /**
+     * 【新增】游标分页查询用户的待办任务 (按创建时间倒序)
+     *
+     * @param cursor    上一页返回的游标，第一页为空
+     * @param size      每页条数 (最大 {@value #MAX_CURSOR_PAGE_SIZE})
+     * @param withTotal 是否在第一页计算总数
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Task> seekInbox(String userId, Collection<String> groupNames, String keyword,
+                                      String cursor, int size, boolean withTotal) {
+        Set<String> tokens = SearchTokenizer.queryTokens(keyword);
+        SeekPosition position = SeekPosition.of(cursor);
+        int limit = clampPageSize(size);
+        List<Task> rows = tokens.isEmpty()
+                ? taskRepository.seekInbox(userId, groupNames, position.time(), position.id(), PageRequest.of(0, limit + 1))
+                : taskRepository.seekInboxSearch(userId, groupNames, tokens, tokens.size(), position.time(), position.id(), PageRequest.of(0, limit + 1));
+
+        Long total = null;
+        if (withTotal && !StringUtils.hasText(cursor)) {
+            total = findInbox(userId, groupNames, keyword, PageRequest.of(0, 1)).getTotalElements();
+        }
+        return toCursorPage(rows, limit, Task::getCreatedAt, total);
+    }
+
+    /**
+     * 【新增】游标分页查询用户已完成的任务 (按完成时间倒序)
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Task> seekCompleted(String userId, String keyword, String cursor, int size, boolean withTotal) {
+        Set<String> tokens = SearchTokenizer.queryTokens(keyword);
+        SeekPosition position = SeekPosition.of(cursor);
+        int limit = clampPageSize(size);
+        List<Task> rows = tokens.isEmpty()
+                ? taskRepository.seekCompleted(userId, position.time(), position.id(), PageRequest.of(0, limit + 1))
+                : taskRepository.seekCompletedSearch(userId, tokens, tokens.size(), position.time(), position.id(), PageRequest.of(0, limit + 1));
+
+        Long total = null;
+        if (withTotal && !StringUtils.hasText(cursor)) {
+            total = tokens.isEmpty()
+                    ? taskRepository.countByAssigneeIdAndStatus(userId, Task.Status.COMPLETED)
+                    : taskRepository.searchCompleted(userId, tokens, tokens.size(), PageRequest.of(0, 1)).getTotalElements();
+        }
+        return toCursorPage(rows, limit, Task::getCompletedAt, total);
+    }
+
+    /**
+     * 判断用户当前是否可以办理指定的待办任务
+     */
+    @Transactional(readOnly = true)
+    public boolean isInboxTask(String camundaTaskId, String userId, Collection<String> groupNames) {
+        return taskRepository.isInboxTask(camundaTaskId, userId, groupNames);
+    }
+
+    /**
+     * 【新增】从给定的任务中筛选出用户当前可以办理的任务
+     */
+    @Transactional(readOnly = true)
+    public Set<String> findInboxTaskIds(Collection<String> camundaTaskIds, String userId, Collection<String> groupNames) {
+        return new HashSet<>(taskRepository.findInboxTaskIds(camundaTaskIds, userId, groupNames));
+    }
+
+    /**
+     * 【新增】判断用户是否为申请单的申请人、当前待办参与者或历史办理人
+     */
+    @Transactional(readOnly = true)
+    public boolean isSubmissionParticipant(Long submissionId, String userId, Collection<String> groupNames) {
+        return taskRepository.isSubmissionParticipant(submissionId, userId, groupNames);
+    }
+
+    /**
+     * 同步流程实例的挂起状态 (挂起/激活不会触发任务事件)
+     */
+    public void setSuspended(String processInstanceId, boolean suspended) {
+        taskRepository.updateSuspendedByProcessInstanceId(processInstanceId, suspended);
+        // 挂起的任务从待办中移除，激活后重新出现
+        for (Task task : taskRepository.findByProcessInstanceIdAndStatus(processInstanceId, Task.Status.PENDING)) {
+            PushNotificationHub.Audience audience = visibleAudience(task);
+            publishInboxChange(task, suspended ? audience : PushNotificationHub.Audience.NONE,
+                    suspended ? PushNotificationHub.Audience.NONE : audience);
+        }
+    }
+
+    /**
+     * 【新增】任务当前对哪些用户和用户组可见 (与 {@link TaskRepository#INBOX_CONDITION} 一致)
+     */
+    private PushNotificationHub.Audience audienceOf(Task task) {
+        if (task.getId() == null || task.getStatus() != Task.Status.PENDING || task.isSuspended()) {
+            return PushNotificationHub.Audience.NONE;
+        }
+        return visibleAudience(task);
+    }
+
+    private PushNotificationHub.Audience visibleAudience(Task task) {
+        if (task.getAssigneeId() != null) {
+            return new PushNotificationHub.Audience(Set.of(task.getAssigneeId()), Set.of());
+        }
+        return new PushNotificationHub.Audience(Set.copyOf(task.getCandidateUsers()), Set.copyOf(task.getCandidateGroups()));
+    }
+
+    private void publishInboxChange(Task task, PushNotificationHub.Audience before) {
+        publishInboxChange(task, before, audienceOf(task));
+    }
+
+    /**
+     * 【新增】比较任务变化前后的可见范围，发布待办增删事件，由推送中心在事务提交后推送
+     */
+    private void publishInboxChange(Task task, PushNotificationHub.Audience before, PushNotificationHub.Audience after) {
+        PushNotificationHub.Audience removedFrom = before.minus(after);
+        if (!removedFrom.isEmpty()) {
+            eventPublisher.publishEvent(new PushNotificationHub.TaskInboxEvent(
+                    PushNotificationHub.EVENT_TASK_REMOVED, removedFrom, Map.of("camundaTaskId", task.getCamundaTaskId())));
+        }
+        PushNotificationHub.Audience addedTo = after.minus(before);
+        if (!addedTo.isEmpty()) {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("camundaTaskId", task.getCamundaTaskId());
+            payload.put("stepName", task.getStepName());
+            payload.put("formName", task.getFormName());
+            payload.put("submitterName", task.getSubmitterName());
+            payload.put("createdAt", task.getCreatedAt());
+            eventPublisher.publishEvent(new PushNotificationHub.TaskInboxEvent(
+                    PushNotificationHub.EVENT_TASK_ADDED, addedTo, payload));
+        }
+    }
+
+    /**
+     * 投影表为空但引擎中已有任务时 (例如升级后首次启动)，自动重建一次
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (taskRepository.count() == 0
+                && (taskService.createTaskQuery().count() > 0 || historyService.createHistoricTaskInstanceQuery().count() > 0)) {
+            log.info("任务投影为空，开始从 Camunda 数据重建...");
+            rebuild();
+        }
+    }
+
+    /**
+     * 清空并从 Camunda 的运行时任务和已结束的历史任务重建投影
+     *
+     * @return 重建的任务数
+     */
+    public int rebuild() {
+        taskSearchIndexService.deleteAll();
+        taskRepository.deleteAllCandidateGroups();
+        taskRepository.deleteAllCandidateUsers();
+        taskRepository.deleteAllTasks();
+        entityManager.clear();
+
+        int runtimeCount = rebuildRuntimeTasks();
+        int historicCount = rebuildHistoricTasks();
+        log.info("任务投影重建完成: {} 个待办任务, {} 个已结束任务。", runtimeCount, historicCount);
+        return runtimeCount + historicCount;
+    }
+
+    private int rebuildRuntimeTasks() {
+        int count = 0;
+        for (int first = 0; ; first += REBUILD_PAGE_SIZE) {
+            List<org.camunda.bpm.engine.task.Task> camundaTasks = taskService.createTaskQuery()
+                    .orderByTaskId().asc()
+                    .listPage(first, REBUILD_PAGE_SIZE);
+            if (camundaTasks.isEmpty()) {
+                return count;
+            }
+
+            Map<String, Map<String, Object>> variablesByInstance = new HashMap<>();
+            runtimeService.createVariableInstanceQuery()
+                    .processInstanceIdIn(distinct(camundaTasks.stream().map(org.camunda.bpm.engine.task.Task::getProcessInstanceId)))
+                    .variableNameIn(BUSINESS_VARIABLES)
+                    .disableCustomObjectDeserialization()
+                    .list()
+                    .stream()
+                    .filter(v -> v.getProcessInstanceId().equals(v.getExecutionId()))
+                    .forEach(v -> variablesByInstance.computeIfAbsent(v.getProcessInstanceId(), k -> new HashMap<>()).put(v.getName(), v.getValue()));
+            Map<Long, FormSubmission> submissions = loadSubmissions(variablesByInstance.values());
+
+            List<Task> tasks = new ArrayList<>();
+            for (org.camunda.bpm.engine.task.Task camundaTask : camundaTasks) {
+                Task task = new Task();
+                task.setCamundaTaskId(camundaTask.getId());
+                task.setProcessInstanceId(camundaTask.getProcessInstanceId());
+                task.setProcessDefinitionId(camundaTask.getProcessDefinitionId());
+                task.setTaskDefinitionKey(camundaTask.getTaskDefinitionKey());
+                task.setStepName(camundaTask.getName());
+                task.setAssigneeId(camundaTask.getAssignee());
+                task.setSuspended(camundaTask.isSuspended());
+                task.setStatus(Task.Status.PENDING);
+                task.setCreatedAt(toLocalDateTime(camundaTask.getCreateTime()));
+                applyCandidates(task, taskService.getIdentityLinksForTask(camundaTask.getId()));
+                applyBusinessVariables(task, variablesByInstance.getOrDefault(camundaTask.getProcessInstanceId(), Collections.emptyMap()), submissions);
+                tasks.add(task);
+            }
+            saveChunk(tasks, submissions);
+            count += tasks.size();
+        }
+    }
+
+    private int rebuildHistoricTasks() {
+        int count = 0;
+        for (int first = 0; ; first += REBUILD_PAGE_SIZE) {
+            List<HistoricTaskInstance> historicTasks = historyService.createHistoricTaskInstanceQuery()
+                    .finished()
+                    .orderByTaskId().asc()
+                    .listPage(first, REBUILD_PAGE_SIZE);
+            if (historicTasks.isEmpty()) {
+                return count;
+            }
+
+            Map<String, Map<String, Object>> variablesByInstance = new HashMap<>();
+            historyService.createHistoricVariableInstanceQuery()
+                    .processInstanceIdIn(distinct(historicTasks.stream().map(HistoricTaskInstance::getProcessInstanceId)))
+                    .variableNameIn(BUSINESS_VARIABLES)
+                    .disableCustomObjectDeserialization()
+                    .list()
+                    .stream()
+                    .filter(v -> v.getProcessInstanceId().equals(v.getExecutionId()))
+                    .forEach(v -> variablesByInstance.computeIfAbsent(v.getProcessInstanceId(), k -> new HashMap<>()).put(v.getName(), v.getValue()));
+            Map<Long, FormSubmission> submissions = loadSubmissions(variablesByInstance.values());
+
+            Map<String, Map<String, Object>> decisionsByActivityInstance = loadDecisionUpdates(historicTasks);
+            Map<String, Map<String, Object>> finalDecisionsByInstance = new HashMap<>();
+            historyService.createHistoricVariableInstanceQuery()
+                    .processInstanceIdIn(distinct(historicTasks.stream().map(HistoricTaskInstance::getProcessInstanceId)))
+                    .variableNameIn(DECISION_VARIABLES)
+                    .list()
+                    .stream()
+                    .filter(v -> v.getProcessInstanceId().equals(v.getExecutionId()))
+                    .forEach(v -> finalDecisionsByInstance.computeIfAbsent(v.getProcessInstanceId(), k -> new HashMap<>()).put(v.getName(), v.getValue()));
+
+            Map<String, String> commentsByTask = historyService.createHistoricVariableInstanceQuery()
+                    .taskIdIn(historicTasks.stream().map(HistoricTaskInstance::getId).toArray(String[]::new))
+                    .variableName("approvalComment")
+                    .list()
+                    .stream()
+                    .filter(v -> v.getValue() instanceof String)
+                    .collect(Collectors.toMap(HistoricVariableInstance::getTaskId, v -> (String) v.getValue(), (a, b) -> a));
+
+            List<Task> tasks = new ArrayList<>();
+            for (HistoricTaskInstance historicTask : historicTasks) {
+                Task task = new Task();
+                task.setCamundaTaskId(historicTask.getId());
+                task.setProcessInstanceId(historicTask.getProcessInstanceId());
+                task.setProcessDefinitionId(historicTask.getProcessDefinitionId());
+                task.setTaskDefinitionKey(historicTask.getTaskDefinitionKey());
+                task.setStepName(historicTask.getName());
+                task.setAssigneeId(historicTask.getAssignee());
+                task.setStatus("completed".equals(historicTask.getDeleteReason()) ? Task.Status.COMPLETED : Task.Status.CANCELED);
+                if (task.getStatus() == Task.Status.COMPLETED) {
+                    // 决策优先取自该任务完成时写入的变量更新记录；没有历史明细时 (例如历史级别低于 full)，退回流程级变量的最终值
+                    Map<String, Object> decision = decisionsByActivityInstance.get(historicTask.getActivityInstanceId());
+                    if (decision == null) {
+                        decision = finalDecisionsByInstance.getOrDefault(historicTask.getProcessInstanceId(), Collections.emptyMap());
+                    }
+                    task.setDecision(resolveDecision(decision.get("taskOutcome"), decision.get("approved")));
+                }
+                task.setCreatedAt(toLocalDateTime(historicTask.getStartTime()));
+                task.setCompletedAt(toLocalDateTime(historicTask.getEndTime()));
+                task.setComment(commentsByTask.get(historicTask.getId()));
+                applyBusinessVariables(task, variablesByInstance.getOrDefault(historicTask.getProcessInstanceId(), Collections.emptyMap()), submissions);
+                tasks.add(task);
+            }
+            saveChunk(tasks, submissions);
+            count += tasks.size();
+        }
+    }
+
+    /**
+     * 按活动实例收集已结束任务完成时写入的 taskOutcome / approved 变量更新。
+     * 流程级变量会被后续任务覆盖，只有历史明细保留了每个任务各自的决策。
+     */
+    private Map<String, Map<String, Object>> loadDecisionUpdates(List<HistoricTaskInstance> historicTasks) {
+        Set<String> activityInstanceIds = historicTasks.stream()
+                .map(HistoricTaskInstance::getActivityInstanceId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        String[] processInstanceIds = distinct(historicTasks.stream().map(HistoricTaskInstance::getProcessInstanceId));
+        Map<String, Map<String, Object>> decisions = new HashMap<>();
+        for (String name : DECISION_VARIABLES) {
+            historyService.createHistoricDetailQuery()
+                    .variableUpdates()
+                    .processInstanceIdIn(processInstanceIds)
+                    .variableNameLike(name)
+                    .disableBinaryFetching()
+                    .disableCustomObjectDeserialization()
+                    .orderByTime().asc()
+                    .list()
+                    .stream()
+                    .filter(detail -> activityInstanceIds.contains(detail.getActivityInstanceId()))
+                    .map(HistoricVariableUpdate.class::cast)
+                    .filter(update -> name.equals(update.getVariableName()))
+                    .forEach(update -> decisions.computeIfAbsent(update.getActivityInstanceId(), k -> new HashMap<>()).put(name, update.getValue()));
+        }
+        return decisions;
+    }
+
+    private FormSubmission applyRuntimeState(Task task, DelegateTask delegateTask) {
+        task.setCamundaTaskId(delegateTask.getId());
+        task.setProcessInstanceId(delegateTask.getProcessInstanceId());
+        task.setProcessDefinitionId(delegateTask.getProcessDefinitionId());
+        task.setTaskDefinitionKey(delegateTask.getTaskDefinitionKey());
+        task.setStepName(delegateTask.getName());
+        task.setAssigneeId(delegateTask.getAssignee());
+        task.setStatus(Task.Status.PENDING);
+        task.setCreatedAt(toLocalDateTime(delegateTask.getCreateTime()));
+        applyCandidates(task, delegateTask.getCandidates());
+
+        Map<String, Object> variables = new HashMap<>();
+        for (String name : BUSINESS_VARIABLES) {
+            variables.put(name, delegateTask.getVariable(name));
+        }
+        Map<Long, FormSubmission> submissions = loadSubmissions(List.of(variables));
+        applyBusinessVariables(task, variables, submissions);
+        return submissions.get(task.getSubmissionId());
+    }
+
+    private void applyCandidates(Task task, Collection<IdentityLink> identityLinks) {
+        Set<String> groups = new HashSet<>();
+        Set<String> users = new HashSet<>();
+        for (IdentityLink link : identityLinks) {
+            if (!IdentityLinkType.CANDIDATE.equals(link.getType())) {
+                continue;
+            }
+            if (link.getGroupId() != null) {
+                groups.add(link.getGroupId());
+            }
+            if (link.getUserId() != null) {
+                users.add(link.getUserId());
+            }
+        }
+        // 原地修改集合，让 Hibernate 只同步变化的行
+        task.getCandidateGroups().retainAll(groups);
+        task.getCandidateGroups().addAll(groups);
+        task.getCandidateUsers().retainAll(users);
+        task.getCandidateUsers().addAll(users);
+    }
+
+    private void applyBusinessVariables(Task task, Map<String, Object> variables, Map<Long, FormSubmission> submissions) {
+        Object submissionId = variables.get("formSubmissionId");
+        if (submissionId instanceof Number) {
+            task.setSubmissionId(((Number) submissionId).longValue());
+            FormSubmission submission = submissions.get(task.getSubmissionId());
+            if (submission != null && submission.getFormDefinition() != null) {
+                task.setFormDefinitionId(submission.getFormDefinition().getId());
+            }
+        }
+        Object formName = variables.get("formName");
+        task.setFormName(formName instanceof String ? (String) formName : null);
+        Object submitterName = variables.get("submitterName");
+        task.setSubmitterName(submitterName instanceof String ? (String) submitterName : null);
+    }
+
+    private Map<Long, FormSubmission> loadSubmissions(Collection<Map<String, Object>> variableMaps) {
+        Set<Long> submissionIds = variableMaps.stream()
+                .map(vars -> vars.get("formSubmissionId"))
+                .filter(Number.class::isInstance)
+                .map(id -> ((Number) id).longValue())
+                .collect(Collectors.toSet());
+        if (submissionIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return formSubmissionRepository.findAllById(submissionIds).stream()
+                .collect(Collectors.toMap(FormSubmission::getId, Function.identity()));
+    }
+
+    private FormSubmission findSubmission(Long submissionId) {
+        return submissionId == null ? null : formSubmissionRepository.findById(submissionId).orElse(null);
+    }
+
+    private Task.Decision resolveDecision(Object taskOutcome, Object approved) {
+        if (taskOutcome instanceof String outcome) {
+            return switch (outcome) {
+                case "approved" -> Task.Decision.APPROVED;
+                case "rejected" -> Task.Decision.REJECTED;
+                case "returnToInitiator" -> Task.Decision.RETURN_TO_INITIATOR;
+                case "returnToPrevious" -> Task.Decision.RETURN_TO_PREVIOUS;
+                default -> null;
+            };
+        }
+        if (approved instanceof Boolean) {
+            return (Boolean) approved ? Task.Decision.APPROVED : Task.Decision.REJECTED;
+        }
+        return null;
+    }
+
+    private void saveChunk(List<Task> tasks, Map<Long, FormSubmission> submissions) {
+        taskRepository.saveAll(tasks);
+        tasks.forEach(task -> taskSearchIndexService.index(task, submissions.get(task.getSubmissionId())));
+        taskRepository.flush();
+        entityManager.clear();
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
+    private static CursorPage<Task> toCursorPage(List<Task> rows, int limit, Function<Task, LocalDateTime> sortKey, Long total) {
+        boolean hasMore = rows.size() > limit;
+        List<Task> content = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Task last = content.get(content.size() - 1);
+            nextCursor = CursorCodec.encode(sortKey.apply(last).toString(), String.valueOf(last.getId()));
+        }
+        return new CursorPage<>(content, nextCursor, hasMore, total);
+    }
+
+    /**
+     * 游标解码后的查询起点；第一页使用一个比任何记录都大的哨兵值，避免 "IS NULL OR" 条件影响索引使用
+     */
+    private record SeekPosition(LocalDateTime time, Long id) {
+        private static final SeekPosition START = new SeekPosition(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+        static SeekPosition of(String cursor) {
+            CursorCodec.Cursor decoded = CursorCodec.decode(cursor);
+            if (decoded == null) {
+                return START;
+            }
+            try {
+                return new SeekPosition(LocalDateTime.parse(decoded.sortValue()), Long.parseLong(decoded.id()));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("无效的分页游标", e);
+            }
+        }
+    }
+
+    private static String[] distinct(Stream<String> ids) {
+        return ids.filter(Objects::nonNull).distinct().toArray(String[]::new);
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date == null ? null : LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+}
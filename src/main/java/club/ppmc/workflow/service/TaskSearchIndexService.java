@@ -0,0 +1,131 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.FormDefinition;
+import club.ppmc.workflow.domain.FormSubmission;
+import club.ppmc.workflow.domain.Task;
+import club.ppmc.workflow.domain.TaskSearchToken;
+import club.ppmc.workflow.repository.TaskSearchTokenRepository;
+import club.ppmc.workflow.utils.SearchTokenizer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author cc
+ * @description 【新增】任务搜索索引服务。
+ * 为任务投影建立 token 倒排索引，索引内容包括表单名称、提交人、步骤名称，
+ * 以及表单中标记为可筛选 (isFilterable) 或列表展示 (showInList) 的字段值。
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+@Slf4j
+public class TaskSearchIndexService {
+
+    // 单个任务最多索引的 token 数，防止超长表单数据撑大索引
+    private static final int MAX_TOKENS_PER_TASK = 512;
+    private static final int MAX_FIELD_VALUE_LENGTH = 200;
+
+    private final TaskSearchTokenRepository taskSearchTokenRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final FormSchemaCache formSchemaCache;
+
+    /**
+     * 为新建的任务投影建立索引
+     *
+     * @param task       已持久化的任务投影
+     * @param submission 关联的提交记录，可为空
+     */
+    public void index(Task task, FormSubmission submission) {
+        collectTokens(task, submission).forEach(token -> entityManager.persist(new TaskSearchToken(token, task.getId())));
+    }
+
+    /**
+     * 重新索引已有任务 (例如完成任务时表单数据被修改)，只增删有变化的 token
+     *
+     * @param task       已持久化的任务投影
+     * @param submission 关联的提交记录，可为空
+     */
+    public void reindex(Task task, FormSubmission submission) {
+        Set<String> tokens = collectTokens(task, submission);
+        for (TaskSearchToken existing : taskSearchTokenRepository.findByTaskId(task.getId())) {
+            if (!tokens.remove(existing.getToken())) {
+                entityManager.remove(existing);
+            }
+        }
+        tokens.forEach(token -> entityManager.persist(new TaskSearchToken(token, task.getId())));
+    }
+
+    /**
+     * 清空全部索引 (重建任务投影时使用)
+     */
+    public void deleteAll() {
+        taskSearchTokenRepository.deleteAllTokens();
+    }
+
+    private Set<String> collectTokens(Task task, FormSubmission submission) {
+        Set<String> tokens = new LinkedHashSet<>();
+        SearchTokenizer.addIndexTokens(task.getFormName(), tokens);
+        SearchTokenizer.addIndexTokens(task.getSubmitterName(), tokens);
+        SearchTokenizer.addIndexTokens(task.getStepName(), tokens);
+        if (submission != null) {
+            for (String value : searchableFieldValues(submission)) {
+                SearchTokenizer.addIndexTokens(value, tokens);
+            }
+        }
+        if (tokens.size() <= MAX_TOKENS_PER_TASK) {
+            return tokens;
+        }
+        Set<String> limited = new LinkedHashSet<>();
+        tokens.stream().limit(MAX_TOKENS_PER_TASK).forEach(limited::add);
+        return limited;
+    }
+
+    private List<String> searchableFieldValues(FormSubmission submission) {
+        FormDefinition formDefinition = submission.getFormDefinition();
+        if (formDefinition == null || !StringUtils.hasText(formDefinition.getSchemaJson())
+                || !StringUtils.hasText(submission.getDataJson())) {
+            return List.of();
+        }
+
+        List<String> values = new ArrayList<>();
+        try {
+            Set<String> fieldIds = formSchemaCache.get(formDefinition).getSearchableFieldIds();
+            if (fieldIds.isEmpty()) {
+                return values;
+            }
+
+            JsonNode data = objectMapper.readTree(submission.getDataJson());
+            for (String fieldId : fieldIds) {
+                JsonNode value = data.path(fieldId);
+                if (value.isArray()) {
+                    value.forEach(element -> addValue(element, values));
+                } else {
+                    addValue(value, values);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("解析申请单 #{} 的表单数据失败，搜索索引将不包含表单字段。", submission.getId(), e);
+        }
+        return values;
+    }
+
+    private void addValue(JsonNode value, List<String> values) {
+        if (value.isValueNode() && !value.isNull()) {
+            String text = value.asText();
+            values.add(text.length() > MAX_FIELD_VALUE_LENGTH ? text.substring(0, MAX_FIELD_VALUE_LENGTH) : text);
+        }
+    }
+}
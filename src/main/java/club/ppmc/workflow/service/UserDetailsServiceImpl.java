@@ -7,16 +7,18 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.LockedException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Spring Security 用于加载用户信息的服务实现
  */
 @Service
 @RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -43,4 +45,19 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
         return user;
     }
-}
\ No newline at end of file
+
+    /**
+     * 【新增】登录时透明升级密码哈希 (由 DaoAuthenticationProvider 在校验成功后调用)
+     * @param user 已认证的用户
+     * @param newPassword 使用当前编码器重新编码后的密码
+     * @return 更新后的用户
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = userRepository.findById(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("未找到用户: " + user.getUsername()));
+        entity.setPassword(newPassword);
+        return userRepository.save(entity);
+    }
+}
@@ -0,0 +1,128 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.User;
+import club.ppmc.workflow.domain.UserPrincipal;
+import club.ppmc.workflow.domain.UserStatus;
+import club.ppmc.workflow.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author cc
+ * @description 【新增】进程内的用户 Principal 快照缓存。
+ * JwtAuthFilter 通过它获取当前用户，避免每个请求都查询 app_user 及其角色表。
+ * 缓存条目有 TTL 和容量上限，用户、角色、用户组变更时由对应服务显式失效。
+ */
+@Service
+@RequiredArgsConstructor
+public class UserPrincipalCache {
+
+    private final UserRepository userRepository;
+
+    @Value("${app.security.principal-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.security.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<String, CachedPrincipal> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 每次失效操作都会递增此代数。加载开始后若代数发生变化，则不写入缓存，
+     * 防止并发加载把失效前读到的旧数据重新放回缓存。
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private record CachedPrincipal(UserPrincipal principal, long expiresAtMillis) {
+    }
+
+    /**
+     * 获取用户快照，未命中或已过期时从数据库加载
+     *
+     * @param userId 用户ID
+     * @return 用户快照
+     * @throws UsernameNotFoundException 用户不存在
+     * @throws DisabledException         用户已被禁用
+     * @throws LockedException           用户已被锁定
+     */
+    public UserPrincipal get(String userId) {
+        long now = System.currentTimeMillis();
+        CachedPrincipal cached = cache.get(userId);
+        UserPrincipal principal;
+        if (cached != null && cached.expiresAtMillis() > now) {
+            principal = cached.principal();
+        } else {
+            principal = load(userId, now);
+        }
+
+        // 与 UserDetailsServiceImpl 保持一致的状态检查
+        if (principal.getStatus() == UserStatus.INACTIVE) {
+            throw new DisabledException("用户账号已被禁用");
+        }
+        if (principal.getStatus() == UserStatus.LOCKED) {
+            throw new LockedException("用户账号已被锁定");
+        }
+        return principal;
+    }
+
+    /**
+     * 使单个用户的快照失效。如果当前处于事务中，则在事务提交后执行，
+     * 保证下一次加载能读到已提交的新数据。
+     */
+    public void invalidate(String userId) {
+        runAfterCommit(() -> {
+            generation.incrementAndGet();
+            cache.remove(userId);
+        });
+    }
+
+    /**
+     * 使所有快照失效 (例如角色或用户组被重命名时)
+     */
+    public void invalidateAll() {
+        runAfterCommit(() -> {
+            generation.incrementAndGet();
+            cache.clear();
+        });
+    }
+
+    private UserPrincipal load(String userId, long now) {
+        long startGeneration = generation.get();
+        User user = userRepository.findWithRolesAndGroupsById(userId)
+                .orElseThrow(() -> new UsernameNotFoundException("未找到用户: " + userId));
+        UserPrincipal principal = UserPrincipal.from(user);
+
+        if (generation.get() == startGeneration) {
+            if (cache.size() >= maxSize) {
+                cache.values().removeIf(c -> c.expiresAtMillis() <= now);
+            }
+            if (cache.size() < maxSize) {
+                cache.put(userId, new CachedPrincipal(principal, now + ttlSeconds * 1000));
+            }
+        }
+        return principal;
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
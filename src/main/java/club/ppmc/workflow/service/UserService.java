@@ -16,6 +16,7 @@ import org.springframework.util.StringUtils;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +31,8 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final SystemSettingService systemSettingService; // 注入系统设置服务
+    private final UserPrincipalCache userPrincipalCache;
+    private final SecurityEpochRegistry securityEpochRegistry;
 
     /**
      * 修改用户密码
@@ -76,6 +79,7 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(defaultPassword));
         user.setPasswordChangeRequired(true);
         userRepository.save(user);
+        userPrincipalCache.invalidate(userId);
     }
 
     /**
@@ -104,11 +108,18 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("未找到用户: " + userId));
 
+        boolean renamed = !Objects.equals(user.getName(), profileDto.getName());
         user.setName(profileDto.getName());
         user.setEmail(profileDto.getEmail());
         user.setPhoneNumber(profileDto.getPhoneNumber());
 
         User savedUser = userRepository.save(user);
+        // 姓名是快照的一部分
+        userPrincipalCache.invalidate(userId);
+        if (renamed) {
+            // 【新增】姓名也写入了 Token，修改后旧 Token 作废，需要重新登录
+            securityEpochRegistry.bump(List.of(userId));
+        }
 
         UserProfileDto responseDto = new UserProfileDto();
         responseDto.setName(savedUser.getName());
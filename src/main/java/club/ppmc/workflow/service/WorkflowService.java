@@ -15,21 +15,14 @@ import org.camunda.bpm.engine.delegate.JavaDelegate;
 import org.camunda.bpm.engine.delegate.TaskListener;
 import org.camunda.bpm.engine.history.HistoricActivityInstance;
 import org.camunda.bpm.engine.history.HistoricTaskInstance;
-import org.camunda.bpm.engine.history.HistoricTaskInstanceQuery;
 import org.camunda.bpm.engine.history.HistoricVariableInstance;
-import org.camunda.bpm.engine.repository.Deployment;
+import org.camunda.bpm.engine.repository.DeploymentWithDefinitions;
 import org.camunda.bpm.engine.repository.ProcessDefinition;
 import org.camunda.bpm.engine.runtime.ProcessInstance;
 import org.camunda.bpm.engine.task.Task;
-import org.camunda.bpm.engine.task.TaskQuery;
-import org.camunda.bpm.model.bpmn.BpmnModelInstance;
-import org.camunda.bpm.model.bpmn.instance.ConditionExpression;
-import org.camunda.bpm.model.bpmn.instance.ExclusiveGateway;
-import org.camunda.bpm.model.bpmn.instance.FlowNode;
-import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -38,8 +31,6 @@ import org.springframework.util.StringUtils;
 import java.time.ZoneId;
 import java.util.*;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -65,21 +56,38 @@ public class WorkflowService {
     private final FormSubmissionRepository formSubmissionRepository;
     private final UserRepository userRepository;
     private final FileAttachmentRepository fileAttachmentRepository;
-    private final RoleRepository roleRepository;
 
     private final ObjectMapper objectMapper;
 
     private final ApplicationContext applicationContext;
 
+    // 【新增】部署时预先计算的任务决策
+    private final ProcessDefinitionAnalyzer processDefinitionAnalyzer;
+    // 【新增】任务收件箱投影与用户快照缓存
+    private final TaskProjectionService taskProjectionService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final AccessDecisionCache accessDecisionCache;
+    // 【新增】发起流程所需元数据的缓存
+    private final ProcessStartMetadataCache processStartMetadataCache;
+
+    // 【新增】表单字段到流程变量的映射模式：all 写入全部字段，referenced 只写入流程表达式引用的字段
+    private static final String VARIABLE_MAPPING_REFERENCED = "referenced";
+
+    @Value("${app.workflow.variable-mapping:all}")
+    private String variableMappingMode;
+
     @LogOperation(module = "流程管理", action = "部署流程", targetIdExpression = "#request.processDefinitionKey")
     public void deployWorkflow(DeployWorkflowRequest request) {
         FormDefinition formDef = formDefinitionRepository.findById(request.getFormDefinitionId())
                 .orElseThrow(() -> new ResourceNotFoundException("未找到表单定义 ID: " + request.getFormDefinitionId()));
 
-        Deployment deployment = repositoryService.createDeployment()
+        DeploymentWithDefinitions deployment = repositoryService.createDeployment()
                 .addString(request.getProcessDefinitionKey() + ".bpmn", request.getBpmnXml())
                 .name("Deployment for form: " + formDef.getName())
-                .deploy();
+                .deployWithResult();
+        // 【新增】部署时即分析各用户任务的可用决策，请求期间不再解析 BPMN
+        deployment.getDeployedProcessDefinitions()
+                .forEach(definition -> processDefinitionAnalyzer.analyze(definition.getId()));
 
         WorkflowTemplate template = templateRepository.findByFormDefinitionId(request.getFormDefinitionId())
                 .orElse(new WorkflowTemplate());
@@ -90,6 +98,7 @@ public class WorkflowService {
         template.setCamundaDeploymentId(deployment.getId());
 
         templateRepository.save(template);
+        processStartMetadataCache.invalidate(request.getFormDefinitionId());
     }
 
     @LogOperation(module = "流程管理", action = "保存流程草稿", targetIdExpression = "#request.processDefinitionKey")
@@ -105,6 +114,7 @@ public class WorkflowService {
         template.setProcessDefinitionKey(request.getProcessDefinitionKey());
 
         WorkflowTemplate savedTemplate = templateRepository.save(template);
+        processStartMetadataCache.invalidate(formId);
 
         WorkflowTemplateResponse dto = new WorkflowTemplateResponse();
         dto.setFormDefinitionId(savedTemplate.getFormDefinition().getId());
@@ -311,32 +321,30 @@ public class WorkflowService {
     }
 
     public void startWorkflow(FormSubmission submission, String initialAction) {
+        Long formDefinitionId = submission.getFormDefinition().getId();
         try {
             identityService.setAuthenticatedUserId(submission.getSubmitterId());
-            templateRepository.findByFormDefinitionId(submission.getFormDefinition().getId()).ifPresent(template -> {
+            // 【核心修改】模板、最新流程定义和静态变量从缓存获取，启动流程时不再查询这些元数据
+            processStartMetadataCache.get(formDefinitionId).ifPresent(metadata -> {
                 try {
-                    ProcessDefinition processDefinition = repositoryService.createProcessDefinitionQuery()
-                            .processDefinitionKey(template.getProcessDefinitionKey())
-                            .latestVersion()
-                            .singleResult();
-
-                    if (processDefinition == null) {
+                    if (metadata.processDefinitionId() == null) {
                         String errorMessage = String.format(
                                 "无法启动工作流：未找到与此表单关联的已部署流程定义 (Key: %s)。请先在流程设计器中部署该流程。",
-                                template.getProcessDefinitionKey()
+                                metadata.processDefinitionKey()
                         );
                         log.error(errorMessage);
                         throw new IllegalStateException(errorMessage);
                     }
 
-                    Map<String, Object> variables = objectMapper.readValue(submission.getDataJson(), new TypeReference<>() {});
+                    Map<String, Object> variables = toProcessVariables(metadata.processDefinitionId(),
+                            objectMapper.readValue(submission.getDataJson(), new TypeReference<>() {}));
 
                     User submitter = userRepository.findById(submission.getSubmitterId())
                             .orElseThrow(() -> new IllegalStateException("数据异常：找不到提交人，ID: " + submission.getSubmitterId()));
 
                     variables.put("submitterId", submission.getSubmitterId());
                     variables.put("submitterName", submitter.getName());
-                    variables.put("formName", submission.getFormDefinition().getName());
+                    variables.put("formName", metadata.formName());
                     variables.put("formSubmissionId", submission.getId());
                     variables.put("initiator", submitter.getId());
 
@@ -348,18 +356,23 @@ public class WorkflowService {
                         throw new IllegalStateException("提交者 '" + submitter.getName() + "' 没有设置上级经理，无法启动需要上级审批的流程。");
                     }
 
-                    roleRepository.findByName("FINANCE_APPROVER").ifPresent(role ->
-                            variables.put("financeRole", role.getName())
-                    );
+                    variables.putAll(metadata.staticVariables());
 
-                    ProcessInstance camundaInstance = runtimeService.startProcessInstanceByKey(
-                            template.getProcessDefinitionKey(),
-                            submission.getId().toString(),
-                            variables
-                    );
+                    ProcessInstance camundaInstance;
+                    try {
+                        camundaInstance = runtimeService.startProcessInstanceById(
+                                metadata.processDefinitionId(),
+                                submission.getId().toString(),
+                                variables
+                        );
+                    } catch (ProcessEngineException e) {
+                        // 缓存的流程定义可能已被删除，下次启动时重新加载
+                        processStartMetadataCache.evict(formDefinitionId);
+                        throw e;
+                    }
 
                     WorkflowInstance localInstance = new WorkflowInstance();
-                    localInstance.setTemplate(template);
+                    localInstance.setTemplate(templateRepository.getReferenceById(metadata.templateId()));
                     localInstance.setFormSubmission(submission);
                     localInstance.setProcessInstanceId(camundaInstance.getId());
 
@@ -379,6 +392,28 @@ public class WorkflowService {
         }
     }
 
+    /**
+     * 【新增】按映射模式选出写入流程变量的表单字段。
+     * referenced 模式下只写入流程定义的表达式 (及其引用的委托) 实际用到的字段，其余字段只保存在申请的 dataJson 中；
+     * 流程包含无法静态分析的元素时仍写入全部字段。
+     */
+    private Map<String, Object> toProcessVariables(String processDefinitionId, Map<String, Object> formData) {
+        if (!VARIABLE_MAPPING_REFERENCED.equals(variableMappingMode)) {
+            return formData;
+        }
+        return processDefinitionAnalyzer.getReferencedVariables(processDefinitionId)
+                .map(referenced -> {
+                    Map<String, Object> promoted = new HashMap<>();
+                    formData.forEach((name, value) -> {
+                        if (referenced.contains(name)) {
+                            promoted.put(name, value);
+                        }
+                    });
+                    return promoted;
+                })
+                .orElse(formData);
+    }
+
     public void startWorkflow(FormSubmission submission) {
         startWorkflow(submission, null);
     }
@@ -411,6 +446,16 @@ public class WorkflowService {
             throw new ResourceNotFoundException("在 Camunda 中未找到任务 ID: " + camundaTaskId);
         }
 
+        // 【新增】审批决策必须是该任务节点提供的选项之一 (准备阶段的任务由 preparationOutcome 决定走向，不做校验)
+        if (request.getDecision() != null && !StringUtils.hasText(request.getPreparationOutcome())) {
+            List<String> availableDecisions = processDefinitionAnalyzer.getAvailableDecisions(
+                    task.getProcessDefinitionId(), task.getTaskDefinitionKey());
+            if (!availableDecisions.contains(request.getDecision().name())) {
+                throw new IllegalArgumentException("任务 " + camundaTaskId + " 不支持决策 " + request.getDecision()
+                        + "，可用决策: " + availableDecisions);
+            }
+        }
+
         String processInstanceId = task.getProcessInstanceId();
 
         WorkflowInstance instance = instanceRepository.findByProcessInstanceId(processInstanceId)
@@ -422,7 +467,8 @@ public class WorkflowService {
             log.info("已更新申请单 (ID: {}) 的表单数据。", submission.getId());
 
             try {
-                Map<String, Object> updatedVariables = objectMapper.readValue(request.getUpdatedFormData(), new TypeReference<>() {});
+                Map<String, Object> updatedVariables = toProcessVariables(task.getProcessDefinitionId(),
+                        objectMapper.readValue(request.getUpdatedFormData(), new TypeReference<>() {}));
                 runtimeService.setVariables(processInstanceId, updatedVariables);
                 log.info("已从重新提交的表单数据中更新流程实例 (ID: {}) 的变量。", processInstanceId);
             } catch (JsonProcessingException e) {
@@ -489,114 +535,75 @@ public class WorkflowService {
         taskService.complete(camundaTaskId, variables);
     }
 
+    /**
+     * 【核心修改】从任务收件箱投影中分页查询待办任务，只需一次带索引的查询，不访问 Camunda
+     */
     @Transactional(readOnly = true)
     public Page<TaskDto> getPendingTasksForUser(String assigneeId, String keyword, Pageable pageable) {
-        User user = userRepository.findById(assigneeId)
-                .orElseThrow(() -> new ResourceNotFoundException("未找到用户: " + assigneeId));
-        List<String> userGroupIds = user.getUserGroups().stream()
-                .map(UserGroup::getName)
-                .collect(Collectors.toList());
-
-        TaskQuery query = taskService.createTaskQuery().active();
-
-        TaskQuery orQuery = query.or()
-                .taskAssignee(assigneeId)
-                .taskCandidateUser(assigneeId);
-
-        if (!userGroupIds.isEmpty()) {
-            orQuery.taskCandidateGroupIn(userGroupIds);
-        }
-        query = orQuery.endOr();
+        Set<String> groupNames = userPrincipalCache.get(assigneeId).getGroupNames();
+        return taskProjectionService.findInbox(assigneeId, groupNames, keyword, pageable)
+                .map(this::convertProjectionToDto);
+    }
 
-        if (StringUtils.hasText(keyword)) {
-            query.processVariableValueLike("formName", "%" + keyword + "%");
-        }
+    /**
+     * 【新增】游标分页查询待办任务，深翻页不再随页码变慢，也不会每页重复计数
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TaskDto> getPendingTasksByCursor(String assigneeId, String keyword, String cursor, int size, boolean withTotal) {
+        Set<String> groupNames = userPrincipalCache.get(assigneeId).getGroupNames();
+        CursorPage<club.ppmc.workflow.domain.Task> page = taskProjectionService.seekInbox(assigneeId, groupNames, keyword, cursor, size, withTotal);
+        return new CursorPage<>(page.getContent().stream().map(this::convertProjectionToDto).collect(Collectors.toList()),
+                page.getNextCursor(), page.isHasMore(), page.getTotalElements());
+    }
 
-        long total = query.count();
-        List<Task> camundaTasks = query.orderByTaskCreateTime().desc()
-                .listPage((int) pageable.getOffset(), pageable.getPageSize());
-        List<TaskDto> taskDtos = camundaTasks.stream()
-                .map(this::convertCamundaTaskToDto)
-                .collect(Collectors.toList());
+    /**
+     * 【新增】游标分页查询已办任务 (按完成时间倒序)
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CompletedTaskDto> getCompletedTasksByCursor(String assigneeId, String keyword, String cursor, int size, boolean withTotal) {
+        CursorPage<club.ppmc.workflow.domain.Task> page = taskProjectionService.seekCompleted(assigneeId, keyword, cursor, size, withTotal);
+        return new CursorPage<>(page.getContent().stream().map(this::convertProjectionToCompletedDto).collect(Collectors.toList()),
+                page.getNextCursor(), page.isHasMore(), page.getTotalElements());
+    }
 
-        return new PageImpl<>(taskDtos, pageable, total);
+    private TaskDto convertProjectionToDto(club.ppmc.workflow.domain.Task task) {
+        TaskDto dto = new TaskDto();
+        dto.setCamundaTaskId(task.getCamundaTaskId());
+        dto.setStepName(task.getStepName());
+        dto.setCreatedAt(Date.from(task.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant()));
+        dto.setFormSubmissionId(task.getSubmissionId());
+        dto.setFormDefinitionId(task.getFormDefinitionId());
+        dto.setSubmitterName(task.getSubmitterName() != null ? task.getSubmitterName() : "未知");
+        dto.setFormName(task.getFormName() != null ? task.getFormName() : "未知表单");
+        dto.setAvailableDecisions(processDefinitionAnalyzer.getAvailableDecisions(task.getProcessDefinitionId(), task.getTaskDefinitionKey()));
+        return dto;
     }
 
+    /**
+     * 【核心修改】已办任务与游标分页一样由任务投影提供，决策取自每个任务完成时的 taskOutcome，
+     * 不再读取会被后续任务覆盖的流程级变量；关键字搜索走投影的倒排索引。
+     */
     @Transactional(readOnly = true)
     public Page<CompletedTaskDto> getCompletedTasksForUser(String assigneeId, String keyword, Pageable pageable) {
-        HistoricTaskInstanceQuery query = historyService.createHistoricTaskInstanceQuery()
-                .taskAssignee(assigneeId)
-                .finished();
-
-        if (StringUtils.hasText(keyword)) {
-            query.processVariableValueLike("formName", "%" + keyword + "%");
-        }
-
-        long total = query.count();
-        List<HistoricTaskInstance> historicTasks = query.orderByHistoricTaskInstanceEndTime().desc()
-                .listPage((int) pageable.getOffset(), pageable.getPageSize());
-
-        if (historicTasks.isEmpty()) {
-            return Page.empty(pageable);
-        }
-
-        List<String> taskIds = historicTasks.stream().map(HistoricTaskInstance::getId).collect(Collectors.toList());
-        Map<String, String> commentsMap = historyService.createHistoricVariableInstanceQuery()
-                .taskIdIn(taskIds.toArray(new String[0]))
-                .variableName("approvalComment")
-                .list()
-                .stream()
-                .collect(Collectors.toMap(HistoricVariableInstance::getTaskId, v -> (String) v.getValue()));
-
-        Set<String> processInstanceIds = historicTasks.stream().map(HistoricTaskInstance::getProcessInstanceId).collect(Collectors.toSet());
-        Map<String, Map<String, Object>> processVariablesMap = new HashMap<>();
-        if (!processInstanceIds.isEmpty()) {
-            historyService.createHistoricVariableInstanceQuery()
-                    .processInstanceIdIn(processInstanceIds.toArray(new String[0]))
-                    .list()
-                    .forEach(var -> processVariablesMap
-                            .computeIfAbsent(var.getProcessInstanceId(), k -> new HashMap<>())
-                            .put(var.getName(), var.getValue()));
-        }
-
-        List<CompletedTaskDto> dtos = historicTasks.stream()
-                .map(task -> {
-                    Map<String, Object> pVars = processVariablesMap.getOrDefault(task.getProcessInstanceId(), Collections.emptyMap());
-
-                    String decision = "UNKNOWN";
-                    Object taskOutcomeObj = pVars.get("taskOutcome");
-                    if (taskOutcomeObj instanceof String) {
-                        String outcome = (String) taskOutcomeObj;
-                        decision = switch (outcome) {
-                            case "approved" -> "APPROVED";
-                            case "rejected" -> "REJECTED";
-                            case "returnToInitiator" -> "RETURN_TO_INITIATOR";
-                            case "returnToPrevious" -> "RETURN_TO_PREVIOUS";
-                            default -> outcome.toUpperCase();
-                        };
-                    } else {
-                        Object approvedVar = pVars.get("approved");
-                        if (approvedVar instanceof Boolean) {
-                            decision = (Boolean) approvedVar ? "APPROVED" : "REJECTED";
-                        }
-                    }
-
-                    return CompletedTaskDto.builder()
-                            .camundaTaskId(task.getId())
-                            .stepName(task.getName())
-                            .startTime(task.getStartTime())
-                            .endTime(task.getEndTime())
-                            .durationInMillis(task.getDurationInMillis())
-                            .formSubmissionId((Long) pVars.get("formSubmissionId"))
-                            .formName((String) pVars.get("formName"))
-                            .submitterName((String) pVars.get("submitterName"))
-                            .decision(decision)
-                            .comment(commentsMap.get(task.getId()))
-                            .build();
-                })
-                .collect(Collectors.toList());
+        return taskProjectionService.findCompleted(assigneeId, keyword, pageable)
+                .map(this::convertProjectionToCompletedDto);
+    }
 
-        return new PageImpl<>(dtos, pageable, total);
+    private CompletedTaskDto convertProjectionToCompletedDto(club.ppmc.workflow.domain.Task task) {
+        Date startTime = Date.from(task.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant());
+        Date endTime = task.getCompletedAt() != null ? Date.from(task.getCompletedAt().atZone(ZoneId.systemDefault()).toInstant()) : null;
+        return CompletedTaskDto.builder()
+                .camundaTaskId(task.getCamundaTaskId())
+                .stepName(task.getStepName())
+                .startTime(startTime)
+                .endTime(endTime)
+                .durationInMillis(endTime != null ? endTime.getTime() - startTime.getTime() : null)
+                .formSubmissionId(task.getSubmissionId())
+                .formName(task.getFormName())
+                .submitterName(task.getSubmitterName())
+                .decision(task.getDecision() != null ? task.getDecision().name() : "UNKNOWN")
+                .comment(task.getComment())
+                .build();
     }
 
     @Transactional(readOnly = true)
@@ -605,87 +612,69 @@ public class WorkflowService {
         if (task == null) {
             throw new ResourceNotFoundException("在 Camunda 中未找到任务 ID: " + camundaTaskId);
         }
-        return convertCamundaTaskToDto(task);
-    }
-
-    private TaskDto convertCamundaTaskToDto(Task camundaTask) {
-        TaskDto dto = new TaskDto();
-        dto.setCamundaTaskId(camundaTask.getId());
-        dto.setStepName(camundaTask.getName());
-        dto.setCreatedAt(camundaTask.getCreateTime());
-
-        Map<String, Object> variables = runtimeService.getVariables(camundaTask.getProcessInstanceId());
-
-        Object formSubmissionIdObj = variables.get("formSubmissionId");
-        if (formSubmissionIdObj instanceof Number) {
-            Long submissionId = ((Number) formSubmissionIdObj).longValue();
-            dto.setFormSubmissionId(submissionId);
-            formSubmissionRepository.findById(submissionId).ifPresent(submission -> {
-                if (submission.getFormDefinition() != null) {
-                    dto.setFormDefinitionId(submission.getFormDefinition().getId());
-                }
-            });
-        }
-
-        dto.setSubmitterName((String) variables.getOrDefault("submitterName", "未知"));
-        dto.setFormName((String) variables.getOrDefault("formName", "未知表单"));
-
-        List<String> decisions = new ArrayList<>();
-        try {
-            BpmnModelInstance modelInstance = repositoryService.getBpmnModelInstance(camundaTask.getProcessDefinitionId());
-            FlowNode taskNode = modelInstance.getModelElementById(camundaTask.getTaskDefinitionKey());
-            Collection<SequenceFlow> decisionFlows = findDecisionFlows(taskNode, 0);
-            Pattern pattern = Pattern.compile("\\$\\{taskOutcome\\s*==\\s*'([^']*)'\\}");
-
-            for (SequenceFlow flow : decisionFlows) {
-                ConditionExpression condition = flow.getConditionExpression();
-                if (condition != null && condition.getTextContent() != null) {
-                    Matcher matcher = pattern.matcher(condition.getTextContent().trim());
-                    if (matcher.matches()) {
-                        String outcome = matcher.group(1);
-                        String decision = outcome.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
-                        decisions.add(decision);
-                    }
-                }
-            }
-
-            if (decisions.isEmpty()) {
-                log.warn("任务 '{}' (定义KEY: {}) 未找到基于 'taskOutcome' 的条件分支, 将提供默认操作。",
-                        camundaTask.getId(), camundaTask.getTaskDefinitionKey());
-                decisions.addAll(List.of("APPROVED", "REJECTED"));
-            }
-
-        } catch (Exception e) {
-            log.error("解析任务 {} 的可用决策时发生错误, 将提供默认操作。", camundaTask.getId(), e);
-            decisions.addAll(List.of("APPROVED", "REJECTED"));
-        }
-        dto.setAvailableDecisions(decisions);
-
-        return dto;
+        return assembleTaskDtos(List.of(task)).get(0);
     }
 
-    private Collection<SequenceFlow> findDecisionFlows(FlowNode currentNode, int depth) {
-        if (depth > 10) {
-            log.warn("查找决策点时递归深度超过10，已中止。节点ID: {}", currentNode.getId());
+    /**
+     * 【核心重构】批量组装任务 DTO。
+     * 整页任务只需一次变量查询 (仅取 formSubmissionId / submitterName / formName)
+     * 和一次 findAllById 查询提交记录，可用决策从共享缓存中获取，
+     * 因此无论页面大小，数据库往返次数都是常数。
+     */
+    private List<TaskDto> assembleTaskDtos(List<Task> camundaTasks) {
+        if (camundaTasks.isEmpty()) {
             return Collections.emptyList();
         }
 
-        Collection<SequenceFlow> outgoingFlows = currentNode.getOutgoing();
-        if (outgoingFlows.size() > 1 || (outgoingFlows.size() == 1 && outgoingFlows.iterator().next().getConditionExpression() != null)) {
-            return outgoingFlows;
-        }
-
-        if (outgoingFlows.size() == 1) {
-            SequenceFlow singleFlow = outgoingFlows.iterator().next();
-            FlowNode targetNode = singleFlow.getTarget();
-            if (targetNode instanceof ExclusiveGateway) {
-                return targetNode.getOutgoing();
+        // 1. 一次性查询本页所有流程实例的所需变量 (只取流程实例级别的变量，与 getVariables 语义一致)
+        String[] processInstanceIds = camundaTasks.stream()
+                .map(Task::getProcessInstanceId)
+                .distinct()
+                .toArray(String[]::new);
+        Map<String, Map<String, Object>> variablesByInstance = new HashMap<>();
+        runtimeService.createVariableInstanceQuery()
+                .processInstanceIdIn(processInstanceIds)
+                .variableNameIn("formSubmissionId", "submitterName", "formName")
+                .disableCustomObjectDeserialization()
+                .list()
+                .stream()
+                .filter(v -> v.getProcessInstanceId().equals(v.getExecutionId()))
+                .forEach(v -> variablesByInstance
+                        .computeIfAbsent(v.getProcessInstanceId(), k -> new HashMap<>())
+                        .put(v.getName(), v.getValue()));
+
+        // 2. 一次性加载所有关联的提交记录，获取表单定义ID
+        Set<Long> submissionIds = variablesByInstance.values().stream()
+                .map(vars -> vars.get("formSubmissionId"))
+                .filter(Number.class::isInstance)
+                .map(id -> ((Number) id).longValue())
+                .collect(Collectors.toSet());
+        Map<Long, Long> formDefinitionIdsBySubmission = new HashMap<>();
+        formSubmissionRepository.findAllById(submissionIds).forEach(submission -> {
+            if (submission.getFormDefinition() != null) {
+                formDefinitionIdsBySubmission.put(submission.getId(), submission.getFormDefinition().getId());
             }
-            if (targetNode != null) {
-                return findDecisionFlows(targetNode, depth + 1);
+        });
+
+        // 3. 组装 DTO
+        return camundaTasks.stream().map(camundaTask -> {
+            TaskDto dto = new TaskDto();
+            dto.setCamundaTaskId(camundaTask.getId());
+            dto.setStepName(camundaTask.getName());
+            dto.setCreatedAt(camundaTask.getCreateTime());
+
+            Map<String, Object> variables = variablesByInstance.getOrDefault(camundaTask.getProcessInstanceId(), Collections.emptyMap());
+            Object formSubmissionIdObj = variables.get("formSubmissionId");
+            if (formSubmissionIdObj instanceof Number) {
+                Long submissionId = ((Number) formSubmissionIdObj).longValue();
+                dto.setFormSubmissionId(submissionId);
+                dto.setFormDefinitionId(formDefinitionIdsBySubmission.get(submissionId));
             }
-        }
-        return Collections.emptyList();
+            dto.setSubmitterName((String) variables.getOrDefault("submitterName", "未知"));
+            dto.setFormName((String) variables.getOrDefault("formName", "未知表单"));
+            dto.setAvailableDecisions(processDefinitionAnalyzer.getAvailableDecisions(camundaTask.getProcessDefinitionId(), camundaTask.getTaskDefinitionKey()));
+            return dto;
+        }).collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
@@ -714,6 +703,8 @@ public class WorkflowService {
         List<HistoricVariableInstance> variableInstances = historyService.createHistoricVariableInstanceQuery()
                 .processInstanceId(processInstanceId)
                 .variableName("approvalComment")
+                .disableBinaryFetching()
+                .disableCustomObjectDeserialization()
                 .list();
         Map<String, HistoricVariableInstance> taskComments = variableInstances.stream()
                 .filter(v -> v.getTaskId() != null)
@@ -820,87 +811,47 @@ public class WorkflowService {
         if (!StringUtils.hasText(username)) {
             return false;
         }
-
-        Optional<User> userOpt = userRepository.findById(username);
-        List<String> userGroupIds = userOpt.map(user ->
-                user.getUserGroups().stream()
-                        .map(UserGroup::getName)
-                        .collect(Collectors.toList())
-        ).orElse(Collections.emptyList());
-
-        TaskQuery query = taskService.createTaskQuery()
-                .taskId(camundaTaskId)
-                .or()
-                .taskAssignee(username)
-                .taskCandidateUser(username);
-
-        if (!userGroupIds.isEmpty()) {
-            query.taskCandidateGroupIn(userGroupIds);
-        }
-
-        long count = query.endOr().count();
-
-        return count > 0;
+        // 【核心修改】直接查询任务收件箱投影
+        return taskProjectionService.isInboxTask(camundaTaskId, username, userPrincipalCache.get(username).getGroupNames());
     }
 
     public boolean isSubmissionOwner(Long submissionId, String username) {
         if (username == null) return false;
-        return formSubmissionRepository.findById(submissionId)
-                .map(FormSubmission::getSubmitterId)
-                .map(username::equals)
-                .orElse(false);
+        return accessDecisionCache.get("submission-owner:" + submissionId + ":" + username,
+                () -> formSubmissionRepository.findById(submissionId)
+                        .map(FormSubmission::getSubmitterId)
+                        .map(username::equals)
+                        .orElse(false));
     }
 
+    /**
+     * 【核心修改】判断用户是否为申请单当前待办的参与者或历史办理人 (基于任务投影，一次索引查询)
+     */
     public boolean isTaskAssigneeForSubmission(Long submissionId, String username) {
         if (username == null) {
             return false;
         }
+        return canAccessSubmission(submissionId, username);
+    }
 
-        Optional<String> processInstanceIdOpt = formSubmissionRepository.findById(submissionId)
-                .map(FormSubmission::getWorkflowInstance)
-                .map(WorkflowInstance::getProcessInstanceId);
-
-        if (processInstanceIdOpt.isEmpty()) {
+    /**
+     * 【新增】判断用户是否可以查看申请单：申请人、当前待办的办理人或候选人、历史办理人。
+     * 判定结果在当前请求内缓存，同一请求中重复校验不会再次查询。
+     *
+     * @param submissionId 申请提交ID
+     * @param username     用户ID
+     * @return 是否为申请单的参与者
+     */
+    public boolean canAccessSubmission(Long submissionId, String username) {
+        if (!StringUtils.hasText(username) || submissionId == null) {
             return false;
         }
-
-        String processInstanceId = processInstanceIdOpt.get();
-
-        List<String> userGroupIds = userRepository.findById(username)
-                .map(user -> user.getUserGroups().stream()
-                        .map(UserGroup::getName)
-                        .collect(Collectors.toList()))
-                .orElse(Collections.emptyList());
-
-        TaskQuery activeQuery = taskService.createTaskQuery()
-                .processInstanceId(processInstanceId)
-                .active()
-                .or()
-                .taskAssignee(username)
-                .taskCandidateUser(username);
-
-        if (!userGroupIds.isEmpty()) {
-            activeQuery.taskCandidateGroupIn(userGroupIds);
-        }
-
-        if (activeQuery.endOr().count() > 0) {
-            log.debug("权限检查: 用户 '{}' 是申请单 #{} 的当前待办参与者。", username, submissionId);
-            return true;
-        }
-
-        long historicTaskCount = historyService.createHistoricTaskInstanceQuery()
-                .processInstanceId(processInstanceId)
-                .taskAssignee(username)
-                .finished()
-                .count();
-
-        if (historicTaskCount > 0) {
-            log.debug("权限检查: 用户 '{}' 是申请单 #{} 的历史审批人。", username, submissionId);
-            return true;
-        }
-
-        log.debug("权限检查: 用户 '{}' 不是申请单 #{} 的任何阶段参与者。", username, submissionId);
-        return false;
+        return accessDecisionCache.get("submission-participant:" + submissionId + ":" + username, () -> {
+            boolean participant = taskProjectionService.isSubmissionParticipant(
+                    submissionId, username, userPrincipalCache.get(username).getGroupNames());
+            log.debug("权限检查: 用户 '{}' {}申请单 #{} 的参与者。", username, participant ? "是" : "不是", submissionId);
+            return participant;
+        });
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,97 @@
+package club.ppmc.workflow.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author cc
+ * @description 【新增】逐条读取 CSV 记录的简单解析器 (RFC 4180)。
+ * 支持双引号包裹的字段、字段内的逗号、换行和转义的双引号 ("")，一次只在内存中保留一条记录。
+ */
+public class CsvReader {
+
+    private final Reader reader;
+    private int lookahead = -2; // -2 表示尚未预读
+    private long recordNumber;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 读取下一条记录
+     *
+     * @param maxRecordLength 单条记录允许的最大字符数，防止格式错误 (如引号未闭合) 时读入整个文件
+     * @return 字段列表；已到文件末尾时返回 null
+     * @throws IOException              读取失败
+     * @throws IllegalArgumentException 记录超过最大长度或引号未闭合
+     */
+    public List<String> readRecord(int maxRecordLength) throws IOException {
+        int c = next();
+        if (c == -1) {
+            return null;
+        }
+        recordNumber++;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        while (true) {
+            if (++length > maxRecordLength) {
+                throw new IllegalArgumentException("第 " + recordNumber + " 条 CSV 记录过长");
+            }
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("第 " + recordNumber + " 条 CSV 记录的引号未闭合");
+                }
+                if (c == '"') {
+                    int following = next();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r') {
+                    int following = next();
+                    if (following != '\n') {
+                        lookahead = following;
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = next();
+        }
+    }
+
+    /**
+     * 已读取的记录数 (含表头)
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    private int next() throws IOException {
+        if (lookahead != -2) {
+            int c = lookahead;
+            lookahead = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
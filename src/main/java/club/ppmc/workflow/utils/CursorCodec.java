@@ -0,0 +1,54 @@
+package club.ppmc.workflow.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * @author cc
+ * @description 【新增】游标分页 (keyset pagination) 的游标编解码工具类。
+ * 游标记录上一页最后一条记录的 (排序时间, ID)，对客户端是不透明的 Base64 字符串。
+ */
+public class CursorCodec {
+
+    private static final char SEPARATOR = '|';
+
+    private CursorCodec() {
+    }
+
+    /**
+     * 游标内容
+     *
+     * @param sortValue 排序字段的值 (时间的字符串形式)
+     * @param id        用于打破并列的记录ID
+     */
+    public record Cursor(String sortValue, String id) {
+    }
+
+    public static String encode(String sortValue, String id) {
+        String raw = sortValue + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     *
+     * @param cursor 客户端传回的游标
+     * @return 游标内容；cursor 为空时返回 null (表示第一页)
+     * @throws IllegalArgumentException 如果游标格式无效
+     */
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new Cursor(raw.substring(0, separator), raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+}
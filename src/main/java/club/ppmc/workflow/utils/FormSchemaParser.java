@@ -4,11 +4,16 @@ import club.ppmc.workflow.dto.FormFieldConfigDto;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * @author cc
@@ -27,21 +32,24 @@ public class FormSchemaParser {
     public static ParsedSchema parse(String schemaJson, ObjectMapper objectMapper) throws IOException {
         List<FormFieldConfigDto> filterableFields = new ArrayList<>();
         List<FormFieldConfigDto> listDisplayFields = new ArrayList<>();
+        List<FormFieldConfigDto> inputFields = new ArrayList<>();
+        Set<String> requiredFieldIds = new LinkedHashSet<>();
 
         JsonNode rootNode = objectMapper.readTree(schemaJson);
         JsonNode fieldsNode = rootNode.path("fields");
 
         if (fieldsNode.isArray()) {
-            flattenAndProcessFields(fieldsNode, filterableFields, listDisplayFields);
+            flattenAndProcessFields(fieldsNode, filterableFields, listDisplayFields, inputFields, requiredFieldIds);
         }
 
-        return new ParsedSchema(filterableFields, listDisplayFields);
+        return new ParsedSchema(filterableFields, listDisplayFields, inputFields, requiredFieldIds);
     }
 
     /**
      * 递归地扁平化字段结构（处理GridRow, Collapse等布局组件）并处理字段。
      */
-    private static void flattenAndProcessFields(JsonNode fieldsNode, List<FormFieldConfigDto> filterable, List<FormFieldConfigDto> listDisplay) {
+    private static void flattenAndProcessFields(JsonNode fieldsNode, List<FormFieldConfigDto> filterable, List<FormFieldConfigDto> listDisplay,
+                                                List<FormFieldConfigDto> inputs, Set<String> required) {
         for (JsonNode fieldNode : fieldsNode) {
             String type = fieldNode.path("type").asText();
 
@@ -56,19 +64,27 @@ public class FormSchemaParser {
                 if (fieldNode.path("showInList").asBoolean(false)) {
                     listDisplay.add(new FormFieldConfigDto(id, label, type));
                 }
+                // 【新增】记录所有输入字段，以及无条件必填的字段 (带显示条件的字段可能被隐藏，不视为必填)
+                inputs.add(new FormFieldConfigDto(id, label, type));
+                boolean conditional = fieldNode.path("visibility").path("enabled").asBoolean(false);
+                for (JsonNode rule : fieldNode.path("rules")) {
+                    if (rule.path("required").asBoolean(false) && !conditional) {
+                        required.add(id);
+                    }
+                }
             }
 
             // 2. 递归处理布局容器内的字段
             if ("GridRow".equals(type) && fieldNode.has("columns")) {
                 for (JsonNode columnNode : fieldNode.path("columns")) {
                     if (columnNode.has("fields")) {
-                        flattenAndProcessFields(columnNode.path("fields"), filterable, listDisplay);
+                        flattenAndProcessFields(columnNode.path("fields"), filterable, listDisplay, inputs, required);
                     }
                 }
             } else if ("Collapse".equals(type) && fieldNode.has("panels")) {
                 for (JsonNode panelNode : fieldNode.path("panels")) {
                     if (panelNode.has("fields")) {
-                        flattenAndProcessFields(panelNode.path("fields"), filterable, listDisplay);
+                        flattenAndProcessFields(panelNode.path("fields"), filterable, listDisplay, inputs, required);
                     }
                 }
             }
@@ -77,11 +93,35 @@ public class FormSchemaParser {
 
     /**
      * 用于封装解析结果的内部静态类。
+     * 【修改】解析结果不可变，可以被 FormSchemaCache 缓存并在多个线程间共享。
      */
     @Getter
-    @RequiredArgsConstructor
     public static class ParsedSchema {
         private final List<FormFieldConfigDto> filterableFields;
         private final List<FormFieldConfigDto> listDisplayFields;
+        // 【新增】全部输入字段和必填字段ID
+        private final List<FormFieldConfigDto> inputFields;
+        private final Set<String> requiredFieldIds;
+        // 【新增】按字段ID索引的输入字段 (字段ID重复时以第一个为准)，以及可筛选或列表展示的字段ID (用于搜索索引)
+        private final Map<String, FormFieldConfigDto> fieldsById;
+        private final Set<String> searchableFieldIds;
+
+        public ParsedSchema(List<FormFieldConfigDto> filterableFields, List<FormFieldConfigDto> listDisplayFields,
+                            List<FormFieldConfigDto> inputFields, Set<String> requiredFieldIds) {
+            this.filterableFields = List.copyOf(filterableFields);
+            this.listDisplayFields = List.copyOf(listDisplayFields);
+            this.inputFields = List.copyOf(inputFields);
+            this.requiredFieldIds = Collections.unmodifiableSet(new LinkedHashSet<>(requiredFieldIds));
+
+            Map<String, FormFieldConfigDto> byId = new LinkedHashMap<>();
+            inputFields.forEach(field -> byId.putIfAbsent(field.getId(), field));
+            this.fieldsById = Collections.unmodifiableMap(byId);
+
+            Set<String> searchable = new LinkedHashSet<>();
+            Stream.concat(filterableFields.stream(), listDisplayFields.stream())
+                    .map(FormFieldConfigDto::getId)
+                    .forEach(searchable::add);
+            this.searchableFieldIds = Collections.unmodifiableSet(searchable);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package club.ppmc.workflow.utils;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * @author cc
+ * @description 【新增】任务搜索索引的分词工具类。
+ * 中日韩文字按单字和相邻二字 (bigram) 切分，字母数字按单词切分并索引单词的所有前缀，
+ * 使 "报销"、"销申" 这类中文片段和 "lap" 这类单词前缀都能通过等值匹配命中索引，无需前导通配符的 LIKE。
+ * 英文和数字只支持前缀匹配，"top" 不会命中 "laptop"。
+ */
+public class SearchTokenizer {
+
+    /**
+     * 单个 token 的最大长度 (与 task_search_token.token 列长度一致)
+     */
+    public static final int MAX_TOKEN_LENGTH = 32;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 为待索引的文本生成 token：中文单字 + 二字组，英文/数字单词的所有前缀
+     *
+     * @param text   待索引文本
+     * @param tokens 输出的 token 集合
+     */
+    public static void addIndexTokens(String text, Set<String> tokens) {
+        tokenize(text, tokens, true);
+    }
+
+    /**
+     * 为搜索关键字生成 token：中文二字组 (单字关键字时为单字)，英文/数字为完整单词。
+     * 命中的任务必须包含全部 token。
+     *
+     * @param keyword 搜索关键字
+     * @return token 集合；关键字中没有可检索字符时返回空集合
+     */
+    public static Set<String> queryTokens(String keyword) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(keyword, tokens, false);
+        return tokens;
+    }
+
+    private static void tokenize(String text, Set<String> tokens, boolean forIndex) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        // NFKC 将全角字母数字转为半角
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+
+        StringBuilder cjkRun = new StringBuilder();
+        StringBuilder wordRun = new StringBuilder();
+        int i = 0;
+        while (i < normalized.length()) {
+            int codePoint = normalized.codePointAt(i);
+            if (isCjk(codePoint)) {
+                flushWord(wordRun, tokens, forIndex);
+                cjkRun.appendCodePoint(codePoint);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushCjk(cjkRun, tokens, forIndex);
+                wordRun.appendCodePoint(codePoint);
+            } else {
+                flushCjk(cjkRun, tokens, forIndex);
+                flushWord(wordRun, tokens, forIndex);
+            }
+            i += Character.charCount(codePoint);
+        }
+        flushCjk(cjkRun, tokens, forIndex);
+        flushWord(wordRun, tokens, forIndex);
+    }
+
+    private static void flushCjk(StringBuilder run, Set<String> tokens, boolean forIndex) {
+        if (run.isEmpty()) {
+            return;
+        }
+        int[] codePoints = run.codePoints().toArray();
+        if (forIndex || codePoints.length == 1) {
+            for (int codePoint : codePoints) {
+                tokens.add(new String(Character.toChars(codePoint)));
+            }
+        }
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            tokens.add(new String(codePoints, i, 2));
+        }
+        run.setLength(0);
+    }
+
+    private static void flushWord(StringBuilder run, Set<String> tokens, boolean forIndex) {
+        if (run.isEmpty()) {
+            return;
+        }
+        String word = run.length() > MAX_TOKEN_LENGTH ? run.substring(0, MAX_TOKEN_LENGTH) : run.toString();
+        if (forIndex) {
+            for (int length = 1; length <= word.length(); length++) {
+                tokens.add(word.substring(0, length));
+            }
+        } else {
+            tokens.add(word);
+        }
+        run.setLength(0);
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,139 @@
+package club.ppmc.workflow.controller;
+
+import club.ppmc.workflow.utils.CursorCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 游标分页接口：无效或被篡改的游标返回 400 而不是 500；运行中的流程实例列表按游标翻页且包含已挂起的实例。
+ */
+@SpringBootTest(properties = {
+        // 与其他测试的上下文同时缓存在同一个 JVM 中，使用独立的数据库和流程引擎名称
+        "spring.datasource.url=jdbc:h2:mem:cursor-pagination-test;DB_CLOSE_DELAY=-1",
+        "camunda.bpm.generate-unique-process-engine-name=true",
+        "camunda.bpm.generate-unique-process-application-name=true"
+})
+@AutoConfigureMockMvc
+class CursorPaginationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private RepositoryService repositoryService;
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Test
+    void invalidCursorsAreBadRequests() throws Exception {
+        String token = login("admin", "admin");
+        String notADate = CursorCodec.encode("yesterday", "1");
+        String notAnId = CursorCodec.encode("2026-10-18T08:30:15", "abc");
+
+        for (String url : List.of("/api/tasks/pending/cursor", "/api/tasks/completed/cursor", "/api/admin/instances/cursor")) {
+            // 非 Base64 字符；合法 Base64 但缺少分隔符 ("no-separator")
+            for (String cursor : List.of("%%garbage%%", "bm8tc2VwYXJhdG9y")) {
+                mockMvc.perform(get(url).param("cursor", cursor).header("Authorization", "Bearer " + token))
+                        .andExpect(status().isBadRequest());
+            }
+        }
+        mockMvc.perform(get("/api/tasks/pending/cursor").param("cursor", notADate).header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/tasks/completed/cursor").param("cursor", notAnId).header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/admin/instances/cursor").param("cursor", notADate).header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("无效的分页游标"));
+    }
+
+    @Test
+    void blankCursorIsTheFirstPageAndReturnsTheTotal() throws Exception {
+        String token = login("user001", "password");
+
+        for (String url : List.of("/api/tasks/pending/cursor", "/api/tasks/completed/cursor")) {
+            mockMvc.perform(get(url).param("cursor", "").param("withTotal", "true").header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").isNumber());
+            int anonymous = mockMvc.perform(get(url)).andReturn().getResponse().getStatus();
+            assertThat(anonymous).isIn(401, 403);
+        }
+    }
+
+    @Test
+    void runningInstancesPageByCursorAndIncludeSuspendedOnes() throws Exception {
+        String processKey = "cursor_test_" + System.nanoTime();
+        BpmnModelInstance model = Bpmn.createExecutableProcess(processKey)
+                .camundaHistoryTimeToLive(1)
+                .startEvent()
+                .userTask("wait")
+                .endEvent()
+                .done();
+        repositoryService.createDeployment().addModelInstance(processKey + ".bpmn", model).deploy();
+        List<String> started = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            started.add(runtimeService.startProcessInstanceByKey(processKey, "bk-" + i).getId());
+            Thread.sleep(5); // 保证开始时间不同，翻页顺序确定
+        }
+        runtimeService.suspendProcessInstanceById(started.get(0));
+        String token = login("admin", "admin");
+
+        JsonNode first = instances(token, processKey, null);
+        assertThat(first.path("hasMore").asBoolean()).isTrue();
+        assertThat(first.path("content")).hasSize(2);
+        JsonNode second = instances(token, processKey, first.path("nextCursor").asText());
+        assertThat(second.path("hasMore").asBoolean()).isFalse();
+        assertThat(second.path("content")).hasSize(1);
+
+        List<String> listed = new ArrayList<>();
+        first.path("content").forEach(instance -> listed.add(instance.path("processInstanceId").asText()));
+        second.path("content").forEach(instance -> listed.add(instance.path("processInstanceId").asText()));
+        assertThat(listed).containsExactly(started.get(2), started.get(1), started.get(0));
+
+        JsonNode suspended = second.path("content").get(0);
+        assertThat(suspended.path("suspended").asBoolean()).isTrue();
+        assertThat(suspended.path("state").asText()).isEqualTo("RUNNING");
+        assertThat(first.path("content").get(0).path("suspended").asBoolean()).isFalse();
+    }
+
+    private JsonNode instances(String token, String processKey, String cursor) throws Exception {
+        var request = get("/api/admin/instances/cursor")
+                .param("processDefinitionKey", processKey)
+                .param("size", "2")
+                .header("Authorization", "Bearer " + token);
+        if (cursor != null) {
+            request.param("cursor", cursor);
+        }
+        String body = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private String login(String userId, String password) throws Exception {
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("userId", userId, "password", password))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).path("token").asText();
+    }
+}
@@ -0,0 +1,68 @@
+package club.ppmc.workflow.controller;
+
+import club.ppmc.workflow.domain.LoginLog;
+import club.ppmc.workflow.repository.LoginLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 登录失败限流：账号维度只限制来自同一 IP 的尝试，被限流的请求记录到登录日志。
+ */
+@SpringBootTest(properties = {
+        // 与其他测试的上下文同时缓存在同一个 JVM 中，使用独立的数据库和流程引擎名称
+        "spring.datasource.url=jdbc:h2:mem:login-throttle-test;DB_CLOSE_DELAY=-1",
+        "camunda.bpm.generate-unique-process-engine-name=true",
+        "camunda.bpm.generate-unique-process-application-name=true",
+        "app.security.login.max-failures-per-account=2"
+})
+@AutoConfigureMockMvc
+class LoginThrottleTests {
+
+    private static final String ATTACKER_IP = "10.0.0.1";
+    private static final String OWNER_IP = "10.0.0.2";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private LoginLogRepository loginLogRepository;
+
+    @Test
+    void failuresFromOneIpDoNotLockTheAccountForOtherIps() throws Exception {
+        login("user001", "wrong", ATTACKER_IP).andExpect(status().isUnauthorized());
+        login("user001", "wrong", ATTACKER_IP).andExpect(status().isUnauthorized());
+
+        login("user001", "password", ATTACKER_IP).andExpect(status().isTooManyRequests());
+        login("user001", "password", OWNER_IP).andExpect(status().isOk());
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(loginLogRepository.findAll())
+                .anySatisfy(log -> {
+                    assertThat(log.getUserId()).isEqualTo("user001");
+                    assertThat(log.getIpAddress()).isEqualTo(ATTACKER_IP);
+                    assertThat(log.getStatus()).isEqualTo(LoginLog.LoginStatus.FAILURE);
+                    assertThat(log.getFailureReason()).isEqualTo("登录失败次数过多，请稍后再试");
+                }));
+    }
+
+    private ResultActions login(String userId, String password, String ipAddress) throws Exception {
+        return mockMvc.perform(post("/api/auth/login")
+                .header("X-Forwarded-For", ipAddress)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("userId", userId, "password", password))));
+    }
+}
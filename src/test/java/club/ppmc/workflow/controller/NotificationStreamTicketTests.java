@@ -0,0 +1,72 @@
+package club.ppmc.workflow.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 实时推送订阅：只接受通过已认证请求换取的一次性凭证，不再接受 URL 中的 JWT。
+ */
+@SpringBootTest(properties = {
+        // 与其他测试的上下文同时缓存在同一个 JVM 中，使用独立的数据库和流程引擎名称
+        "spring.datasource.url=jdbc:h2:mem:stream-ticket-test;DB_CLOSE_DELAY=-1",
+        "camunda.bpm.generate-unique-process-engine-name=true",
+        "camunda.bpm.generate-unique-process-application-name=true"
+})
+@AutoConfigureMockMvc
+class NotificationStreamTicketTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void streamAcceptsATicketOnlyOnce() throws Exception {
+        String token = login("user001", "password");
+        String body = mockMvc.perform(post("/api/notifications/stream-ticket").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String ticket = objectMapper.readTree(body).path("ticket").asText();
+        assertThat(ticket).isNotBlank().isNotEqualTo(token);
+
+        mockMvc.perform(get("/api/notifications/stream").param("ticket", ticket))
+                .andExpect(request().asyncStarted());
+        mockMvc.perform(get("/api/notifications/stream").param("ticket", ticket))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void ticketsRequireAuthenticationAndTokensAreNotAcceptedInTheUrl() throws Exception {
+        String token = login("user001", "password");
+
+        int issueStatus = mockMvc.perform(post("/api/notifications/stream-ticket")).andReturn().getResponse().getStatus();
+        assertThat(issueStatus).isIn(401, 403);
+        mockMvc.perform(get("/api/notifications/stream").param("ticket", "forged"))
+                .andExpect(status().isUnauthorized());
+        int streamStatus = mockMvc.perform(get("/api/notifications/stream").param("access_token", token))
+                .andReturn().getResponse().getStatus();
+        assertThat(streamStatus).isIn(401, 403);
+    }
+
+    private String login(String userId, String password) throws Exception {
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("userId", userId, "password", password))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).path("token").asText();
+    }
+}
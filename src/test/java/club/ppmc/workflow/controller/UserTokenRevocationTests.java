@@ -0,0 +1,105 @@
+package club.ppmc.workflow.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 修改用户后 Token 的有效性：写入 Token 的姓名或授权信息变化时 (管理员修改或本人修改) 旧 Token 作废，其他资料变化不影响。
+ */
+@SpringBootTest(properties = {
+        // 与其他测试的上下文同时缓存在同一个 JVM 中，使用独立的数据库和流程引擎名称
+        "spring.datasource.url=jdbc:h2:mem:token-revocation-test;DB_CLOSE_DELAY=-1",
+        "camunda.bpm.generate-unique-process-engine-name=true",
+        "camunda.bpm.generate-unique-process-application-name=true"
+})
+@AutoConfigureMockMvc
+class UserTokenRevocationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void renamingAUserRevokesTheirTokens() throws Exception {
+        String adminToken = login("admin", "admin");
+        String userToken = login("hr001", "password");
+
+        ObjectNode user = findUser(adminToken, "hr001");
+        user.put("email", "hr001-updated@example.com");
+        updateUser(adminToken, user);
+        mockMvc.perform(get("/api/notifications/unread-count").header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk());
+
+        user.put("name", user.path("name").asText() + "-改名");
+        updateUser(adminToken, user);
+        mockMvc.perform(get("/api/notifications/unread-count").header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isUnauthorized());
+
+        String renewedToken = login("hr001", "password");
+        mockMvc.perform(get("/api/users/me/profile").header("Authorization", "Bearer " + renewedToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(user.path("name").asText()));
+    }
+
+    @Test
+    void renamingOneselfRevokesTheOldToken() throws Exception {
+        String token = login("manager001", "password");
+        Map<String, String> profile = Map.of("name", "经理-改名", "email", "manager001@example.com", "phoneNumber", "123");
+
+        mockMvc.perform(put("/api/users/me/profile")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(profile)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/me/profile").header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/users/me/profile").header("Authorization", "Bearer " + login("manager001", "password")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("经理-改名"));
+    }
+
+    private ObjectNode findUser(String adminToken, String userId) throws Exception {
+        String body = mockMvc.perform(get("/api/admin/users").param("keyword", userId).header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (JsonNode user : objectMapper.readTree(body).path("content")) {
+            if (userId.equals(user.path("id").asText())) {
+                return (ObjectNode) user;
+            }
+        }
+        throw new AssertionError("未找到用户 " + userId);
+    }
+
+    private void updateUser(String adminToken, ObjectNode user) throws Exception {
+        mockMvc.perform(put("/api/admin/users/" + user.path("id").asText())
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isOk());
+    }
+
+    private String login(String userId, String password) throws Exception {
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("userId", userId, "password", password))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).path("token").asText();
+    }
+}
@@ -0,0 +1,96 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.dto.BatchCompleteTaskRequest;
+import club.ppmc.workflow.dto.BatchCompleteTaskResponse;
+import club.ppmc.workflow.dto.CompleteTaskRequest;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.TaskService;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 批量完成任务的超时处理：等待时限过后取消尚未开始的块，这些任务报告为未处理，且之后不会再被执行。
+ */
+@SpringBootTest(properties = {
+        // 与其他测试的上下文同时缓存在同一个 JVM 中，使用独立的数据库和流程引擎名称
+        "spring.datasource.url=jdbc:h2:mem:batch-complete-test;DB_CLOSE_DELAY=-1",
+        "camunda.bpm.generate-unique-process-engine-name=true",
+        "camunda.bpm.generate-unique-process-application-name=true",
+        "app.tasks.batch-complete.threads=1",
+        "app.tasks.batch-complete.chunk-size=1",
+        "app.tasks.batch-complete.timeout-ms=300"
+})
+class BatchTaskCompletionServiceTests {
+
+    @Autowired
+    private BatchTaskCompletionService batchTaskCompletionService;
+    @Autowired
+    private RepositoryService repositoryService;
+    @Autowired
+    private RuntimeService runtimeService;
+    @Autowired
+    private TaskService taskService;
+
+    @Test
+    void chunksThatNeverStartedBeforeTheDeadlineAreCancelledAndReportedAsUnprocessed() throws Exception {
+        String processKey = "batch_test_" + System.nanoTime();
+        BpmnModelInstance model = Bpmn.createExecutableProcess(processKey)
+                .camundaHistoryTimeToLive(1)
+                .startEvent()
+                .userTask("approve").camundaAssignee("user001")
+                .endEvent()
+                .done();
+        repositoryService.createDeployment().addModelInstance(processKey + ".bpmn", model).deploy();
+        List<String> taskIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String processInstanceId = runtimeService.startProcessInstanceByKey(processKey).getId();
+            taskIds.add(taskService.createTaskQuery().processInstanceId(processInstanceId).singleResult().getId());
+        }
+
+        // 占住唯一的工作线程，使所有块都停留在队列中
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(batchTaskCompletionService, "executor");
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        BatchCompleteTaskRequest request = new BatchCompleteTaskRequest();
+        request.setTaskIds(taskIds);
+        request.setDecision(CompleteTaskRequest.Decision.APPROVED);
+        BatchCompleteTaskResponse response;
+        try {
+            response = batchTaskCompletionService.completeTasks("user001", request);
+        } finally {
+            release.countDown();
+        }
+
+        assertThat(response.getSucceeded()).isZero();
+        assertThat(response.getResults()).hasSize(3).allSatisfy(item -> {
+            assertThat(item.isSuccess()).isFalse();
+            assertThat(item.getMessage()).isEqualTo("处理超时，此任务未处理，请稍后重试");
+        });
+        assertThat(executor.getQueue()).isEmpty();
+
+        // 取消的块不会在请求返回后才被执行
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(taskService.createTaskQuery().taskIdIn(taskIds.toArray(String[]::new)).count()).isEqualTo(3);
+    }
+}
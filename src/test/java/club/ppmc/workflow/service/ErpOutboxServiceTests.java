@@ -0,0 +1,267 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.ErpOutboxMessage;
+import club.ppmc.workflow.domain.FormDefinition;
+import club.ppmc.workflow.domain.FormSubmission;
+import club.ppmc.workflow.domain.WorkflowInstance;
+import club.ppmc.workflow.domain.WorkflowTemplate;
+import club.ppmc.workflow.integration.erp.ErpService;
+import club.ppmc.workflow.integration.erp.RealErpServiceImpl;
+import club.ppmc.workflow.repository.ErpOutboxMessageRepository;
+import club.ppmc.workflow.repository.FormDefinitionRepository;
+import club.ppmc.workflow.repository.FormSubmissionRepository;
+import club.ppmc.workflow.repository.WorkflowInstanceRepository;
+import club.ppmc.workflow.repository.WorkflowTemplateRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 使用本地 HTTP 桩服务代替 ERP，验证 RealErpServiceImpl 经由发件箱发送库存扣减：
+ * 审批事务不等待 ERP 即提交，失败按退避重试且每次携带相同的幂等键，最终记录为 SENT 或 FAILED。
+ */
+@SpringBootTest(properties = {
+        // 与其他测试的上下文同时缓存在同一个 JVM 中，使用独立的数据库和流程引擎名称
+        "spring.datasource.url=jdbc:h2:mem:erp-outbox-test;DB_CLOSE_DELAY=-1",
+        "camunda.bpm.generate-unique-process-engine-name=true",
+        "camunda.bpm.generate-unique-process-application-name=true",
+        "app.erp-outbox.poll-interval-ms=100",
+        "app.erp-outbox.initial-backoff-ms=200",
+        "app.erp-outbox.max-backoff-ms=1000",
+        "app.erp-outbox.max-attempts=3"
+})
+class ErpOutboxServiceTests {
+
+    private static final long INITIAL_BACKOFF_MS = 200;
+
+    /**
+     * 桩服务收到的一次请求
+     */
+    private record ErpRequest(String idempotencyKey, long receivedAtNanos) {
+    }
+
+    private static final HttpServer ERP_STUB;
+    private static final List<ErpRequest> REQUESTS = new CopyOnWriteArrayList<>();
+    // 幂等键 -> 返回成功之前需要失败的次数；不在表中的幂等键总是失败
+    private static final Map<String, AtomicInteger> FAILURES_BEFORE_SUCCESS = new ConcurrentHashMap<>();
+    // 幂等键 -> 第一次请求阻塞到测试放行为止，模拟 ERP 响应缓慢
+    private static final Map<String, CountDownLatch> FIRST_RESPONSE_GATES = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            ERP_STUB = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ERP_STUB.createContext("/inventory/deduct", ErpOutboxServiceTests::handleDeduction);
+        ERP_STUB.start();
+    }
+
+    @DynamicPropertySource
+    static void erpProperties(DynamicPropertyRegistry registry) {
+        registry.add("erp.api.base-url", () -> "http://127.0.0.1:" + ERP_STUB.getAddress().getPort());
+        registry.add("erp.api.read-timeout-ms", () -> "15000");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        ERP_STUB.stop(0);
+    }
+
+    @TestConfiguration
+    static class RealErpConfiguration {
+        /**
+         * 真实实现只在 prod 环境注册，这里显式注册并优先于 MockErpServiceImpl
+         */
+        @Bean
+        @Primary
+        ErpService realErpService() {
+            return new RealErpServiceImpl();
+        }
+    }
+
+    @Autowired
+    private ArchiveProcessDelegate archiveProcessDelegate;
+    @Autowired
+    private ErpOutboxMessageRepository outboxRepository;
+    @Autowired
+    private FormDefinitionRepository formDefinitionRepository;
+    @Autowired
+    private WorkflowTemplateRepository templateRepository;
+    @Autowired
+    private FormSubmissionRepository submissionRepository;
+    @Autowired
+    private WorkflowInstanceRepository instanceRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void approvalCommitsBeforeErpRespondsAndRetriesUntilSent() throws Exception {
+        String processInstanceId = "erp-retry-" + UUID.randomUUID();
+        String idempotencyKey = "inventory-deduction:" + processInstanceId;
+        CountDownLatch gate = new CountDownLatch(1);
+        FIRST_RESPONSE_GATES.put(idempotencyKey, gate);
+        FAILURES_BEFORE_SUCCESS.put(idempotencyKey, new AtomicInteger(2));
+        Long submissionId = createRunningInstance(processInstanceId);
+
+        long start = System.nanoTime();
+        approve(processInstanceId);
+        long approvalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // ERP 的第一次请求仍被阻塞，审批事务已经提交
+        assertThat(gate.getCount()).isEqualTo(1);
+        assertThat(approvalMillis).isLessThan(5000);
+        assertThat(submissionRepository.findById(submissionId).orElseThrow().getStatus())
+                .isEqualTo(FormSubmission.SubmissionStatus.APPROVED);
+        assertThat(outboxRepository.findAll()).anySatisfy(message -> {
+            assertThat(message.getIdempotencyKey()).isEqualTo(idempotencyKey);
+            assertThat(message.getStatus()).isIn(ErpOutboxMessage.Status.PENDING, ErpOutboxMessage.Status.SENDING);
+        });
+
+        gate.countDown();
+        ErpOutboxMessage sent = awaitFinalStatus(idempotencyKey);
+        assertThat(sent.getStatus()).isEqualTo(ErpOutboxMessage.Status.SENT);
+        assertThat(sent.getAttempts()).isEqualTo(3);
+        assertThat(sent.getSentAt()).isNotNull();
+
+        // 每次请求都携带了同一个幂等键
+        assertThat(REQUESTS).extracting(ErpRequest::idempotencyKey).doesNotContainNull();
+        List<ErpRequest> attempts = requestsFor(idempotencyKey);
+        assertThat(attempts).hasSize(3);
+        // 指数退避：第 n 次失败后至少等待 initial-backoff-ms * 2^(n-1)
+        assertThat(attempts.get(1).receivedAtNanos() - attempts.get(0).receivedAtNanos())
+                .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(INITIAL_BACKOFF_MS));
+        assertThat(attempts.get(2).receivedAtNanos() - attempts.get(1).receivedAtNanos())
+                .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(INITIAL_BACKOFF_MS * 2));
+    }
+
+    @Test
+    void messageIsMarkedFailedAfterMaxAttempts() throws Exception {
+        String processInstanceId = "erp-down-" + UUID.randomUUID();
+        String idempotencyKey = "inventory-deduction:" + processInstanceId;
+        createRunningInstance(processInstanceId);
+
+        approve(processInstanceId);
+
+        ErpOutboxMessage failed = awaitFinalStatus(idempotencyKey);
+        assertThat(failed.getStatus()).isEqualTo(ErpOutboxMessage.Status.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(3);
+        assertThat(failed.getLastError()).isNotBlank();
+        // 达到最大次数后不再发送
+        Thread.sleep(500);
+        assertThat(requestsFor(idempotencyKey)).hasSize(3);
+    }
+
+    private Long createRunningInstance(String processInstanceId) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            FormDefinition form = new FormDefinition();
+            form.setName("领料申请");
+            form.setSchemaJson("{\"fields\":[]}");
+            formDefinitionRepository.save(form);
+
+            WorkflowTemplate template = new WorkflowTemplate();
+            template.setFormDefinition(form);
+            template.setBpmnXml("<definitions/>");
+            template.setProcessDefinitionKey("Process_" + processInstanceId);
+            templateRepository.save(template);
+
+            FormSubmission submission = new FormSubmission();
+            submission.setFormDefinition(form);
+            submission.setDataJson("{\"materialSku\":\"SKU-1\",\"quantity\":2}");
+            submission.setSubmitterId("user001");
+            submission.setStatus(FormSubmission.SubmissionStatus.PROCESSING);
+            submissionRepository.save(submission);
+
+            WorkflowInstance instance = new WorkflowInstance();
+            instance.setTemplate(template);
+            instance.setFormSubmission(submission);
+            instance.setProcessInstanceId(processInstanceId);
+            instanceRepository.save(instance);
+            return submission.getId();
+        });
+    }
+
+    /**
+     * 在一个事务中执行审批通过后的归档委托，与引擎执行服务任务的方式相同
+     */
+    private void approve(String processInstanceId) throws Exception {
+        DelegateExecution execution = mock(DelegateExecution.class);
+        when(execution.getProcessInstanceId()).thenReturn(processInstanceId);
+        when(execution.getVariable("materialSku")).thenReturn("SKU-1");
+        when(execution.getVariable("quantity")).thenReturn(2);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            try {
+                archiveProcessDelegate.execute(execution);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private ErpOutboxMessage awaitFinalStatus(String idempotencyKey) {
+        return await().atMost(Duration.ofSeconds(20)).pollInterval(Duration.ofMillis(50))
+                .until(() -> findByKey(idempotencyKey),
+                        message -> message.getStatus() == ErpOutboxMessage.Status.SENT
+                                || message.getStatus() == ErpOutboxMessage.Status.FAILED);
+    }
+
+    private ErpOutboxMessage findByKey(String idempotencyKey) {
+        return outboxRepository.findAll().stream()
+                .filter(message -> idempotencyKey.equals(message.getIdempotencyKey()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static List<ErpRequest> requestsFor(String idempotencyKey) {
+        return REQUESTS.stream().filter(request -> idempotencyKey.equals(request.idempotencyKey())).toList();
+    }
+
+    private static void handleDeduction(HttpExchange exchange) throws IOException {
+        String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        REQUESTS.add(new ErpRequest(idempotencyKey, System.nanoTime()));
+        exchange.getRequestBody().readAllBytes();
+
+        CountDownLatch gate = idempotencyKey != null ? FIRST_RESPONSE_GATES.remove(idempotencyKey) : null;
+        if (gate != null) {
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        AtomicInteger failures = idempotencyKey != null ? FAILURES_BEFORE_SUCCESS.get(idempotencyKey) : null;
+        boolean succeed = failures != null && failures.getAndDecrement() <= 0;
+        exchange.sendResponseHeaders(succeed ? 200 : 503, -1);
+        exchange.close();
+    }
+}
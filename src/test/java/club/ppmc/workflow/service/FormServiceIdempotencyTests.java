@@ -0,0 +1,97 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.dto.CreateFormDefinitionRequest;
+import club.ppmc.workflow.dto.CreateFormSubmissionRequest;
+import club.ppmc.workflow.dto.DeployWorkflowRequest;
+import club.ppmc.workflow.dto.FormSubmissionResponse;
+import club.ppmc.workflow.dto.WorkflowTemplateResponse;
+import club.ppmc.workflow.repository.FormSubmissionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 申请提交的幂等键：同一表单的重复请求返回首次创建的申请，已用于其他表单或其他申请的幂等键被拒绝 (409)。
+ */
+@SpringBootTest(properties = {
+        // 与其他测试的上下文同时缓存在同一个 JVM 中，使用独立的数据库和流程引擎名称
+        "spring.datasource.url=jdbc:h2:mem:form-idempotency-test;DB_CLOSE_DELAY=-1",
+        "camunda.bpm.generate-unique-process-engine-name=true",
+        "camunda.bpm.generate-unique-process-application-name=true"
+})
+class FormServiceIdempotencyTests {
+
+    private static final String SCHEMA_JSON = """
+            {"fields":[{"id":"title","label":"标题","type":"Input"}]}""";
+
+    @Autowired
+    private FormService formService;
+    @Autowired
+    private WorkflowService workflowService;
+    @Autowired
+    private FormSubmissionRepository submissionRepository;
+
+    @Test
+    void repeatedRequestReturnsTheFirstSubmission() {
+        Long formId = createDeployedForm();
+        String key = "key-" + System.nanoTime();
+
+        FormSubmissionResponse first = formService.createFormSubmission(formId, request(), "user001", key, false);
+        FormSubmissionResponse retry = formService.createFormSubmission(formId, request(), "user001", key, false);
+
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(submissionRepository.findBySubmitterIdAndIdempotencyKey("user001", key)).isPresent();
+    }
+
+    @Test
+    void keyAlreadyUsedForAnotherFormIsAConflict() {
+        Long formId = createDeployedForm();
+        Long otherFormId = createDeployedForm();
+        String key = "key-" + System.nanoTime();
+        formService.createFormSubmission(formId, request(), "user001", key, false);
+
+        assertThatThrownBy(() -> formService.createFormSubmission(otherFormId, request(), "user001", key, false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("已用于其他表单的申请");
+        // 其他用户的幂等键互不影响
+        assertThat(formService.createFormSubmission(otherFormId, request(), "manager001", key, false).getId()).isNotNull();
+    }
+
+    @Test
+    void submittingADraftWithAKeyOfAnotherSubmissionIsAConflict() {
+        Long formId = createDeployedForm();
+        String key = "key-" + System.nanoTime();
+        formService.createFormSubmission(formId, request(), "user001", key, false);
+        Long draftId = formService.createDraft(formId, request(), "user001").getId();
+
+        assertThatThrownBy(() -> formService.submitDraft(draftId, request(), "user001", key, false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("已用于其他申请");
+        assertThat(submissionRepository.findById(draftId).orElseThrow().getIdempotencyKey()).isNull();
+    }
+
+    private static CreateFormSubmissionRequest request() {
+        CreateFormSubmissionRequest request = new CreateFormSubmissionRequest();
+        request.setDataJson("{\"title\":\"幂等测试\"}");
+        request.setInitialAction("proceed");
+        return request;
+    }
+
+    private Long createDeployedForm() {
+        CreateFormDefinitionRequest form = new CreateFormDefinitionRequest();
+        form.setName("幂等测试-" + System.nanoTime());
+        form.setSchemaJson(SCHEMA_JSON);
+        Long formId = formService.createFormDefinition(form).getId();
+
+        WorkflowTemplateResponse template = workflowService.getOrCreateWorkflowTemplate(formId);
+        DeployWorkflowRequest deploy = new DeployWorkflowRequest();
+        deploy.setFormDefinitionId(formId);
+        deploy.setBpmnXml(template.getBpmnXml());
+        deploy.setProcessDefinitionKey(template.getProcessDefinitionKey());
+        workflowService.deployWorkflow(deploy);
+        return formId;
+    }
+}
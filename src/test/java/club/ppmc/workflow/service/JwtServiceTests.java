@@ -0,0 +1,88 @@
+package club.ppmc.workflow.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * JwtService 已验证 Claims 缓存的单元测试：命中时直接返回缓存的 Claims，
+ * 过期的 Token 不会从缓存中返回，缓存满时不再写入新条目。
+ */
+class JwtServiceTests {
+
+    private static final String SECRET = "c2VjcmV0LWtleS1mb3Itand0LXNlY3VyaXR5LXB1cnBvc2VzLW11c3QtYmUtbG9uZw==";
+
+    @Test
+    void cacheHitReturnsSameClaims() {
+        JwtService jwtService = newJwtService(60_000, 100);
+        String token = jwtService.generateToken(Map.of(), user("user001"));
+
+        Claims first = jwtService.parseVerifiedClaims(token);
+        Claims second = jwtService.parseVerifiedClaims(token);
+
+        assertThat(first.getSubject()).isEqualTo("user001");
+        assertThat(second).isSameAs(first);
+        assertThat(cache(jwtService)).hasSize(1);
+    }
+
+    @Test
+    void expiredTokenIsNotServedFromCache() {
+        JwtService jwtService = newJwtService(1_000, 100);
+        String token = jwtService.generateToken(Map.of(), user("user001"));
+        assertThat(jwtService.parseVerifiedClaims(token).getSubject()).isEqualTo("user001");
+        assertThat(cache(jwtService)).hasSize(1);
+
+        // exp 精确到秒，等待到 Token 一定已经过期
+        await().pollDelay(Duration.ofMillis(1_100)).atMost(Duration.ofSeconds(3))
+                .untilAsserted(() -> assertThatThrownBy(() -> jwtService.parseVerifiedClaims(token))
+                        .isInstanceOf(ExpiredJwtException.class));
+        assertThat(cache(jwtService)).isEmpty();
+    }
+
+    @Test
+    void fullCacheStopsInserting() {
+        JwtService jwtService = newJwtService(60_000, 1);
+        String cachedToken = jwtService.generateToken(Map.of(), user("user001"));
+        String uncachedToken = jwtService.generateToken(Map.of(), user("manager001"));
+
+        Claims cached = jwtService.parseVerifiedClaims(cachedToken);
+        Claims firstUncached = jwtService.parseVerifiedClaims(uncachedToken);
+        Claims secondUncached = jwtService.parseVerifiedClaims(uncachedToken);
+
+        // 缓存已满：新 Token 每次都重新校验，不会挤掉已有条目
+        assertThat(firstUncached.getSubject()).isEqualTo("manager001");
+        assertThat(secondUncached).isNotSameAs(firstUncached);
+        assertThat(jwtService.parseVerifiedClaims(cachedToken)).isSameAs(cached);
+        assertThat(cache(jwtService)).hasSize(1);
+    }
+
+    private static JwtService newJwtService(long expirationMs, int cacheMaxSize) {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(jwtService, "EXPIRATION_TIME", expirationMs);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheEnabled", true);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheMaxSize", cacheMaxSize);
+        ReflectionTestUtils.setField(jwtService, "embedAuthorizationClaims", true);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        return jwtService;
+    }
+
+    private static UserDetails user(String userId) {
+        return new User(userId, "password", List.of());
+    }
+
+    private static Map<?, ?> cache(JwtService jwtService) {
+        return (Map<?, ?>) ReflectionTestUtils.getField(jwtService, "verifiedClaimsCache");
+    }
+}
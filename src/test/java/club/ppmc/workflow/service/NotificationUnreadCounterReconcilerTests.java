@@ -0,0 +1,69 @@
+package club.ppmc.workflow.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 未读通知计数校正：按块 (这里每块一个用户) 修正有偏差的计数，并为尚无计数行的用户补齐。
+ */
+@SpringBootTest(properties = {
+        // 与其他测试的上下文同时缓存在同一个 JVM 中，使用独立的数据库和流程引擎名称
+        "spring.datasource.url=jdbc:h2:mem:unread-reconcile-test;DB_CLOSE_DELAY=-1",
+        "camunda.bpm.generate-unique-process-engine-name=true",
+        "camunda.bpm.generate-unique-process-application-name=true",
+        "app.notification.unread-reconcile-chunk-size=1"
+})
+class NotificationUnreadCounterReconcilerTests {
+
+    private static final List<String> USERS = List.of("admin", "manager001", "user001");
+
+    @Autowired
+    private NotificationUnreadCounterReconciler reconciler;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void correctsDriftedCountersAndInsertsMissingOnesChunkByChunk() {
+        jdbcTemplate.update("DELETE FROM app_notification");
+        jdbcTemplate.update("DELETE FROM notification_unread_counter");
+        insertNotifications("admin", 2, false);
+        insertNotifications("admin", 1, true);
+        insertNotifications("manager001", 3, false);
+        insertNotifications("user001", 1, false);
+        // admin 的计数偏大，manager001 的计数偏小，user001 尚无计数行
+        jdbcTemplate.update("INSERT INTO notification_unread_counter (user_id, unread_count) VALUES ('admin', 7)");
+        jdbcTemplate.update("INSERT INTO notification_unread_counter (user_id, unread_count) VALUES ('manager001', 0)");
+
+        reconciler.reconcile();
+
+        assertThat(counters()).containsExactlyInAnyOrderEntriesOf(Map.of("admin", 2L, "manager001", 3L, "user001", 1L));
+
+        // 计数已经正确时再次校正不做修改
+        reconciler.reconcile();
+        assertThat(counters()).containsExactlyInAnyOrderEntriesOf(Map.of("admin", 2L, "manager001", 3L, "user001", 1L));
+    }
+
+    private void insertNotifications(String userId, int count, boolean read) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < count; i++) {
+            jdbcTemplate.update("INSERT INTO app_notification (user_id, title, content, type, link, is_read, created_at) "
+                    + "VALUES (?, '通知', '内容', 'TEST', NULL, ?, ?)", userId, read, now);
+        }
+    }
+
+    private Map<String, Long> counters() {
+        return jdbcTemplate.queryForList("SELECT user_id, unread_count FROM notification_unread_counter").stream()
+                .filter(row -> USERS.contains((String) row.get("USER_ID")))
+                .collect(Collectors.toMap(row -> (String) row.get("USER_ID"), row -> ((Number) row.get("UNREAD_COUNT")).longValue()));
+    }
+}
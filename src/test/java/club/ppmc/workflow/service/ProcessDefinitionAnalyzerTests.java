@@ -0,0 +1,92 @@
+package club.ppmc.workflow.service;
+
+import org.camunda.bpm.engine.RepositoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 流程变量引用分析：按括号配对提取表达式，忽略字符串字面量、属性访问和 EL 关键字；
+ * 包含无法静态分析的元素或未闭合的表达式时返回空 (写入全部表单字段)。
+ */
+class ProcessDefinitionAnalyzerTests {
+
+    @Test
+    void extractsExpressionsWithNestedBracesAndQuotedBraces() {
+        assertThat(ProcessDefinitionAnalyzer.extractExpressions(
+                "a ${level} b #{ {'k': x}[key] } c ${title == '}' && amount > 0} ${s == \"{\\\"}\"}"))
+                .containsExactly("level", " {'k': x}[key] ", "title == '}' && amount > 0", "s == \"{\\\"}\"");
+        assertThat(ProcessDefinitionAnalyzer.extractExpressions("no expressions, just $ and # and {braces}")).isEmpty();
+        assertThat(ProcessDefinitionAnalyzer.extractExpressions("${unclosed {'a'}")).isNull();
+    }
+
+    @Test
+    void collectsIdentifiersAndAccessorsButNotLiteralsPropertiesOrReservedWords() {
+        String xml = bpmn("""
+                <bpmn:userTask id="approve" camunda:assignee="${manager}" />
+                <bpmn:sequenceFlow id="f1">
+                  <bpmn:conditionExpression>${amount &gt; 1000 and dept.name == 'IT' and not empty note}</bpmn:conditionExpression>
+                </bpmn:sequenceFlow>
+                <bpmn:sequenceFlow id="f2">
+                  <bpmn:conditionExpression>${title == '}' &amp;&amp; {'A','B'}.contains(level)}</bpmn:conditionExpression>
+                </bpmn:sequenceFlow>
+                <bpmn:sequenceFlow id="f3">
+                  <bpmn:conditionExpression>${execution.getVariable(&quot;formAmount&quot;) &gt; limit}</bpmn:conditionExpression>
+                </bpmn:sequenceFlow>
+                """);
+
+        assertThat(ProcessDefinitionAnalyzer.extractReferencedVariables(xml)).hasValueSatisfying(variables ->
+                assertThat(variables).containsExactlyInAnyOrder(
+                        "manager", "amount", "dept", "note", "title", "level", "formAmount", "limit"));
+    }
+
+    @Test
+    void unanalyzableElementsOrUnclosedExpressionsFallBackToAllVariables() {
+        assertThat(ProcessDefinitionAnalyzer.extractReferencedVariables(
+                bpmn("<bpmn:serviceTask id=\"s\" camunda:class=\"com.example.Delegate\" />"))).isEmpty();
+        assertThat(ProcessDefinitionAnalyzer.extractReferencedVariables(
+                bpmn("<bpmn:scriptTask id=\"s\" scriptFormat=\"groovy\" />"))).isEmpty();
+        assertThat(ProcessDefinitionAnalyzer.extractReferencedVariables(
+                bpmn("<bpmn:businessRuleTask id=\"d\" camunda:decisionRef=\"rules\" />"))).isEmpty();
+        assertThat(ProcessDefinitionAnalyzer.extractReferencedVariables(
+                bpmn("<camunda:in variables=\"all\" />"))).isEmpty();
+        assertThat(ProcessDefinitionAnalyzer.extractReferencedVariables(
+                bpmn("<bpmn:conditionExpression>${amount &gt; {'a'</bpmn:conditionExpression>"))).isEmpty();
+    }
+
+    @Test
+    void referencedDelegateBeansContributeTheirDeclaredVariables() {
+        RepositoryService repositoryService = mock(RepositoryService.class);
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        ProcessVariableConsumer delegate = () -> Set.of("invoiceNo");
+        when(repositoryService.getProcessModel("p:1:1")).thenAnswer(invocation -> new ByteArrayInputStream(
+                bpmn("<bpmn:serviceTask id=\"s\" camunda:delegateExpression=\"${archiveDelegate}\" />")
+                        .getBytes(StandardCharsets.UTF_8)));
+        when(applicationContext.containsBean("archiveDelegate")).thenReturn(true);
+        when(applicationContext.getBean("archiveDelegate")).thenReturn(delegate);
+
+        Optional<Set<String>> variables = new ProcessDefinitionAnalyzer(repositoryService, applicationContext)
+                .getReferencedVariables("p:1:1");
+
+        assertThat(variables).hasValueSatisfying(names -> assertThat(names).containsExactlyInAnyOrder("archiveDelegate", "invoiceNo"));
+    }
+
+    private static String bpmn(String body) {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <bpmn:definitions xmlns:bpmn="http://www.omg.org/spec/BPMN/20100524/MODEL" xmlns:camunda="http://camunda.org/schema/1.0/bpmn">
+                  <bpmn:process id="p" isExecutable="true">
+                """ + body + """
+                  </bpmn:process>
+                </bpmn:definitions>
+                """;
+    }
+}
@@ -0,0 +1,194 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.FormSubmission;
+import club.ppmc.workflow.dto.CreateFormDefinitionRequest;
+import club.ppmc.workflow.dto.DeployWorkflowRequest;
+import club.ppmc.workflow.dto.SubmissionImportJobDto;
+import club.ppmc.workflow.dto.WorkflowTemplateResponse;
+import club.ppmc.workflow.repository.FormSubmissionRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * 申请批量导入：CSV 表头和引号字段的解析、NDJSON 的类型校验、必填和未知字段，
+ * 以及整块启动失败后改为逐个启动并报告失败的申请。
+ */
+@SpringBootTest(properties = {
+        // 与其他测试的上下文同时缓存在同一个 JVM 中，使用独立的数据库和流程引擎名称
+        "spring.datasource.url=jdbc:h2:mem:submission-import-test;DB_CLOSE_DELAY=-1",
+        "camunda.bpm.generate-unique-process-engine-name=true",
+        "camunda.bpm.generate-unique-process-application-name=true",
+        "app.import.max-record-chars=300"
+})
+class SubmissionImportServiceTests {
+
+    private static final String SCHEMA_JSON = """
+            {"fields":[
+              {"id":"title","label":"标题","type":"Input","rules":[{"required":true}]},
+              {"id":"amount","label":"金额","type":"InputNumber"},
+              {"id":"note","label":"备注","type":"Input"}
+            ]}""";
+
+    @Autowired
+    private SubmissionImportService importService;
+    @Autowired
+    private FormService formService;
+    @Autowired
+    private WorkflowService workflowService;
+    @Autowired
+    private FormSubmissionRepository submissionRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void importsCsvWithBomLabelsAndQuotedFields() throws Exception {
+        Long formId = createDeployedForm();
+        String csv = "\uFEFF标题,金额,note,_submitterId\r\n"
+                + "\"差旅,北京\",1200.50,\"他说 \"\"尽快\"\"\n第二行\",user001\r\n"
+                + "办公用品,abc,,user001\r\n"
+                + ",10,缺少标题,user001\r\n"
+                + "只有两列,5\r\n";
+
+        SubmissionImportJobDto job = runImport(formId, SubmissionImportService.FORMAT_CSV, csv);
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getTotalRows()).isEqualTo(4);
+        assertThat(job.getAcceptedRows()).isEqualTo(1);
+        assertThat(job.getInvalidRows()).isEqualTo(3);
+        assertThat(job.getErrors()).extracting(SubmissionImportJobDto.RowError::getRow).containsExactly(2L, 3L, 4L);
+        assertThat(job.getErrors()).extracting(SubmissionImportJobDto.RowError::getMessage).containsExactly(
+                "字段 '金额' 必须是数字",
+                "必填字段 '标题' 不能为空",
+                "列数 (2) 与表头 (4) 不一致");
+
+        List<FormSubmission> imported = submissionsOf(formId);
+        assertThat(imported).hasSize(1);
+        Map<String, Object> data = readData(imported.get(0));
+        assertThat(data).containsEntry("title", "差旅,北京")
+                .containsEntry("note", "他说 \"尽快\"\n第二行")
+                .doesNotContainKey("_submitterId");
+        assertThat(new BigDecimal(data.get("amount").toString())).isEqualByComparingTo("1200.50");
+        assertThat(imported.get(0).getSubmitterId()).isEqualTo("user001");
+    }
+
+    @Test
+    void csvRecordLongerThanTheLimitFailsTheJob() throws Exception {
+        Long formId = createDeployedForm();
+        String csv = "title,note\n" + "超长备注," + "x".repeat(400) + "\n";
+
+        SubmissionImportJobDto job = runImport(formId, SubmissionImportService.FORMAT_CSV, csv);
+
+        assertThat(job.getStatus()).isEqualTo("FAILED");
+        assertThat(job.getMessage()).contains("第 2 条 CSV 记录过长");
+        assertThat(submissionsOf(formId)).isEmpty();
+    }
+
+    @Test
+    void validatesNdjsonTypesRequiredAndUnknownFields() throws Exception {
+        Long formId = createDeployedForm();
+        String ndjson = String.join("\n",
+                "{\"title\":\"采购\",\"amount\":99.5,\"_submitterId\":\"user001\"}",
+                "{\"title\":\"类型错误\",\"amount\":\"99.5\"}",
+                "{\"amount\":1}",
+                "{\"title\":\"   \"}",
+                "{\"title\":\"未知字段\",\"unknown\":true}",
+                "",
+                "not json",
+                "{\"title\":\"提交人不存在\",\"_submitterId\":\"nobody\"}");
+
+        SubmissionImportJobDto job = runImport(formId, SubmissionImportService.FORMAT_NDJSON, ndjson);
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getTotalRows()).isEqualTo(7);
+        assertThat(job.getAcceptedRows()).isEqualTo(1);
+        assertThat(job.getInvalidRows()).isEqualTo(6);
+        assertThat(job.getErrors()).extracting(SubmissionImportJobDto.RowError::getRow)
+                .containsExactly(2L, 3L, 4L, 5L, 6L, 7L);
+        assertThat(job.getErrors()).extracting(SubmissionImportJobDto.RowError::getMessage)
+                .satisfiesExactly(
+                        message -> assertThat(message).isEqualTo("字段 '金额' 必须是数字"),
+                        message -> assertThat(message).isEqualTo("必填字段 '标题' 不能为空"),
+                        message -> assertThat(message).isEqualTo("必填字段 '标题' 不能为空"),
+                        message -> assertThat(message).isEqualTo("未知字段: unknown"),
+                        message -> assertThat(message).startsWith("不是有效的 JSON 对象"),
+                        message -> assertThat(message).isEqualTo("提交人不存在: nobody"));
+        assertThat(job.getStartedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void failedChunkStartFallsBackToPerSubmissionStartsAndReportsFailures() throws Exception {
+        Long formId = createDeployedForm();
+        // admin 没有上级经理，无法启动需要上级审批的流程，导致整块启动失败
+        String ndjson = String.join("\n",
+                "{\"title\":\"第一条\",\"_submitterId\":\"user001\"}",
+                "{\"title\":\"无上级\",\"_submitterId\":\"admin\"}",
+                "{\"title\":\"第三条\",\"_submitterId\":\"user001\"}");
+
+        SubmissionImportJobDto job = runImport(formId, SubmissionImportService.FORMAT_NDJSON, ndjson);
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getAcceptedRows()).isEqualTo(3);
+        assertThat(job.getStartedCount()).isEqualTo(2);
+        assertThat(job.getStartFailedCount()).isEqualTo(1);
+
+        FormSubmission failed = submissionsOf(formId).stream()
+                .filter(submission -> "admin".equals(submission.getSubmitterId()))
+                .findFirst().orElseThrow();
+        assertThat(job.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getRow()).isNull();
+            assertThat(error.getSubmissionId()).isEqualTo(failed.getId());
+            assertThat(error.getMessage()).contains("没有设置上级经理");
+        });
+        assertThat(failed.getStatus()).isEqualTo(FormSubmission.SubmissionStatus.START_FAILED);
+        assertThat(failed.getStartError()).contains("没有设置上级经理");
+        assertThat(submissionsOf(formId)).filteredOn(submission -> "user001".equals(submission.getSubmitterId()))
+                .hasSize(2)
+                .allSatisfy(submission -> assertThat(submission.getStatus()).isEqualTo(FormSubmission.SubmissionStatus.PROCESSING));
+    }
+
+    private Long createDeployedForm() {
+        CreateFormDefinitionRequest form = new CreateFormDefinitionRequest();
+        form.setName("导入测试-" + System.nanoTime());
+        form.setSchemaJson(SCHEMA_JSON);
+        Long formId = formService.createFormDefinition(form).getId();
+
+        WorkflowTemplateResponse template = workflowService.getOrCreateWorkflowTemplate(formId);
+        DeployWorkflowRequest deploy = new DeployWorkflowRequest();
+        deploy.setFormDefinitionId(formId);
+        deploy.setBpmnXml(template.getBpmnXml());
+        deploy.setProcessDefinitionKey(template.getProcessDefinitionKey());
+        workflowService.deployWorkflow(deploy);
+        return formId;
+    }
+
+    private SubmissionImportJobDto runImport(Long formId, String format, String body) throws Exception {
+        String jobId = importService.createImportJob(formId, format,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "admin").getJobId();
+        return await().atMost(Duration.ofSeconds(30)).pollInterval(Duration.ofMillis(100))
+                .until(() -> importService.getImportJob(jobId),
+                        job -> "COMPLETED".equals(job.getStatus()) || "FAILED".equals(job.getStatus()));
+    }
+
+    private List<FormSubmission> submissionsOf(Long formId) {
+        return submissionRepository.findAll().stream()
+                .filter(submission -> formId.equals(submission.getFormDefinition().getId()))
+                .toList();
+    }
+
+    private Map<String, Object> readData(FormSubmission submission) throws Exception {
+        return objectMapper.readValue(submission.getDataJson(), new TypeReference<>() {});
+    }
+}
@@ -0,0 +1,78 @@
+package club.ppmc.workflow.service;
+
+import club.ppmc.workflow.domain.Task;
+import club.ppmc.workflow.repository.TaskRepository;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.TaskService;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 任务投影重建：已结束任务的决策取自各自完成时的变量更新，而不是被后续任务覆盖的流程级变量。
+ */
+@SpringBootTest(properties = {
+        // 与其他测试的上下文同时缓存在同一个 JVM 中，使用独立的数据库和流程引擎名称
+        "spring.datasource.url=jdbc:h2:mem:task-projection-test;DB_CLOSE_DELAY=-1",
+        "camunda.bpm.generate-unique-process-engine-name=true",
+        "camunda.bpm.generate-unique-process-application-name=true"
+})
+class TaskProjectionServiceTests {
+
+    @Autowired
+    private TaskProjectionService taskProjectionService;
+    @Autowired
+    private TaskRepository taskRepository;
+    @Autowired
+    private RepositoryService repositoryService;
+    @Autowired
+    private RuntimeService runtimeService;
+    @Autowired
+    private TaskService taskService;
+
+    @Test
+    void rebuildRestoresTheDecisionOfEachFinishedTask() {
+        String processKey = "projection_test_" + System.nanoTime();
+        BpmnModelInstance model = Bpmn.createExecutableProcess(processKey)
+                .camundaHistoryTimeToLive(1)
+                .startEvent()
+                .userTask("first")
+                .userTask("second")
+                .userTask("third")
+                .endEvent()
+                .done();
+        repositoryService.createDeployment().addModelInstance(processKey + ".bpmn", model).deploy();
+        String processInstanceId = runtimeService.startProcessInstanceByKey(processKey).getId();
+
+        Map<String, String> taskIdByStep = new LinkedHashMap<>();
+        complete(processInstanceId, Map.of("taskOutcome", "approved"), taskIdByStep);
+        complete(processInstanceId, Map.of("taskOutcome", "returnToPrevious"), taskIdByStep);
+        complete(processInstanceId, Map.of("taskOutcome", "rejected"), taskIdByStep);
+
+        taskProjectionService.rebuild();
+
+        assertThat(decision(taskIdByStep.get("first"))).isEqualTo(Task.Decision.APPROVED);
+        assertThat(decision(taskIdByStep.get("second"))).isEqualTo(Task.Decision.RETURN_TO_PREVIOUS);
+        assertThat(decision(taskIdByStep.get("third"))).isEqualTo(Task.Decision.REJECTED);
+    }
+
+    private void complete(String processInstanceId, Map<String, Object> variables, Map<String, String> taskIdByStep) {
+        org.camunda.bpm.engine.task.Task task = taskService.createTaskQuery().processInstanceId(processInstanceId).singleResult();
+        taskIdByStep.put(task.getTaskDefinitionKey(), task.getId());
+        taskService.complete(task.getId(), variables);
+    }
+
+    private Task.Decision decision(String camundaTaskId) {
+        Task task = taskRepository.findByCamundaTaskId(camundaTaskId).orElseThrow();
+        assertThat(task.getStatus()).isEqualTo(Task.Status.COMPLETED);
+        return task.getDecision();
+    }
+}
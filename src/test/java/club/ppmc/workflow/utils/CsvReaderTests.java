@@ -0,0 +1,77 @@
+package club.ppmc.workflow.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * CsvReader 的解析规则：引号包裹的字段可以包含逗号、转义的双引号和换行，记录长度有上限。
+ */
+class CsvReaderTests {
+
+    private static final int MAX_RECORD_CHARS = 1000;
+
+    @Test
+    void quotedFieldsMayContainCommasQuotesAndNewlines() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(
+                "title,note\n"
+                        + "\"差旅,北京\",\"他说 \"\"尽快\"\" 处理\"\n"
+                        + "\"第一行\r\n第二行\",plain\n"));
+
+        assertThat(reader.readRecord(MAX_RECORD_CHARS)).containsExactly("title", "note");
+        assertThat(reader.readRecord(MAX_RECORD_CHARS)).containsExactly("差旅,北京", "他说 \"尽快\" 处理");
+        assertThat(reader.readRecord(MAX_RECORD_CHARS)).containsExactly("第一行\r\n第二行", "plain");
+        assertThat(reader.readRecord(MAX_RECORD_CHARS)).isNull();
+        assertThat(reader.getRecordNumber()).isEqualTo(3);
+    }
+
+    @Test
+    void handlesCrLfEmptyFieldsAndMissingTrailingNewline() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,,c\r\n\"\",b,\r\nlast,row"));
+
+        assertThat(reader.readRecord(MAX_RECORD_CHARS)).containsExactly("a", "", "c");
+        assertThat(reader.readRecord(MAX_RECORD_CHARS)).containsExactly("", "b", "");
+        assertThat(reader.readRecord(MAX_RECORD_CHARS)).containsExactly("last", "row");
+        assertThat(reader.readRecord(MAX_RECORD_CHARS)).isNull();
+    }
+
+    @Test
+    void leavesByteOrderMarkToTheCaller() throws IOException {
+        // BOM 作为第一个字段的内容返回，由导入服务在解析表头时去除
+        CsvReader reader = new CsvReader(new StringReader("\uFEFFtitle,amount\n"));
+
+        assertThat(reader.readRecord(MAX_RECORD_CHARS)).containsExactly("\uFEFFtitle", "amount");
+    }
+
+    @Test
+    void rejectsRecordsLongerThanTheLimit() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("short\n" + "x".repeat(50) + "\n"));
+
+        assertThat(reader.readRecord(20)).containsExactly("short");
+        assertThatThrownBy(() -> reader.readRecord(20))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("第 2 条 CSV 记录过长");
+    }
+
+    @Test
+    void unclosedQuoteIsBoundedByTheRecordLimit() {
+        CsvReader unclosed = new CsvReader(new StringReader("\"never closed,\n" + "x".repeat(100)));
+        assertThatThrownBy(() -> unclosed.readRecord(20))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("过长");
+
+        CsvReader unclosedAtEof = new CsvReader(new StringReader("\"never closed"));
+        assertThatThrownBy(() -> unclosedAtEof.readRecord(MAX_RECORD_CHARS))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("引号未闭合");
+    }
+
+    @Test
+    void emptyInputHasNoRecords() throws IOException {
+        assertThat(new CsvReader(new StringReader("")).readRecord(MAX_RECORD_CHARS)).isNull();
+    }
+}
@@ -0,0 +1,58 @@
+package club.ppmc.workflow.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * CursorCodec 的编解码：合法游标可以还原，篡改或伪造的游标统一抛出 IllegalArgumentException (映射为 400)。
+ */
+class CursorCodecTests {
+
+    @Test
+    void roundTripsSortValueAndId() {
+        String cursor = CursorCodec.encode("2026-10-18T08:30:15.123", "42");
+
+        assertThat(cursor).doesNotContain("=", "+", "/");
+        assertThat(CursorCodec.decode(cursor)).isEqualTo(new CursorCodec.Cursor("2026-10-18T08:30:15.123", "42"));
+    }
+
+    @Test
+    void idMayContainTheSeparator() {
+        CursorCodec.Cursor decoded = CursorCodec.decode(CursorCodec.encode("1760776215123", "a|b"));
+
+        assertThat(decoded.sortValue()).isEqualTo("1760776215123");
+        assertThat(decoded.id()).isEqualTo("a|b");
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertThat(CursorCodec.decode(null)).isNull();
+        assertThat(CursorCodec.decode("  ")).isNull();
+    }
+
+    @Test
+    void rejectsGarbageAndTamperedCursors() {
+        String valid = CursorCodec.encode("1760776215123", "42");
+
+        assertInvalid("not a cursor!");
+        assertInvalid(valid + "*");
+        assertInvalid(urlBase64("no-separator"));
+        assertInvalid(urlBase64("|42"));
+        assertInvalid(urlBase64("1760776215123|"));
+    }
+
+    private static void assertInvalid(String cursor) {
+        assertThatThrownBy(() -> CursorCodec.decode(cursor))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("无效的分页游标");
+    }
+
+    private static String urlBase64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
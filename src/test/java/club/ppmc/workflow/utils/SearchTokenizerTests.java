@@ -0,0 +1,79 @@
+package club.ppmc.workflow.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SearchTokenizer 的切分规则：中文按单字和二字组，英文和数字按单词前缀，查询 token 须是索引 token 的子集才能命中。
+ */
+class SearchTokenizerTests {
+
+    @Test
+    void indexesCjkUnigramsAndBigrams() {
+        assertThat(indexTokens("报销申请")).containsExactlyInAnyOrder("报", "销", "申", "请", "报销", "销申", "申请");
+    }
+
+    @Test
+    void queriesCjkByBigramsOrSingleCharacter() {
+        assertThat(SearchTokenizer.queryTokens("报销申请")).containsExactly("报销", "销申", "申请");
+        assertThat(SearchTokenizer.queryTokens("报")).containsExactly("报");
+
+        Set<String> index = indexTokens("差旅报销申请");
+        assertThat(index).containsAll(SearchTokenizer.queryTokens("销申"));
+        assertThat(index).containsAll(SearchTokenizer.queryTokens("旅"));
+        assertThat(index).doesNotContainAnyElementsOf(SearchTokenizer.queryTokens("采购"));
+    }
+
+    @Test
+    void indexesEveryPrefixOfLatinAndDigitWords() {
+        assertThat(indexTokens("Laptop 42")).containsExactlyInAnyOrder(
+                "l", "la", "lap", "lapt", "lapto", "laptop", "4", "42");
+
+        Set<String> index = indexTokens("Laptop");
+        assertThat(index).containsAll(SearchTokenizer.queryTokens("LAP"));
+        // 只支持前缀：单词中间的片段不会命中
+        assertThat(index).doesNotContainAnyElementsOf(SearchTokenizer.queryTokens("top"));
+    }
+
+    @Test
+    void splitsMixedInputIntoCjkAndWordRuns() {
+        Set<String> index = indexTokens("ThinkPad报销2024-Q3");
+        assertThat(index).contains("think", "thinkpad", "报", "销", "报销", "2024", "q3");
+        assertThat(index).doesNotContain("pad", "d报", "销2");
+
+        assertThat(SearchTokenizer.queryTokens("报销 think")).containsExactly("报销", "think");
+        assertThat(index).containsAll(SearchTokenizer.queryTokens("报销 think"));
+        assertThat(index).containsAll(SearchTokenizer.queryTokens("2024 Q"));
+    }
+
+    @Test
+    void normalizesFullWidthCharactersAndCase() {
+        assertThat(SearchTokenizer.queryTokens("ＡＢＣ１２")).containsExactly("abc12");
+        assertThat(indexTokens("ＡＢＣ")).containsExactlyInAnyOrder("a", "ab", "abc");
+    }
+
+    @Test
+    void truncatesLongWordsToTheTokenColumnLength() {
+        String longWord = "a".repeat(SearchTokenizer.MAX_TOKEN_LENGTH + 10);
+        assertThat(SearchTokenizer.queryTokens(longWord)).containsExactly("a".repeat(SearchTokenizer.MAX_TOKEN_LENGTH));
+        assertThat(indexTokens(longWord)).hasSize(SearchTokenizer.MAX_TOKEN_LENGTH)
+                .allSatisfy(token -> assertThat(token.length()).isLessThanOrEqualTo(SearchTokenizer.MAX_TOKEN_LENGTH));
+    }
+
+    @Test
+    void blankOrPunctuationOnlyInputHasNoTokens() {
+        assertThat(SearchTokenizer.queryTokens(null)).isEmpty();
+        assertThat(SearchTokenizer.queryTokens("   ")).isEmpty();
+        assertThat(SearchTokenizer.queryTokens(" ,.!-（）")).isEmpty();
+    }
+
+    private static Set<String> indexTokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        SearchTokenizer.addIndexTokens(text, tokens);
+        return tokens;
+    }
+}